@@ -0,0 +1,67 @@
+package com.aitstudgroup.ala_ata.demo.config;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+
+import com.aitstudgroup.ala_ata.demo.service.BinaryStateSubscriptions;
+
+/**
+ * Negotiates binary state frames per STOMP session. A client that sends "state-encoding: cbor"
+ * in CONNECT gets its SUBSCRIBEs to game state topics rewritten to the CBOR copy of the topic;
+ * its subscription ids do not change, so the client code only differs in how it decodes bodies.
+ * Binary frames need the native /ws-duel-native endpoint (SockJS carries text only).
+ */
+@Component
+public class BinaryStateChannelInterceptor implements ChannelInterceptor {
+    private static final Logger logger = LoggerFactory.getLogger(BinaryStateChannelInterceptor.class);
+
+    private final BinaryStateSubscriptions binaryStateSubscriptions;
+    private final Map<String, Boolean> cborSessions = new ConcurrentHashMap<>();
+
+    public BinaryStateChannelInterceptor(BinaryStateSubscriptions binaryStateSubscriptions) {
+        this.binaryStateSubscriptions = binaryStateSubscriptions;
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getCommand() == null || accessor.getSessionId() == null) {
+            return message;
+        }
+        String sessionId = accessor.getSessionId();
+        switch (accessor.getCommand()) {
+            case CONNECT, STOMP -> {
+                if ("cbor".equalsIgnoreCase(accessor.getFirstNativeHeader(BinaryStateSubscriptions.ENCODING_HEADER))) {
+                    cborSessions.put(sessionId, Boolean.TRUE);
+                    logger.debug("STOMP session {} receives game states as CBOR", sessionId);
+                }
+            }
+            case SUBSCRIBE -> {
+                String destination = accessor.getDestination();
+                if (cborSessions.containsKey(sessionId) && BinaryStateSubscriptions.isStateTopic(destination)) {
+                    String cborTopic = destination + BinaryStateSubscriptions.CBOR_SUFFIX;
+                    accessor.setDestination(cborTopic);
+                    binaryStateSubscriptions.subscribed(sessionId, accessor.getSubscriptionId(), cborTopic);
+                }
+            }
+            case UNSUBSCRIBE -> binaryStateSubscriptions.unsubscribed(sessionId, accessor.getSubscriptionId());
+            case DISCONNECT -> {
+                if (cborSessions.remove(sessionId) != null) {
+                    binaryStateSubscriptions.sessionClosed(sessionId);
+                }
+            }
+            default -> {
+            }
+        }
+        return message;
+    }
+}
@@ -9,7 +9,9 @@ import javax.crypto.spec.SecretKeySpec;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
 import org.springframework.security.oauth2.jwt.JwtEncoder;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
 import org.springframework.security.oauth2.jwt.NimbusJwtEncoder;
 import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
 import org.springframework.security.oauth2.jwt.NimbusReactiveJwtDecoder;
@@ -78,6 +80,16 @@ public class JwkConfig {
 
     @Bean
     public ReactiveJwtDecoder jwtDecoder() {
+        return NimbusReactiveJwtDecoder.withSecretKey(decoderKey()).build();
+    }
+
+    // Блокирующий декодер для STOMP CONNECT (проверка HMAC подписи, без ввода-вывода)
+    @Bean
+    public JwtDecoder stompJwtDecoder() {
+        return NimbusJwtDecoder.withSecretKey(decoderKey()).build();
+    }
+
+    private SecretKey decoderKey() {
         byte[] secretBytes = jwtSecret.getBytes(StandardCharsets.UTF_8);
         // Same padding check for decoder
         if (secretBytes.length < 32) {
@@ -85,7 +97,6 @@ public class JwkConfig {
             System.arraycopy(secretBytes, 0, paddedSecret, 0, secretBytes.length);
             secretBytes = paddedSecret;
         }
-        SecretKey secretKey = new SecretKeySpec(secretBytes, "HmacSHA256");
-        return NimbusReactiveJwtDecoder.withSecretKey(secretKey).build();
+        return new SecretKeySpec(secretBytes, "HmacSHA256");
     }
 } 
\ No newline at end of file
@@ -0,0 +1,52 @@
+package com.aitstudgroup.ala_ata.demo.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.stereotype.Component;
+
+/**
+ * Authenticates STOMP sessions from the "Authorization: Bearer <jwt>" header of the CONNECT
+ * frame. The session user is named by the token subject (the player id), which is what
+ * convertAndSendToUser(playerId, "/queue/...") resolves against. A CONNECT without a valid token
+ * (none, expired, or a pre-JWT login) stays anonymous: public topics work, /user queues do not.
+ */
+@Component
+public class StompAuthChannelInterceptor implements ChannelInterceptor {
+    private static final Logger logger = LoggerFactory.getLogger(StompAuthChannelInterceptor.class);
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final JwtDecoder stompJwtDecoder;
+
+    public StompAuthChannelInterceptor(JwtDecoder stompJwtDecoder) {
+        this.stompJwtDecoder = stompJwtDecoder;
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getCommand() != StompCommand.CONNECT) {
+            return message;
+        }
+        String authorization = accessor.getFirstNativeHeader("Authorization");
+        if (authorization == null || !authorization.startsWith(BEARER_PREFIX)) {
+            return message;
+        }
+        try {
+            JwtAuthenticationToken user = new JwtAuthenticationToken(stompJwtDecoder.decode(authorization.substring(BEARER_PREFIX.length())));
+            accessor.setUser(user);
+            logger.debug("STOMP session {} authenticated as player {}", accessor.getSessionId(), user.getName());
+        } catch (JwtException e) {
+            logger.warn("STOMP session {} stays anonymous, invalid token: {}", accessor.getSessionId(), e.getMessage());
+        }
+        return message;
+    }
+}
@@ -0,0 +1,28 @@
+package com.aitstudgroup.ala_ata.demo.config;
+
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.aitstudgroup.ala_ata.demo.util.HashedWheelTimer;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+@Configuration
+public class TimerConfig {
+
+    // Один таймер на все матчи: таймауты раундов не занимают по задаче планировщика на матч
+    @Bean(destroyMethod = "stop")
+    public HashedWheelTimer roundTimer(@Value("${round-timer.tick-ms:100}") long tickMs,
+                                       @Value("${round-timer.wheel-size:1024}") int wheelSize,
+                                       MeterRegistry meterRegistry) {
+        HashedWheelTimer timer = new HashedWheelTimer("round-timer", tickMs, TimeUnit.MILLISECONDS, wheelSize);
+        Gauge.builder("round.timer.pending", timer, HashedWheelTimer::pendingTimeouts)
+            .description("Round timeouts scheduled and not yet fired or cancelled")
+            .register(meterRegistry);
+        return timer;
+    }
+}
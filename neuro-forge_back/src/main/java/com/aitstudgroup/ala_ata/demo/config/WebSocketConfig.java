@@ -1,19 +1,87 @@
 package com.aitstudgroup.ala_ata.demo.config;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
-import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
 
+/**
+ * STOMP over WebSocket. The broker behind /topic and /queue is chosen by websocket.broker.mode:
+ * "simple" keeps subscriptions in this JVM (single node, tests); "relay" forwards them to an
+ * external STOMP broker (RabbitMQ with rabbitmq_stomp, see docker-compose "relay" profile), so a
+ * broadcast from any node reaches clients connected to every node. In relay mode the user
+ * registry is shared through the broker too, so /user destinations resolve across nodes.
+ * Sessions are authenticated by the JWT in the CONNECT frame (see StompAuthChannelInterceptor).
+ * Clients connect through SockJS (/ws-duel) or a plain WebSocket (/ws-duel-native).
+ * The message broker itself is enabled by WebSocketTransportConfig, together with its channel and
+ * per-session capacity limits.
+ */
 @Configuration
-@EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+  private static final Logger logger = LoggerFactory.getLogger(WebSocketConfig.class);
+
+  private final String brokerMode;
+  private final String relayHost;
+  private final int relayPort;
+  private final String relayLogin;
+  private final String relayPasscode;
+  private final String relayVirtualHost;
+  private final StompAuthChannelInterceptor stompAuthChannelInterceptor;
+  private final BinaryStateChannelInterceptor binaryStateChannelInterceptor;
+
+  public WebSocketConfig(StompAuthChannelInterceptor stompAuthChannelInterceptor,
+                         BinaryStateChannelInterceptor binaryStateChannelInterceptor,
+                         @Value("${websocket.broker.mode:simple}") String brokerMode,
+                         @Value("${websocket.broker.relay.host:localhost}") String relayHost,
+                         @Value("${websocket.broker.relay.port:61613}") int relayPort,
+                         @Value("${websocket.broker.relay.login:guest}") String relayLogin,
+                         @Value("${websocket.broker.relay.passcode:guest}") String relayPasscode,
+                         @Value("${websocket.broker.relay.virtual-host:}") String relayVirtualHost) {
+    this.stompAuthChannelInterceptor = stompAuthChannelInterceptor;
+    this.binaryStateChannelInterceptor = binaryStateChannelInterceptor;
+    this.brokerMode = brokerMode;
+    this.relayHost = relayHost;
+    this.relayPort = relayPort;
+    this.relayLogin = relayLogin;
+    this.relayPasscode = relayPasscode;
+    this.relayVirtualHost = relayVirtualHost;
+  }
+
   @Override
   public void configureMessageBroker(MessageBrokerRegistry config) {
-    config.enableSimpleBroker("/topic", "/queue");
+    switch (brokerMode) {
+      case "simple" -> config.enableSimpleBroker("/topic", "/queue");
+      case "relay" -> {
+        var relay = config.enableStompBrokerRelay("/topic", "/queue")
+            .setRelayHost(relayHost)
+            .setRelayPort(relayPort)
+            .setClientLogin(relayLogin)
+            .setClientPasscode(relayPasscode)
+            .setSystemLogin(relayLogin)
+            .setSystemPasscode(relayPasscode);
+        if (!relayVirtualHost.isEmpty()) {
+          relay.setVirtualHost(relayVirtualHost);
+        }
+        // Сессии пользователей живут на разных узлах: реестр и нерезолвленные /user сообщения - через брокер
+        relay.setUserRegistryBroadcast("/topic/simp-user-registry")
+            .setUserDestinationBroadcast("/topic/unresolved-user-destination");
+        logger.info("STOMP broker relay to {}:{}", relayHost, relayPort);
+      }
+      default -> throw new IllegalStateException("Unknown websocket.broker.mode '" + brokerMode + "', expected simple or relay");
+    }
     config.setApplicationDestinationPrefixes("/app");
+    // Исходящий канал многопоточный (WebSocketTransportConfig): без этого дельты одной сессии могут обогнать друг друга
+    config.setPreservePublishOrder(true);
+  }
+
+  @Override
+  public void configureClientInboundChannel(ChannelRegistration registration) {
+    registration.interceptors(stompAuthChannelInterceptor, binaryStateChannelInterceptor);
   }
 
   @Override
@@ -22,5 +90,9 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
     // setAllowedOriginPatterns("*") allows all origins. For production, you should restrict this.
     // withSockJS() enables SockJS fallback options.
     registry.addEndpoint("/ws-duel").setAllowedOriginPatterns("*").withSockJS();
+    // Plain WebSocket without SockJS framing; binary frames (CBOR game states, see BinaryStateChannelInterceptor) need it
+    registry.addEndpoint("/ws-duel-native").setAllowedOriginPatterns("*");
+    // Входящий канал многопоточный: сообщения одной сессии отдаются обработчикам в порядке получения (см. MatchMessageDispatcher)
+    registry.setPreserveReceiveOrder(true);
   }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,149 @@
+package com.aitstudgroup.ala_ata.demo.config;
+
+import java.util.concurrent.RejectedExecutionException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.simp.config.ChannelRegistration;
+import org.springframework.messaging.support.AbstractSubscribableChannel;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.config.annotation.DelegatingWebSocketMessageBrokerConfiguration;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.messaging.SubProtocolWebSocketHandler;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Capacity limits of the STOMP transport, so a broadcast storm or a slow client cannot grow the
+ * heap without bound. By default Spring runs clientInboundChannel/clientOutboundChannel on pools
+ * with unbounded queues; here both have a fixed size and a bounded queue, and a message that does
+ * not fit is rejected (inbound: the client gets an ERROR frame; outbound: the frame is not sent to
+ * that session and the broker logs it). Per session, frames waiting for a slow socket are limited
+ * by websocket.transport.send-buffer-size-limit-kb and send-time-limit-ms; when the buffer
+ * overflows, slow-consumer-policy decides: "evict" closes the session, "drop" discards its oldest
+ * buffered frames (state clients then resync, see GameStateBroadcaster). A send stuck longer than
+ * the time limit closes the session under either policy.
+ * This class is the STOMP setup itself (what @EnableWebSocketMessageBroker would import): it applies
+ * every WebSocketMessageBrokerConfigurer (routing and auth live in WebSocketConfig) and then these
+ * limits; that is the only way to choose the overflow strategy of the per-session send buffer.
+ * Metrics: websocket.channel.queue / websocket.channel.active / websocket.channel.rejected
+ * (tag channel=inbound|outbound) and websocket.sessions.evicted.
+ */
+@Configuration
+public class WebSocketTransportConfig extends DelegatingWebSocketMessageBrokerConfiguration {
+    private static final Logger logger = LoggerFactory.getLogger(WebSocketTransportConfig.class);
+
+    private final ThreadPoolTaskExecutor inboundExecutor;
+    private final ThreadPoolTaskExecutor outboundExecutor;
+    private final int sendTimeLimitMs;
+    private final int sendBufferSizeLimitBytes;
+    private final int messageSizeLimitBytes;
+    private final String slowConsumerPolicy;
+    private final ConcurrentWebSocketSessionDecorator.OverflowStrategy overflowStrategy;
+    private final Counter evictedSessions;
+
+    public WebSocketTransportConfig(MeterRegistry meterRegistry,
+                                    @Value("${websocket.channel.inbound.pool-size:8}") int inboundPoolSize,
+                                    @Value("${websocket.channel.inbound.queue-capacity:1000}") int inboundQueueCapacity,
+                                    @Value("${websocket.channel.outbound.pool-size:8}") int outboundPoolSize,
+                                    @Value("${websocket.channel.outbound.queue-capacity:5000}") int outboundQueueCapacity,
+                                    @Value("${websocket.transport.send-time-limit-ms:10000}") int sendTimeLimitMs,
+                                    @Value("${websocket.transport.send-buffer-size-limit-kb:256}") int sendBufferSizeLimitKb,
+                                    @Value("${websocket.transport.message-size-limit-kb:128}") int messageSizeLimitKb,
+                                    @Value("${websocket.transport.slow-consumer-policy:evict}") String slowConsumerPolicy) {
+        this.overflowStrategy = switch (slowConsumerPolicy) {
+            case "evict" -> ConcurrentWebSocketSessionDecorator.OverflowStrategy.TERMINATE;
+            case "drop" -> ConcurrentWebSocketSessionDecorator.OverflowStrategy.DROP;
+            default -> throw new IllegalStateException("Unknown websocket.transport.slow-consumer-policy '" + slowConsumerPolicy + "', expected evict or drop");
+        };
+        this.inboundExecutor = boundedExecutor("inbound", inboundPoolSize, inboundQueueCapacity, meterRegistry);
+        this.outboundExecutor = boundedExecutor("outbound", outboundPoolSize, outboundQueueCapacity, meterRegistry);
+        this.sendTimeLimitMs = sendTimeLimitMs;
+        this.sendBufferSizeLimitBytes = sendBufferSizeLimitKb * 1024;
+        this.messageSizeLimitBytes = messageSizeLimitKb * 1024;
+        this.slowConsumerPolicy = slowConsumerPolicy;
+        this.evictedSessions = Counter.builder("websocket.sessions.evicted")
+            .description("WebSocket sessions closed because the client did not keep up with outgoing frames")
+            .register(meterRegistry);
+    }
+
+    // Пул фиксированного размера с ограниченной очередью; переполнение считается и отклоняется (AbortPolicy)
+    private static ThreadPoolTaskExecutor boundedExecutor(String channel, int poolSize, int queueCapacity, MeterRegistry meterRegistry) {
+        Counter rejected = Counter.builder("websocket.channel.rejected")
+            .tag("channel", channel)
+            .description("STOMP messages rejected because the channel queue was full")
+            .register(meterRegistry);
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setRejectedExecutionHandler((task, pool) -> {
+            rejected.increment();
+            throw new RejectedExecutionException("WebSocket " + channel + " channel queue is full (" + queueCapacity + ")");
+        });
+        Gauge.builder("websocket.channel.queue", executor, ThreadPoolTaskExecutor::getQueueSize)
+            .tag("channel", channel)
+            .description("STOMP messages waiting for a channel thread")
+            .register(meterRegistry);
+        Gauge.builder("websocket.channel.active", executor, ThreadPoolTaskExecutor::getActiveCount)
+            .tag("channel", channel)
+            .description("Channel threads currently handling a message")
+            .register(meterRegistry);
+        return executor;
+    }
+
+    @Override
+    protected void configureClientInboundChannel(ChannelRegistration registration) {
+        super.configureClientInboundChannel(registration);
+        registration.taskExecutor(inboundExecutor);
+    }
+
+    @Override
+    protected void configureClientOutboundChannel(ChannelRegistration registration) {
+        super.configureClientOutboundChannel(registration);
+        registration.taskExecutor(outboundExecutor);
+    }
+
+    @Override
+    protected void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        super.configureWebSocketTransport(registration);
+        registration.setSendTimeLimit(sendTimeLimitMs)
+            .setSendBufferSizeLimit(sendBufferSizeLimitBytes)
+            .setMessageSizeLimit(messageSizeLimitBytes);
+        logger.info("WebSocket transport: send buffer {} KB, send time limit {} ms, slow consumers: {}",
+            sendBufferSizeLimitBytes / 1024, sendTimeLimitMs, slowConsumerPolicy);
+    }
+
+    // Тот же обработчик, что в базовом классе, но буфер сессии переполняется по slow-consumer-policy, а выселения считаются
+    @Override
+    @Bean
+    public WebSocketHandler subProtocolWebSocketHandler(AbstractSubscribableChannel clientInboundChannel,
+                                                        AbstractSubscribableChannel clientOutboundChannel) {
+        SubProtocolWebSocketHandler handler = new SubProtocolWebSocketHandler(clientInboundChannel, clientOutboundChannel) {
+            @Override
+            protected WebSocketSession decorateSession(WebSocketSession session) {
+                return new ConcurrentWebSocketSessionDecorator(session, getSendTimeLimit(), getSendBufferSizeLimit(), overflowStrategy);
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                if (CloseStatus.SESSION_NOT_RELIABLE.equals(closeStatus)) {
+                    evictedSessions.increment();
+                    logger.warn("WebSocket session {} evicted as a slow consumer", session.getId());
+                }
+                super.afterConnectionClosed(session, closeStatus);
+            }
+        };
+        handler.setPhase(getPhase());
+        return handler;
+    }
+}
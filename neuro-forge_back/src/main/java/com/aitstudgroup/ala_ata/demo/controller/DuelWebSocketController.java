@@ -6,7 +6,10 @@ import org.springframework.stereotype.Controller;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.handler.annotation.Header;
 
+import com.aitstudgroup.ala_ata.demo.service.GameStateBroadcaster;
+import com.aitstudgroup.ala_ata.demo.service.MatchMessageDispatcher;
 import com.aitstudgroup.ala_ata.demo.service.MatchService;
 import com.aitstudgroup.ala_ata.demo.service.PlayerService;
 import com.aitstudgroup.ala_ata.demo.service.TranslationBattleService;
@@ -17,6 +20,7 @@ import com.aitstudgroup.ala_ata.demo.model.Match;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
 
 @Controller
 public class DuelWebSocketController {
@@ -27,18 +31,24 @@ public class DuelWebSocketController {
     private final PlayerService playerService;
     private final TranslationBattleService translationBattleService;
     private final OptimizationRallyService optimizationRallyService;
+    private final GameStateBroadcaster gameStateBroadcaster;
+    private final MatchMessageDispatcher matchMessageDispatcher;
 
     @Autowired
     public DuelWebSocketController(SimpMessagingTemplate messagingTemplate,
                                  MatchService matchService,
                                  PlayerService playerService,
                                  TranslationBattleService translationBattleService,
-                                 OptimizationRallyService optimizationRallyService) {
+                                 OptimizationRallyService optimizationRallyService,
+                                 GameStateBroadcaster gameStateBroadcaster,
+                                 MatchMessageDispatcher matchMessageDispatcher) {
         this.messagingTemplate = messagingTemplate;
         this.matchService = matchService;
         this.playerService = playerService;
         this.translationBattleService = translationBattleService;
         this.optimizationRallyService = optimizationRallyService;
+        this.gameStateBroadcaster = gameStateBroadcaster;
+        this.matchMessageDispatcher = matchMessageDispatcher;
     }
 
     @MessageMapping("/duel/{matchId}/join")
@@ -73,26 +83,35 @@ public class DuelWebSocketController {
     }
 */
 
-    // Endpoint for Optimization Rally code submission
+    // Endpoint for Optimization Rally code submission (evaluation is queued in EvaluationPipeline, never run on this thread).
+    // Порядок - по игроку; слот диспетчера освобождается, как только шард принял отправку, оценка идет уже без него
     @MessageMapping("/duel/{matchId}/optimization/submit")
-    public void handleOptimizationSubmission(@DestinationVariable Long matchId, @Payload OptimizationSubmissionPayload payload) {
+    public Mono<Void> handleOptimizationSubmission(@DestinationVariable Long matchId, @Payload OptimizationSubmissionPayload payload,
+                                                   @Header("simpSessionId") String sessionId) {
         logger.info("Received optimization submission for match {}: {}", matchId, payload);
-        try {
-            optimizationRallyService.handlePlayerCodeSubmission(
-                matchId, 
-                payload.getUserId(), 
-                payload.getCode(), 
-                payload.getStep()
-            )
-            .subscribe(
-                updatedState -> logger.debug("Optimization submission processed for match {}, new state: {}", matchId, updatedState.getGameStatus()),
-                error -> logger.error("Error processing optimization submission for match " + matchId + ": " + error.getMessage(), error)
-            );
-        } catch (Exception e) {
-            logger.error("Immediate error handling optimization submission for match {} in controller: {}", matchId, e.getMessage(), e);
-            // Optionally send an error message back to the specific user if possible and desired
-            // messagingTemplate.convertAndSendToUser(userPrincipal.getName(), "/queue/errors", "Error processing your submission.");
+        return matchMessageDispatcher.dispatch(MatchMessageDispatcher.playerKey(matchId, payload.getUserId()), "optimization.submit", sessionId,
+                () -> optimizationRallyService.handlePlayerCodeSubmission(
+                    matchId, 
+                    payload.getUserId(), 
+                    payload.getCode(), 
+                    payload.getStep()
+                ))
+            .doOnNext(updatedState -> logger.debug("Optimization submission accepted for match {}, state: {}", matchId, updatedState.getGameStatus()))
+            .onErrorResume(error -> {
+                logger.error("Error processing optimization submission for match " + matchId + ": " + error.getMessage(), error);
+                return Mono.empty();
+            })
+            .then();
+    }
+
+    // Клиент пропустил версию состояния (дельта не легла): переслать последнее состояние снимком
+    @MessageMapping("/duel/{matchId}/{game}/resync")
+    public void handleStateResync(@DestinationVariable Long matchId, @DestinationVariable String game) {
+        if (!"optimization".equals(game) && !"translation".equals(game)) {
+            logger.warn("Resync requested for unknown game '{}' in match {}", game, matchId);
+            return;
         }
+        gameStateBroadcaster.resync("/topic/duel/" + matchId + "/" + game + "/state");
     }
 
     /**
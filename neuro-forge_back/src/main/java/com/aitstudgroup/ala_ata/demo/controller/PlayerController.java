@@ -50,10 +50,10 @@ public class PlayerController {
     public Mono<ResponseEntity<AuthenticationResponse>> login(@RequestBody LoginRequest request) {
         return playerService.authenticatePlayer(request.getUsername(), request.getPassword())
             .map(player -> {
-                // Return a dummy token instead of JWT
-                String dummyToken = "dummy-auth-token-" + player.getId();
+                // JWT: its subject (player id) names the player's STOMP session for /user/queue/... notifications
+                String token = jwtService.generateToken(player);
                 PlayerResponse pr = convertToPlayerResponse(player);
-                AuthenticationResponse authResponse = new AuthenticationResponse(dummyToken, pr);
+                AuthenticationResponse authResponse = new AuthenticationResponse(token, pr);
                 return ResponseEntity.ok(authResponse);
             })
             .defaultIfEmpty(ResponseEntity.status(HttpStatus.UNAUTHORIZED).build());
@@ -0,0 +1,45 @@
+package com.aitstudgroup.ala_ata.demo.dto;
+
+import java.time.Instant;
+
+import com.aitstudgroup.ala_ata.demo.model.Match;
+
+// Уведомление о новом матче: без matchData (полное состояние клиент берет по id)
+public class MatchSummaryResponse {
+    private Long id;
+    private Long player1Id;
+    private Long player2Id;
+    private String matchType;
+    private Instant startedAt;
+
+    public MatchSummaryResponse(Match match) {
+        if (match != null) {
+            this.id = match.getId();
+            this.player1Id = match.getPlayer1Id();
+            this.player2Id = match.getPlayer2Id();
+            this.matchType = match.getMatchType();
+            this.startedAt = match.getStartedAt();
+        }
+    }
+
+    // Геттеры
+    public Long getId() {
+        return id;
+    }
+
+    public Long getPlayer1Id() {
+        return player1Id;
+    }
+
+    public Long getPlayer2Id() {
+        return player2Id;
+    }
+
+    public String getMatchType() {
+        return matchType;
+    }
+
+    public Instant getStartedAt() {
+        return startedAt;
+    }
+}
@@ -0,0 +1,83 @@
+package com.aitstudgroup.ala_ata.demo.model;
+
+import java.util.Arrays;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+// Результат прогона функции на входах растущего размера (одна точка на каждый завершенный размер)
+public class BenchmarkResult {
+    private final int[] inputSizes;
+    private final long[] nanos;
+    private final long[] allocatedBytes;
+    private final String complexity;
+    private final String error;
+
+    @JsonCreator
+    private BenchmarkResult(@JsonProperty("inputSizes") int[] inputSizes,
+                            @JsonProperty("nanos") long[] nanos,
+                            @JsonProperty("allocatedBytes") long[] allocatedBytes,
+                            @JsonProperty("complexity") String complexity,
+                            @JsonProperty("error") String error) {
+        this.inputSizes = inputSizes;
+        this.nanos = nanos;
+        this.allocatedBytes = allocatedBytes;
+        this.complexity = complexity;
+        this.error = error;
+    }
+
+    public static BenchmarkResult measured(int[] inputSizes, long[] nanos, long[] allocatedBytes, String complexity) {
+        return new BenchmarkResult(inputSizes, nanos, allocatedBytes, complexity, null);
+    }
+
+    public static BenchmarkResult failed(String error) {
+        return new BenchmarkResult(new int[0], new long[0], new long[0], null, error);
+    }
+
+    @JsonIgnore
+    public boolean isSuccessful() {
+        return error == null;
+    }
+
+    public int[] getInputSizes() {
+        return inputSizes;
+    }
+
+    public long[] getNanos() {
+        return nanos;
+    }
+
+    public long[] getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    public String getComplexity() {
+        return complexity;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    // Индекс самого большого размера, который измерен в обоих прогонах (-1, если общих нет)
+    public int largestCommonPoint(BenchmarkResult other) {
+        for (int i = inputSizes.length - 1; i >= 0; i--) {
+            if (i < other.inputSizes.length && other.inputSizes[i] == inputSizes[i]) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public String toString() {
+        return "BenchmarkResult{" +
+                "inputSizes=" + Arrays.toString(inputSizes) +
+                ", nanos=" + Arrays.toString(nanos) +
+                ", allocatedBytes=" + Arrays.toString(allocatedBytes) +
+                ", complexity='" + complexity + '\'' +
+                ", error='" + error + '\'' +
+                '}';
+    }
+}
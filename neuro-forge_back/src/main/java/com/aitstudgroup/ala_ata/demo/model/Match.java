@@ -3,9 +3,12 @@ package com.aitstudgroup.ala_ata.demo.model;
 import java.time.Instant;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.ReadOnlyProperty;
 import org.springframework.data.relational.core.mapping.Column;
 import org.springframework.data.relational.core.mapping.Table;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 @Table("matches")
 public class Match {
     @Id
@@ -43,6 +46,10 @@ public class Match {
     
     @Column("match_data")
     private String matchData; // JSONB с детальной статистикой матча
+
+    @ReadOnlyProperty
+    @Column("match_data_version")
+    private long matchDataVersion; // Меняется только запросами MatchRepository, save() его не пишет
     
     // Getters
     public Long getId() {
@@ -92,6 +99,11 @@ public class Match {
     public String getMatchData() {
         return matchData;
     }
+
+    @JsonIgnore // Служебная версия write-behind, клиентам не нужна
+    public long getMatchDataVersion() {
+        return matchDataVersion;
+    }
     
     // Setters
     public void setId(Long id) {
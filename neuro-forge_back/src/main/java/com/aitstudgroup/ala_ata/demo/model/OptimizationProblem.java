@@ -0,0 +1,53 @@
+package com.aitstudgroup.ala_ata.demo.model;
+
+// Задача Optimization Rally из каталога: медленный исходник, быстрый эталон и генератор входов
+public class OptimizationProblem {
+    private final String id;
+    private final String description;
+    private final int timeSteps;
+    private final String originalCode;
+    private final String referenceCode;
+    private final String inputGenerator; // JS-выражение (n, random) => массив аргументов функции
+
+    public OptimizationProblem(String id, String description, int timeSteps,
+                               String originalCode, String referenceCode, String inputGenerator) {
+        this.id = id;
+        this.description = description;
+        this.timeSteps = timeSteps;
+        this.originalCode = originalCode;
+        this.referenceCode = referenceCode;
+        this.inputGenerator = inputGenerator;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public int getTimeSteps() {
+        return timeSteps;
+    }
+
+    public String getOriginalCode() {
+        return originalCode;
+    }
+
+    public String getReferenceCode() {
+        return referenceCode;
+    }
+
+    public String getInputGenerator() {
+        return inputGenerator;
+    }
+
+    @Override
+    public String toString() {
+        return "OptimizationProblem{" +
+                "id='" + id + '\'' +
+                ", timeSteps=" + timeSteps +
+                '}';
+    }
+}
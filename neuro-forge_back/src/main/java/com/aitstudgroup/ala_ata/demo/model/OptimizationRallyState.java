@@ -14,6 +14,7 @@ public class OptimizationRallyState {
         GAME_OVER
     }
 
+    private String problemId; // Задача из каталога (null у матчей, созданных до каталога - это bubble-sort)
     private String problemDescription;
     private String originalCode;
     private int timeSteps; // Total number of optimization rounds/steps
@@ -24,16 +25,28 @@ public class OptimizationRallyState {
     private Long lastSubmittingPlayerId; // To track whose submission completed a round
     private Long player1Id; // Store player IDs for context
     private Long player2Id;
+    private List<Long> evaluatingPlayerIds; // Submissions accepted for the current step, evaluation still running
+    private Long rejectedPlayerId; // Last player whose submission was rejected (e.g. evaluator busy)
+    private String rejectionReason; // BUSY or EVALUATION_FAILED
 
     // Constructors
     public OptimizationRallyState() {
         this.player1Progress = new ArrayList<>();
         this.player2Progress = new ArrayList<>();
+        this.evaluatingPlayerIds = new ArrayList<>();
         this.gameStatus = GameStatus.NOT_STARTED;
         this.currentStep = 0; // Or 1 if rounds are 1-indexed from start
     }
 
     // Getters and Setters
+    public String getProblemId() {
+        return problemId;
+    }
+
+    public void setProblemId(String problemId) {
+        this.problemId = problemId;
+    }
+
     public String getProblemDescription() {
         return problemDescription;
     }
@@ -114,10 +127,35 @@ public class OptimizationRallyState {
         this.player2Id = player2Id;
     }
 
+    public List<Long> getEvaluatingPlayerIds() {
+        return evaluatingPlayerIds;
+    }
+
+    public void setEvaluatingPlayerIds(List<Long> evaluatingPlayerIds) {
+        this.evaluatingPlayerIds = evaluatingPlayerIds;
+    }
+
+    public Long getRejectedPlayerId() {
+        return rejectedPlayerId;
+    }
+
+    public void setRejectedPlayerId(Long rejectedPlayerId) {
+        this.rejectedPlayerId = rejectedPlayerId;
+    }
+
+    public String getRejectionReason() {
+        return rejectionReason;
+    }
+
+    public void setRejectionReason(String rejectionReason) {
+        this.rejectionReason = rejectionReason;
+    }
+
     @Override
     public String toString() {
         return "OptimizationRallyState{" +
-                "problemDescription='" + problemDescription + "\'" +
+                "problemId='" + problemId + "\'" +
+                ", problemDescription='" + problemDescription + "\'" +
                 ", originalCode='<omitted>" +
                 ", timeSteps=" + timeSteps +
                 ", currentStep=" + currentStep +
@@ -127,6 +165,8 @@ public class OptimizationRallyState {
                 ", lastSubmittingPlayerId=" + lastSubmittingPlayerId +
                 ", player1Id=" + player1Id +
                 ", player2Id=" + player2Id +
+                ", evaluatingPlayerIds=" + evaluatingPlayerIds +
+                ", rejectedPlayerId=" + rejectedPlayerId +
                 '}';
     }
 } 
\ No newline at end of file
@@ -0,0 +1,38 @@
+package com.aitstudgroup.ala_ata.demo.model;
+
+// Пара записей очереди, которые подбор решил свести в один матч
+public class Pairing {
+    private final MatchmakingQueueEntry first;
+    private final MatchmakingQueueEntry second;
+
+    public Pairing(MatchmakingQueueEntry first, MatchmakingQueueEntry second) {
+        this.first = first;
+        this.second = second;
+    }
+
+    public MatchmakingQueueEntry getFirst() {
+        return first;
+    }
+
+    public MatchmakingQueueEntry getSecond() {
+        return second;
+    }
+
+    public String getMatchType() {
+        return first.getMatchType();
+    }
+
+    public int getEloGap() {
+        return Math.abs(first.getEloRating() - second.getEloRating());
+    }
+
+    @Override
+    public String toString() {
+        return "Pairing{" +
+                "first=" + first.getPlayerId() +
+                ", second=" + second.getPlayerId() +
+                ", matchType='" + first.getMatchType() + '\'' +
+                ", eloGap=" + getEloGap() +
+                '}';
+    }
+}
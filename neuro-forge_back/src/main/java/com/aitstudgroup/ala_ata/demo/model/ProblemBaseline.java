@@ -0,0 +1,69 @@
+package com.aitstudgroup.ala_ata.demo.model;
+
+import java.time.Instant;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+@Table("optimization_problem_baselines")
+public class ProblemBaseline {
+    @Id
+    @Column("problem_id")
+    private String problemId;
+
+    @Column("content_hash")
+    private String contentHash; // Хэш кода задачи и харнесса, по которому замеры считаются актуальными
+
+    @Column("original_result")
+    private String originalResult; // BenchmarkResult исходного кода в JSON
+
+    @Column("reference_result")
+    private String referenceResult; // BenchmarkResult эталонного решения в JSON
+
+    @Column("measured_at")
+    private Instant measuredAt;
+
+    public ProblemBaseline() {
+    }
+
+    public String getProblemId() {
+        return problemId;
+    }
+
+    public void setProblemId(String problemId) {
+        this.problemId = problemId;
+    }
+
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    public String getOriginalResult() {
+        return originalResult;
+    }
+
+    public void setOriginalResult(String originalResult) {
+        this.originalResult = originalResult;
+    }
+
+    public String getReferenceResult() {
+        return referenceResult;
+    }
+
+    public void setReferenceResult(String referenceResult) {
+        this.referenceResult = referenceResult;
+    }
+
+    public Instant getMeasuredAt() {
+        return measuredAt;
+    }
+
+    public void setMeasuredAt(Instant measuredAt) {
+        this.measuredAt = measuredAt;
+    }
+}
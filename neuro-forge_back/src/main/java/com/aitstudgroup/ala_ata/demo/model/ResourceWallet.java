@@ -1,5 +1,7 @@
 package com.aitstudgroup.ala_ata.demo.model;
 
+import java.time.Instant;
+
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.Version;
 import org.springframework.data.relational.core.mapping.Column;
@@ -22,6 +24,12 @@ public class ResourceWallet {
     @Version
     private Long version; // Для оптимистических блокировок
     
+    @Column("income_per_minute")
+    private Integer incomePerMinute = 0; // Суммарный доход развернутых моделей, кредитов в минуту
+    
+    @Column("last_accrued_at")
+    private Instant lastAccruedAt; // Доход до этого момента уже начислен в cloudCredits
+    
     // Getters
     public Long getId() {
         return id;
@@ -43,6 +51,14 @@ public class ResourceWallet {
         return version;
     }
     
+    public Integer getIncomePerMinute() {
+        return incomePerMinute;
+    }
+    
+    public Instant getLastAccruedAt() {
+        return lastAccruedAt;
+    }
+    
     // Setters
     public void setId(Long id) {
         this.id = id;
@@ -63,4 +79,12 @@ public class ResourceWallet {
     public void setVersion(Long version) {
         this.version = version;
     }
+    
+    public void setIncomePerMinute(Integer incomePerMinute) {
+        this.incomePerMinute = incomePerMinute;
+    }
+    
+    public void setLastAccruedAt(Instant lastAccruedAt) {
+        this.lastAccruedAt = lastAccruedAt;
+    }
 }
\ No newline at end of file
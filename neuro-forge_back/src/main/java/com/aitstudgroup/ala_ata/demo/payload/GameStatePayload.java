@@ -1,13 +1,21 @@
 package com.aitstudgroup.ala_ata.demo.payload;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+@JsonIgnoreProperties(ignoreUnknown = true) // match_data старых матчей еще содержит полные фразы (phrases)
 public class GameStatePayload {
     private String gameType;
     private int totalRounds;
     private int currentRound;
-    private List<Map<String, String>> phrases; // List of phrase objects
+    private List<Integer> phraseIds; // Фразы матча из PhraseBank, по одной на раунд
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Map<String, Object> currentPhrase; // Only in broadcasts during a round, never stored in match_data
     private List<Map<String, Object>> roundsData; // List of round results
     private int player1GameScore;
     private int player2GameScore;
@@ -20,6 +28,25 @@ public class GameStatePayload {
 
     public GameStatePayload() {}
 
+    // Снимок состояния для отправки клиентам, пока живое состояние продолжает меняться
+    public GameStatePayload(GameStatePayload other) {
+        this.gameType = other.gameType;
+        this.totalRounds = other.totalRounds;
+        this.currentRound = other.currentRound;
+        this.phraseIds = other.phraseIds != null ? new ArrayList<>(other.phraseIds) : null;
+        this.currentPhrase = other.currentPhrase;
+        if (other.roundsData != null) {
+            this.roundsData = new ArrayList<>(other.roundsData.size());
+            other.roundsData.forEach(round -> this.roundsData.add(new HashMap<>(round)));
+        }
+        this.player1GameScore = other.player1GameScore;
+        this.player2GameScore = other.player2GameScore;
+        this.currentPhraseIndex = other.currentPhraseIndex;
+        this.roundStartTime = other.roundStartTime;
+        this.roundTimeLimit = other.roundTimeLimit;
+        this.gameState = other.gameState;
+    }
+
     public String getGameType() {
         return gameType;
     }
@@ -44,12 +71,20 @@ public class GameStatePayload {
         this.currentRound = currentRound;
     }
 
-    public List<Map<String, String>> getPhrases() {
-        return phrases;
+    public List<Integer> getPhraseIds() {
+        return phraseIds;
+    }
+
+    public void setPhraseIds(List<Integer> phraseIds) {
+        this.phraseIds = phraseIds;
+    }
+
+    public Map<String, Object> getCurrentPhrase() {
+        return currentPhrase;
     }
 
-    public void setPhrases(List<Map<String, String>> phrases) {
-        this.phrases = phrases;
+    public void setCurrentPhrase(Map<String, Object> currentPhrase) {
+        this.currentPhrase = currentPhrase;
     }
 
     public List<Map<String, Object>> getRoundsData() {
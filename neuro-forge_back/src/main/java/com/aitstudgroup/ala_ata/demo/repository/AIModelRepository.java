@@ -17,15 +17,19 @@ public interface AIModelRepository extends ReactiveCrudRepository<AIModel, Long>
     // Найти все развернутые модели игрока
     Flux<AIModel> findByPlayerIdAndIsDeployedTrue(Long playerId);
     
-    // Найти все развернутые модели (для пассивного дохода)
+    // Найти все развернутые модели
     Flux<AIModel> findByIsDeployedTrue();
+
+    // Развернутые модели, доход которых еще не посчитан (PassiveIncomeTask пересчитывает их перед начислением)
+    @Query("SELECT * FROM ai_model WHERE deployed = TRUE AND COALESCE(credits_per_minute, 0) <= 0")
+    Flux<AIModel> findDeployedWithoutIncome();
     
     // Обновить показатель популярности модели
     @Query("UPDATE ai_models SET popularity_score = popularity_score + :delta WHERE id = :modelId")
     Mono<Void> updatePopularityScore(Long modelId, Integer delta);
     
     // Обновить показатель кредитов в минуту
-    @Query("UPDATE ai_models SET credits_per_minute = :creditsPerMinute WHERE id = :modelId")
+    @Query("UPDATE ai_model SET credits_per_minute = :creditsPerMinute WHERE id = :modelId")
     Mono<Void> updateCreditsPerMinute(Long modelId, Integer creditsPerMinute);
     
     // Развернуть/снять модель
@@ -0,0 +1,13 @@
+package com.aitstudgroup.ala_ata.demo.repository;
+
+import java.util.List;
+
+import com.aitstudgroup.ala_ata.demo.model.Match;
+
+import reactor.core.publisher.Flux;
+
+// Пакетные операции над matches, которых нет в ReactiveCrudRepository
+public interface MatchBatchRepository {
+    // Вставить все матчи multi-row INSERT'ом; возвращает их же с проставленными id, по чанку после завершения его запроса
+    Flux<Match> insertAll(List<Match> matches);
+}
@@ -0,0 +1,81 @@
+package com.aitstudgroup.ala_ata.demo.repository;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.r2dbc.core.DatabaseClient;
+
+import com.aitstudgroup.ala_ata.demo.model.Match;
+
+import reactor.core.publisher.Flux;
+
+/**
+ * Multi-row INSERT ... RETURNING for matches: one statement (one round-trip) per chunk
+ * instead of one save per match. Rows are mapped back by player1_id, which is unique
+ * within a batch because a player can only be in one pairing.
+ * Outside a transaction each chunk commits on its own, and its matches are emitted only after
+ * its statement has completed, so every emitted match is committed.
+ */
+public class MatchBatchRepositoryImpl implements MatchBatchRepository {
+    private static final int ROWS_PER_STATEMENT = 1000; // 7 params per row, well under the 65535 bind limit
+
+    private final DatabaseClient databaseClient;
+
+    public MatchBatchRepositoryImpl(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    @Override
+    public Flux<Match> insertAll(List<Match> matches) {
+        if (matches.isEmpty()) {
+            return Flux.empty();
+        }
+        return Flux.range(0, (matches.size() + ROWS_PER_STATEMENT - 1) / ROWS_PER_STATEMENT)
+            .concatMap(chunk -> insertChunk(matches.subList(
+                chunk * ROWS_PER_STATEMENT,
+                Math.min(matches.size(), (chunk + 1) * ROWS_PER_STATEMENT))));
+    }
+
+    private Flux<Match> insertChunk(List<Match> chunk) {
+        StringBuilder sql = new StringBuilder(
+            "INSERT INTO matches (player1_id, player2_id, player1_model_id, player2_model_id, match_type, started_at, match_data) VALUES ");
+        Map<Long, Match> byPlayer1 = new HashMap<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            if (i > 0) sql.append(", ");
+            sql.append("(:p1_").append(i).append(", :p2_").append(i)
+               .append(", :m1_").append(i).append(", :m2_").append(i)
+               .append(", :type_").append(i).append(", :started_").append(i)
+               .append(", :data_").append(i).append(')');
+            byPlayer1.put(chunk.get(i).getPlayer1Id(), chunk.get(i));
+        }
+        sql.append(" RETURNING id, player1_id");
+
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql.toString());
+        for (int i = 0; i < chunk.size(); i++) {
+            Match match = chunk.get(i);
+            spec = spec.bind("p1_" + i, match.getPlayer1Id())
+                       .bind("p2_" + i, match.getPlayer2Id());
+            spec = bindNullable(spec, "m1_" + i, match.getPlayer1ModelId(), Long.class);
+            spec = bindNullable(spec, "m2_" + i, match.getPlayer2ModelId(), Long.class);
+            spec = spec.bind("type_" + i, match.getMatchType());
+            spec = bindNullable(spec, "started_" + i, match.getStartedAt(), Instant.class);
+            spec = bindNullable(spec, "data_" + i, match.getMatchData(), String.class);
+        }
+
+        return spec.map((row, metadata) -> {
+                Match match = byPlayer1.get(row.get("player1_id", Long.class));
+                match.setId(row.get("id", Long.class));
+                return match;
+            })
+            .all()
+            .collectList() // Строки RETURNING приходят до конца запроса: отдаем их, когда он завершился
+            .flatMapIterable(inserted -> inserted);
+    }
+
+    private static <T> DatabaseClient.GenericExecuteSpec bindNullable(DatabaseClient.GenericExecuteSpec spec,
+                                                                       String name, T value, Class<T> type) {
+        return value != null ? spec.bind(name, value) : spec.bindNull(name, type);
+    }
+}
@@ -2,6 +2,7 @@ package com.aitstudgroup.ala_ata.demo.repository;
 
 import java.time.Instant;
 
+import org.springframework.data.r2dbc.repository.Modifying;
 import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 
@@ -10,7 +11,10 @@ import com.aitstudgroup.ala_ata.demo.model.Match;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-public interface MatchRepository extends ReactiveCrudRepository<Match, Long> {
+public interface MatchRepository extends ReactiveCrudRepository<Match, Long>, MatchBatchRepository {
+    // match_data_version итоговых данных матча: больше ее write-behind ничего не запишет
+    long FINAL_MATCH_DATA_VERSION = Long.MAX_VALUE;
+
     // Найти матчи игрока (где он был участником)
     @Query("SELECT * FROM matches WHERE player1_id = :playerId OR player2_id = :playerId " +
            "ORDER BY started_at DESC LIMIT :limit")
@@ -26,6 +30,10 @@ public interface MatchRepository extends ReactiveCrudRepository<Match, Long> {
     
     // Найти матчи по типу
     Flux<Match> findByMatchTypeOrderByStartedAtDesc(String matchType);
+
+    // Незавершенные матчи типа (тип без учета регистра)
+    @Query("SELECT * FROM matches WHERE UPPER(match_type) = UPPER(:matchType) AND ended_at IS NULL")
+    Flux<Match> findActiveByMatchType(String matchType);
     
     // Завершить матч
     @Query("UPDATE matches SET ended_at = :endTime, winner_id = :winnerId, " +
@@ -34,9 +42,21 @@ public interface MatchRepository extends ReactiveCrudRepository<Match, Long> {
     Mono<Integer> finishMatch(Long matchId, Long winnerId, Integer player1Score, 
                             Integer player2Score, Instant endTime);
     
-    // Добавить данные о матче
-    @Query("UPDATE matches SET match_data = :matchData WHERE id = :matchId")
+    // Итоговые данные матча; запоздавший write-behind живого состояния их уже не перезапишет
+    @Modifying
+    @Query("UPDATE matches SET match_data = :matchData, match_data_version = " + FINAL_MATCH_DATA_VERSION + " WHERE id = :matchId")
     Mono<Integer> updateMatchData(Long matchId, String matchData);
+
+    // Закрыть match_data для write-behind перед итоговой записью другим путем (save)
+    @Modifying
+    @Query("UPDATE matches SET match_data_version = " + FINAL_MATCH_DATA_VERSION + " WHERE id = :matchId")
+    Mono<Integer> fenceMatchData(Long matchId);
+
+    // Write-behind живого состояния: пишется, только если в строке более старая версия (0 - запись устарела)
+    @Modifying
+    @Query("UPDATE matches SET match_data = :matchData, match_data_version = :version " +
+           "WHERE id = :matchId AND match_data_version < :version")
+    Mono<Integer> writeBehindMatchData(Long matchId, String matchData, long version);
     
     // Статистика побед игрока
     @Query("SELECT COUNT(*) FROM matches WHERE winner_id = :playerId")
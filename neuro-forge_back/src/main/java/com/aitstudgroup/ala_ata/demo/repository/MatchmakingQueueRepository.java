@@ -1,11 +1,13 @@
 package com.aitstudgroup.ala_ata.demo.repository;
 
 import com.aitstudgroup.ala_ata.demo.model.MatchmakingQueueEntry;
+import org.springframework.data.r2dbc.repository.Modifying;
 import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import java.time.Instant;
+import java.util.Collection;
 
 public interface MatchmakingQueueRepository extends ReactiveCrudRepository<MatchmakingQueueEntry, Long> {
 
@@ -22,10 +24,58 @@ public interface MatchmakingQueueRepository extends ReactiveCrudRepository<Match
     Mono<MatchmakingQueueEntry> findByPlayerId(Long playerId);
 
     // Update status of a queue entry
+    @Modifying
     @Query("UPDATE matchmaking_queue SET status = :newStatus WHERE player_id = :playerId")
     Mono<Integer> updateStatusByPlayerId(Long playerId, String newStatus);
     
+    // Atomically claim both players of a pairing: SEARCHING -> MATCHED_PENDING_CONFIRMATION.
+    // Rows locked by a concurrent claim are skipped, and nothing is updated unless both rows
+    // are still SEARCHING, so the result is 2 on success and 0 otherwise.
+    @Modifying
+    @Query("WITH claimable AS (" +
+           "  SELECT player_id FROM matchmaking_queue " +
+           "  WHERE player_id IN (:firstPlayerId, :secondPlayerId) AND status = 'SEARCHING' " +
+           "  FOR UPDATE SKIP LOCKED" +
+           ") " +
+           "UPDATE matchmaking_queue q SET status = 'MATCHED_PENDING_CONFIRMATION', claimed_at = NOW() " +
+           "FROM claimable c " +
+           "WHERE q.player_id = c.player_id AND (SELECT COUNT(*) FROM claimable) = 2")
+    Mono<Integer> claimPair(Long firstPlayerId, Long secondPlayerId);
+
+    // Return claimed players to the search (e.g. when match creation failed)
+    @Modifying
+    @Query("UPDATE matchmaking_queue SET status = 'SEARCHING', claimed_at = NULL " +
+           "WHERE player_id IN (:playerIds) AND status = 'MATCHED_PENDING_CONFIRMATION'")
+    Mono<Integer> releaseClaims(Collection<Long> playerIds);
+
+    // Remove the rows of all matched players in one statement
+    @Modifying
+    @Query("DELETE FROM matchmaking_queue WHERE player_id IN (:playerIds)")
+    Mono<Integer> deleteByPlayerIds(Collection<Long> playerIds);
+
+    // Claims left behind by an instance that died between claiming and settling the pairing.
+    // If the match of this very claim exists, the player only missed the dequeue: drop the row.
+    // The match of a claim is an active match started after it against the claimed opponent, whose row
+    // was claimed by the same claimPair statement (same claimed_at). Any other match of the player does not count
+    @Modifying
+    @Query("DELETE FROM matchmaking_queue q " +
+           "WHERE q.status = 'MATCHED_PENDING_CONFIRMATION' AND q.claimed_at < :claimedBefore " +
+           "AND EXISTS (SELECT 1 FROM matches m " +
+           "            JOIN matchmaking_queue o ON o.player_id = CASE WHEN m.player1_id = q.player_id THEN m.player2_id ELSE m.player1_id END " +
+           "            WHERE (m.player1_id = q.player_id OR m.player2_id = q.player_id) AND m.ended_at IS NULL " +
+           "              AND m.started_at >= q.claimed_at " +
+           "              AND o.status = 'MATCHED_PENDING_CONFIRMATION' AND o.claimed_at = q.claimed_at)")
+    Mono<Integer> deleteStaleClaimsOfMatchedPlayers(Instant claimedBefore);
+
+    // The other stale claims (including ones without claimed_at) go back to the search; search_start_time is kept,
+    // so the queue timeout still applies
+    @Modifying
+    @Query("UPDATE matchmaking_queue SET status = 'SEARCHING', claimed_at = NULL " +
+           "WHERE status = 'MATCHED_PENDING_CONFIRMATION' AND (claimed_at IS NULL OR claimed_at < :claimedBefore)")
+    Mono<Integer> resetStaleClaims(Instant claimedBefore);
+
     // Remove players searching for too long (e.g., older than a certain timestamp)
+    @Modifying
     @Query("DELETE FROM matchmaking_queue WHERE status = 'SEARCHING' AND search_start_time < :timeoutTimestamp")
     Mono<Integer> deleteTimedOutEntries(Instant timeoutTimestamp);
 
@@ -0,0 +1,21 @@
+package com.aitstudgroup.ala_ata.demo.repository;
+
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+
+import com.aitstudgroup.ala_ata.demo.model.ProblemBaseline;
+
+import reactor.core.publisher.Mono;
+
+public interface ProblemBaselineRepository extends ReactiveCrudRepository<ProblemBaseline, String> {
+
+    // Ключ - строковый id задачи, поэтому save() не отличит вставку от обновления; пишем одним upsert
+    @Modifying
+    @Query("INSERT INTO optimization_problem_baselines (problem_id, content_hash, original_result, reference_result, measured_at) " +
+           "VALUES (:problemId, :contentHash, :originalResult, :referenceResult, CURRENT_TIMESTAMP) " +
+           "ON CONFLICT (problem_id) DO UPDATE SET content_hash = EXCLUDED.content_hash, " +
+           "original_result = EXCLUDED.original_result, reference_result = EXCLUDED.reference_result, " +
+           "measured_at = EXCLUDED.measured_at")
+    Mono<Integer> upsert(String problemId, String contentHash, String originalResult, String referenceResult);
+}
@@ -0,0 +1,33 @@
+package com.aitstudgroup.ala_ata.demo.repository;
+
+import java.time.Instant;
+import java.util.List;
+
+import reactor.core.publisher.Mono;
+
+// Журнал начислений кошельков (resource_ledger): пакетные вставки, свертка хвоста в колонки кошелька, удаление старых записей
+public interface ResourceLedgerRepository {
+    String CLOUD_CREDITS = "CLOUD_CREDITS";
+    String RESEARCH_POINTS = "RESEARCH_POINTS";
+
+    // Больше записей за одну вставку нельзя: она должна остаться одним оператором, чтобы пройти целиком или никак
+    int MAX_ENTRIES_PER_APPEND = 1000; // 4 params per row, well under the 65535 bind limit
+
+    // Вставить до MAX_ENTRIES_PER_APPEND записей одним многострочным INSERT; возвращает число вставленных
+    Mono<Long> appendAll(List<LedgerEntry> entries);
+
+    // Создать кошельки игрокам, у которых есть хвост, но нет кошелька: без кошелька записи не сворачиваются
+    Mono<Long> createWalletsForLedger(int initialCredits);
+
+    // Перенести в кошельки до limit самых старых несвернутых записей; возвращает число перенесенных
+    Mono<Long> foldLedgerChunk(int limit);
+
+    // Перенести в кошелек весь хвост одного игрока
+    Mono<Long> foldLedgerTail(Long playerId);
+
+    // Удалить до limit свернутых записей старше cutoff
+    Mono<Long> deleteFoldedBefore(Instant cutoff, int limit);
+
+    record LedgerEntry(Long playerId, String currency, int delta, String reason) {
+    }
+}
@@ -0,0 +1,133 @@
+package com.aitstudgroup.ala_ata.demo.repository;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.springframework.r2dbc.core.DatabaseClient;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * An append is one multi-row INSERT, so it commits all of its entries or none; callers split larger
+ * batches themselves (see ResourceLedger.flush) and can safely retry a failed append. A fold marks a set of unfolded entries as
+ * folded and adds their per-player sums to the wallet columns in the same statement, so a reader
+ * sees a credit either in the tail or in the columns, never in both. Folds that race for the same
+ * entries (the background chunk and a debit folding one player) skip what the other already took:
+ * FOR UPDATE SKIP LOCKED plus the NOT folded recheck. Entries of a player without a wallet wait in
+ * the tail until createWalletsForLedger makes one.
+ */
+public class ResourceLedgerRepositoryImpl implements ResourceLedgerRepository {
+    // %s - какие записи переносятся; last_accrued_at догоняет свернутый пассивный доход, как это делал тик
+    private static final String FOLD_SQL = """
+        WITH moved AS (
+            UPDATE resource_ledger l SET folded = TRUE
+            WHERE %s AND NOT l.folded
+            RETURNING l.player_id, l.currency, l.delta, l.reason, l.created_at
+        ), sums AS (
+            SELECT player_id,
+                   COALESCE(SUM(delta) FILTER (WHERE currency = 'CLOUD_CREDITS'), 0) AS credits,
+                   COALESCE(SUM(delta) FILTER (WHERE currency = 'RESEARCH_POINTS'), 0) AS points,
+                   MAX(created_at) FILTER (WHERE reason = 'passive-income') AS income_through
+            FROM moved
+            GROUP BY player_id
+        ), folded_wallets AS (
+            UPDATE resource_wallets w
+            SET cloud_credits = w.cloud_credits + sums.credits, research_points = w.research_points + sums.points,
+                last_accrued_at = GREATEST(w.last_accrued_at, sums.income_through), version = w.version + 1
+            FROM sums
+            WHERE w.player_id = sums.player_id
+        )
+        SELECT COUNT(*) AS entries_folded FROM moved
+        """;
+
+    private static final String FOLD_CHUNK_SQL = FOLD_SQL.formatted("""
+        l.id IN (
+                SELECT u.id FROM resource_ledger u
+                WHERE NOT u.folded AND EXISTS (SELECT 1 FROM resource_wallets w WHERE w.player_id = u.player_id)
+                ORDER BY u.id
+                LIMIT :limit
+                FOR UPDATE SKIP LOCKED)""");
+
+    private static final String FOLD_PLAYER_SQL = FOLD_SQL.formatted(
+        "l.player_id = :playerId AND EXISTS (SELECT 1 FROM resource_wallets w WHERE w.player_id = :playerId)");
+
+    private static final String CREATE_WALLETS_SQL = """
+        INSERT INTO resource_wallets (player_id, cloud_credits, research_points, income_per_minute)
+        SELECT t.player_id, :initialCredits, 0,
+               (SELECT COALESCE(SUM(m.credits_per_minute), 0) FROM ai_model m
+                WHERE m.player_id = t.player_id AND m.deployed = TRUE AND m.credits_per_minute > 0)
+        FROM (SELECT DISTINCT l.player_id FROM resource_ledger l
+              WHERE NOT l.folded AND NOT EXISTS (SELECT 1 FROM resource_wallets w WHERE w.player_id = l.player_id)) t
+        ON CONFLICT (player_id) DO NOTHING
+        """;
+
+    private static final String DELETE_FOLDED_SQL = """
+        DELETE FROM resource_ledger
+        WHERE id IN (SELECT id FROM resource_ledger WHERE folded AND created_at < :cutoff LIMIT :limit)
+        """;
+
+    private final DatabaseClient databaseClient;
+
+    public ResourceLedgerRepositoryImpl(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    @Override
+    public Mono<Long> appendAll(List<LedgerEntry> entries) {
+        if (entries.isEmpty()) {
+            return Mono.just(0L);
+        }
+        if (entries.size() > MAX_ENTRIES_PER_APPEND) {
+            return Mono.error(new IllegalArgumentException("At most " + MAX_ENTRIES_PER_APPEND + " ledger entries per append, got " + entries.size()));
+        }
+        StringBuilder sql = new StringBuilder("INSERT INTO resource_ledger (player_id, currency, delta, reason) VALUES ");
+        for (int i = 0; i < entries.size(); i++) {
+            if (i > 0) sql.append(", ");
+            sql.append("(:player_").append(i).append(", :currency_").append(i)
+               .append(", :delta_").append(i).append(", :reason_").append(i).append(')');
+        }
+
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql.toString());
+        for (int i = 0; i < entries.size(); i++) {
+            LedgerEntry entry = entries.get(i);
+            spec = spec.bind("player_" + i, entry.playerId())
+                       .bind("currency_" + i, entry.currency())
+                       .bind("delta_" + i, entry.delta())
+                       .bind("reason_" + i, entry.reason());
+        }
+        return spec.fetch().rowsUpdated();
+    }
+
+    @Override
+    public Mono<Long> createWalletsForLedger(int initialCredits) {
+        return databaseClient.sql(CREATE_WALLETS_SQL)
+            .bind("initialCredits", initialCredits)
+            .fetch()
+            .rowsUpdated();
+    }
+
+    @Override
+    public Mono<Long> foldLedgerChunk(int limit) {
+        return databaseClient.sql(FOLD_CHUNK_SQL)
+            .bind("limit", limit)
+            .map((row, metadata) -> row.get("entries_folded", Long.class))
+            .one();
+    }
+
+    @Override
+    public Mono<Long> foldLedgerTail(Long playerId) {
+        return databaseClient.sql(FOLD_PLAYER_SQL)
+            .bind("playerId", playerId)
+            .map((row, metadata) -> row.get("entries_folded", Long.class))
+            .one();
+    }
+
+    @Override
+    public Mono<Long> deleteFoldedBefore(Instant cutoff, int limit) {
+        return databaseClient.sql(DELETE_FOLDED_SQL)
+            .bind("cutoff", cutoff)
+            .bind("limit", limit)
+            .fetch()
+            .rowsUpdated();
+    }
+}
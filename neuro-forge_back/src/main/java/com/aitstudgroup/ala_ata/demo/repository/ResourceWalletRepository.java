@@ -1,6 +1,5 @@
 package com.aitstudgroup.ala_ata.demo.repository;
 
-import org.springframework.data.r2dbc.repository.Modifying;
 import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 
@@ -8,32 +7,67 @@ import com.aitstudgroup.ala_ata.demo.model.ResourceWallet;
 
 import reactor.core.publisher.Mono;
 
-public interface ResourceWalletRepository extends ReactiveCrudRepository<ResourceWallet, Long> {
-    // Найти кошелек по ID игрока
+public interface ResourceWalletRepository extends ReactiveCrudRepository<ResourceWallet, Long>, WalletIncomeRepository, ResourceLedgerRepository,
+                                                  WalletTransferRepository {
+    // Баланс с журналом: колонки кошелька (снимок) + несвернутые записи resource_ledger игрока (хвост).
+    // Такой кошелек только для чтения: save() записал бы хвост в колонки, и свертка добавила бы его второй раз
+    String WALLET_WITH_TAIL = "SELECT w.id, w.player_id, w.version, w.income_per_minute, w.last_accrued_at, " +
+           "(w.cloud_credits + COALESCE(t.credits, 0))::INTEGER AS cloud_credits, " +
+           "(w.research_points + COALESCE(t.points, 0))::INTEGER AS research_points " +
+           "FROM wallet w LEFT JOIN LATERAL (" +
+           "  SELECT SUM(l.delta) FILTER (WHERE l.currency = 'CLOUD_CREDITS') AS credits, " +
+           "  SUM(l.delta) FILTER (WHERE l.currency = 'RESEARCH_POINTS') AS points " +
+           "  FROM resource_ledger l WHERE l.player_id = w.player_id AND NOT l.folded) t ON TRUE";
+
+    // Найти кошелек по ID игрока (только снимок)
     Mono<ResourceWallet> findByPlayerId(Long playerId);
+
+    @Query("WITH wallet AS (SELECT * FROM resource_wallets WHERE player_id = :playerId) " + WALLET_WITH_TAIL)
+    Mono<ResourceWallet> findWithTailByPlayerId(Long playerId);
     
-    // Добавить кредиты (с оптимистичной блокировкой)
-    @Modifying
-    @Query("UPDATE resource_wallets SET cloud_credits = cloud_credits + :amount, version = version + 1 " +
-           "WHERE player_id = :playerId AND version = :currentVersion")
-    Mono<Integer> addCredits(Long playerId, Integer amount, Long currentVersion);
-    
-    // Попытка потратить кредиты (с проверкой достаточности средств)
-    @Modifying
+    // Списания - одно условное UPDATE снимка без чтения и без проверки версии: атомарно в самой БД (начисления идут в журнал).
+    // Пустой результат: кошелька нет или не хватает средств. version растет, чтобы save() со старой копией не затер изменение
     @Query("UPDATE resource_wallets SET cloud_credits = cloud_credits - :amount, version = version + 1 " +
-           "WHERE player_id = :playerId AND version = :currentVersion AND cloud_credits >= :amount")
-    Mono<Integer> spendCredits(Long playerId, Integer amount, Long currentVersion);
-    
-    // Аналогичные методы для research_points
-    @Modifying
-    @Query("UPDATE resource_wallets SET research_points = research_points + :amount, version = version + 1 " +
-           "WHERE player_id = :playerId AND version = :currentVersion")
-    Mono<Integer> addResearchPoints(Long playerId, Integer amount, Long currentVersion);
-    
-    @Modifying
+           "WHERE player_id = :playerId AND cloud_credits >= :amount RETURNING *")
+    Mono<ResourceWallet> debitCredits(Long playerId, Integer amount);
+
     @Query("UPDATE resource_wallets SET research_points = research_points - :amount, version = version + 1 " +
-           "WHERE player_id = :playerId AND version = :currentVersion AND research_points >= :amount")
-    Mono<Integer> spendResearchPoints(Long playerId, Integer amount, Long currentVersion);
+           "WHERE player_id = :playerId AND research_points >= :amount RETURNING *")
+    Mono<ResourceWallet> debitResearchPoints(Long playerId, Integer amount);
+    
+    // Ленивый доход (passive-income.mode=lazy): начисленное за целые минуты с last_accrued_at материализуется
+    // тем же запросом, что читает или списывает; accrued_minutes() - функция из schema.sql
+    @Query("WITH accrued AS (" +
+           "  UPDATE resource_wallets SET cloud_credits = cloud_credits + income_per_minute * accrued_minutes(last_accrued_at), " +
+           "  last_accrued_at = last_accrued_at + accrued_minutes(last_accrued_at) * INTERVAL '1 minute', version = version + 1 " +
+           "  WHERE player_id = :playerId AND income_per_minute > 0 AND accrued_minutes(last_accrued_at) > 0 RETURNING *), " +
+           "wallet AS (SELECT * FROM accrued " +
+           "  UNION ALL SELECT * FROM resource_wallets WHERE player_id = :playerId AND NOT EXISTS (SELECT 1 FROM accrued)) " +
+           WALLET_WITH_TAIL)
+    Mono<ResourceWallet> accrueAndFindWithTailByPlayerId(Long playerId);
+
+    @Query("UPDATE resource_wallets SET " +
+           "cloud_credits = cloud_credits + income_per_minute * accrued_minutes(last_accrued_at) - :amount, " +
+           "last_accrued_at = last_accrued_at + accrued_minutes(last_accrued_at) * INTERVAL '1 minute', version = version + 1 " +
+           "WHERE player_id = :playerId AND cloud_credits + income_per_minute * accrued_minutes(last_accrued_at) >= :amount RETURNING *")
+    Mono<ResourceWallet> accrueAndDebitCredits(Long playerId, Integer amount);
+
+    // Изменить ставку дохода на delta. В ленивом режиме сначала начисляется доход по старой ставке
+    @Query("UPDATE resource_wallets SET income_per_minute = GREATEST(income_per_minute + :delta, 0), version = version + 1 " +
+           "WHERE player_id = :playerId RETURNING *")
+    Mono<ResourceWallet> adjustIncomeRate(Long playerId, Integer delta);
+
+    @Query("UPDATE resource_wallets SET " +
+           "cloud_credits = cloud_credits + income_per_minute * accrued_minutes(last_accrued_at), " +
+           "last_accrued_at = last_accrued_at + accrued_minutes(last_accrued_at) * INTERVAL '1 minute', " +
+           "income_per_minute = GREATEST(income_per_minute + :delta, 0), version = version + 1 " +
+           "WHERE player_id = :playerId RETURNING *")
+    Mono<ResourceWallet> accrueAndAdjustIncomeRate(Long playerId, Integer delta);
+
+    // Текущая ставка игрока по его моделям - для нового кошелька
+    @Query("SELECT COALESCE(SUM(credits_per_minute), 0) FROM ai_model " +
+           "WHERE player_id = :playerId AND deployed = TRUE AND credits_per_minute > 0")
+    Mono<Long> sumDeployedIncome(Long playerId);
     
     // Создать кошелек для нового игрока 
     @Query("INSERT INTO resource_wallets (player_id, cloud_credits, research_points) VALUES " +
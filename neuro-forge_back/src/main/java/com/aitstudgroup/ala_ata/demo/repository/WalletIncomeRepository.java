@@ -0,0 +1,14 @@
+package com.aitstudgroup.ala_ata.demo.repository;
+
+import reactor.core.publisher.Mono;
+
+// Начисление пассивного дохода всем игрокам сразу, set-based, без чтения моделей в приложение
+public interface WalletIncomeRepository {
+    // Записать в журнал доход за минуту (SUM credits_per_minute развернутых моделей) игрокам с id > afterPlayerId,
+    // не больше chunkSize игроков за запрос; в кошельки его переносит свертка журнала (ResourceLedger)
+    Mono<IncomeChunk> creditPassiveIncomeChunk(long afterPlayerId, int chunkSize);
+
+    // lastPlayerId == null - игроков с доходом после afterPlayerId больше нет
+    record IncomeChunk(Long lastPlayerId, long walletsCredited, long creditsAdded) {
+    }
+}
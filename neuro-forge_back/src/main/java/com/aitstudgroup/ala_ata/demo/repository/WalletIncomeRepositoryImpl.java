@@ -0,0 +1,52 @@
+package com.aitstudgroup.ala_ata.demo.repository;
+
+import org.springframework.r2dbc.core.DatabaseClient;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * One statement per chunk of players: the income CTE sums credits_per_minute of deployed models
+ * per player (the partial index idx_ai_model_deployed_income lets Postgres walk it in player_id
+ * order and stop after chunkSize groups) and appends one resource_ledger entry per player. The
+ * tick takes no wallet row locks at all, so spends never wait for it; the entries reach the
+ * wallet columns with the next ledger fold, which also moves last_accrued_at past them, so
+ * switching to passive-income.mode=lazy does not credit those minutes again.
+ */
+public class WalletIncomeRepositoryImpl implements WalletIncomeRepository {
+    private static final String CREDIT_CHUNK_SQL = """
+        WITH income AS (
+            SELECT player_id, SUM(credits_per_minute) AS total
+            FROM ai_model
+            WHERE deployed = TRUE AND credits_per_minute > 0 AND player_id > :afterPlayerId
+            GROUP BY player_id
+            ORDER BY player_id
+            LIMIT :chunkSize
+        ), appended AS (
+            INSERT INTO resource_ledger (player_id, currency, delta, reason)
+            SELECT player_id, 'CLOUD_CREDITS', total, 'passive-income'
+            FROM income
+            RETURNING player_id
+        )
+        SELECT (SELECT MAX(player_id) FROM income) AS last_player_id,
+               (SELECT COUNT(*) FROM appended) AS wallets_credited,
+               (SELECT COALESCE(SUM(total), 0)::BIGINT FROM income) AS credits_added
+        """;
+
+    private final DatabaseClient databaseClient;
+
+    public WalletIncomeRepositoryImpl(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    @Override
+    public Mono<IncomeChunk> creditPassiveIncomeChunk(long afterPlayerId, int chunkSize) {
+        return databaseClient.sql(CREDIT_CHUNK_SQL)
+            .bind("afterPlayerId", afterPlayerId)
+            .bind("chunkSize", chunkSize)
+            .map((row, metadata) -> new IncomeChunk(
+                row.get("last_player_id", Long.class),
+                row.get("wallets_credited", Long.class),
+                row.get("credits_added", Long.class)))
+            .one();
+    }
+}
@@ -0,0 +1,16 @@
+package com.aitstudgroup.ala_ata.demo.repository;
+
+import java.util.List;
+
+import reactor.core.publisher.Flux;
+
+// Переводы кредитов между кошельками: списание с отправителей и запись получателям - одним запросом на пакет
+public interface WalletTransferRepository {
+    // Выполнить пакет переводов; возвращает индексы (в transfers) прошедших переводов. Переводы одного отправителя
+    // проходят все вместе или ни один (больше 16000 переводов от одного отправителя - IllegalArgumentException);
+    // accrueIncome - сначала начислить отправителю ленивый доход (passive-income.mode=lazy)
+    Flux<Integer> transferCredits(List<Transfer> transfers, String reason, boolean accrueIncome);
+
+    record Transfer(Long fromPlayerId, Long toPlayerId, int amount) {
+    }
+}
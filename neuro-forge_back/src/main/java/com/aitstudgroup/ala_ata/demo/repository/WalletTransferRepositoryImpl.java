@@ -0,0 +1,121 @@
+package com.aitstudgroup.ala_ata.demo.repository;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.r2dbc.core.DatabaseClient;
+
+import reactor.core.publisher.Flux;
+
+/**
+ * One statement per chunk of transfers. The senders' wallets are locked in player_id order
+ * (SELECT ... ORDER BY ... FOR UPDATE), so two batches with overlapping senders wait for each
+ * other instead of deadlocking; each sender is then debited its total with a balance check, and
+ * every transfer of a debited sender becomes a resource_ledger credit for its receiver. Receivers'
+ * wallet rows are never locked, so a transfer holds one row lock per sender, and because it is a
+ * single statement the debit and the credits commit or roll back together.
+ * Large batches are split into several statements, but only between senders: all transfers of
+ * one sender always go into the same statement, so they still pass or fail together.
+ * Transfers to oneself or to a player that does not exist are skipped.
+ */
+public class WalletTransferRepositoryImpl implements WalletTransferRepository {
+    private static final int ROWS_PER_STATEMENT = 5000; // 4 params per row, well under the 65535 bind limit
+    // Переводы одного отправителя не делятся между запросами, поэтому отправитель может занять запрос и больше
+    // ROWS_PER_STATEMENT строк - но не больше, чем позволяет лимит параметров
+    private static final int MAX_TRANSFERS_PER_SENDER = 16000;
+
+    // %1$s - VALUES переводов, %2$s - новое значение колонок отправителя, %3$s - баланс отправителя для проверки
+    private static final String TRANSFER_SQL = """
+        WITH transfers (ord, from_id, to_id, amount) AS (VALUES %1$s),
+        valid AS (
+            SELECT t.* FROM transfers t
+            WHERE t.from_id <> t.to_id AND EXISTS (SELECT 1 FROM players p WHERE p.id = t.to_id)
+        ), totals AS (
+            SELECT from_id, SUM(amount) AS total FROM valid GROUP BY from_id
+        ), locked AS MATERIALIZED (
+            SELECT w.player_id FROM resource_wallets w
+            WHERE w.player_id IN (SELECT from_id FROM totals)
+            ORDER BY w.player_id
+            FOR UPDATE
+        ), debited AS (
+            UPDATE resource_wallets w
+            SET %2$s, version = w.version + 1
+            FROM totals
+            WHERE w.player_id = totals.from_id AND w.player_id IN (SELECT player_id FROM locked) AND %3$s >= totals.total
+            RETURNING w.player_id
+        ), credited AS (
+            INSERT INTO resource_ledger (player_id, currency, delta, reason)
+            SELECT v.to_id, 'CLOUD_CREDITS', v.amount, :reason
+            FROM valid v JOIN debited d ON d.player_id = v.from_id
+        )
+        SELECT v.ord FROM valid v JOIN debited d ON d.player_id = v.from_id
+        """;
+
+    private static final String DEBIT = "cloud_credits = w.cloud_credits - totals.total";
+    private static final String BALANCE = "w.cloud_credits";
+    // Как accrueAndDebitCredits: доход за прошедшие целые минуты начисляется тем же UPDATE
+    private static final String ACCRUE_AND_DEBIT =
+        "cloud_credits = w.cloud_credits + w.income_per_minute * accrued_minutes(w.last_accrued_at) - totals.total, " +
+        "last_accrued_at = w.last_accrued_at + accrued_minutes(w.last_accrued_at) * INTERVAL '1 minute'";
+    private static final String ACCRUED_BALANCE = "w.cloud_credits + w.income_per_minute * accrued_minutes(w.last_accrued_at)";
+
+    private final DatabaseClient databaseClient;
+
+    public WalletTransferRepositoryImpl(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    @Override
+    public Flux<Integer> transferCredits(List<Transfer> transfers, String reason, boolean accrueIncome) {
+        if (transfers.isEmpty()) {
+            return Flux.empty();
+        }
+        Map<Long, List<Integer>> indexesBySender = new LinkedHashMap<>();
+        for (int i = 0; i < transfers.size(); i++) {
+            indexesBySender.computeIfAbsent(transfers.get(i).fromPlayerId(), sender -> new ArrayList<>()).add(i);
+        }
+
+        // Отправители целиком раскладываются по запросам до ROWS_PER_STATEMENT строк
+        List<List<Integer>> chunks = new ArrayList<>();
+        List<Integer> chunk = new ArrayList<>();
+        for (Map.Entry<Long, List<Integer>> sender : indexesBySender.entrySet()) {
+            List<Integer> senderIndexes = sender.getValue();
+            if (senderIndexes.size() > MAX_TRANSFERS_PER_SENDER) {
+                return Flux.error(new IllegalArgumentException("Too many transfers from player " + sender.getKey()
+                    + " in one batch: " + senderIndexes.size() + " (max " + MAX_TRANSFERS_PER_SENDER + ")"));
+            }
+            if (!chunk.isEmpty() && chunk.size() + senderIndexes.size() > ROWS_PER_STATEMENT) {
+                chunks.add(chunk);
+                chunk = new ArrayList<>();
+            }
+            chunk.addAll(senderIndexes);
+        }
+        chunks.add(chunk);
+        return Flux.fromIterable(chunks)
+            .concatMap(indexes -> transferChunk(transfers, indexes, reason, accrueIncome));
+    }
+
+    private Flux<Integer> transferChunk(List<Transfer> transfers, List<Integer> indexes, String reason, boolean accrueIncome) {
+        StringBuilder values = new StringBuilder();
+        for (int i : indexes) {
+            if (values.length() > 0) values.append(", ");
+            values.append("(:ord_").append(i).append(", :from_").append(i)
+                  .append(", :to_").append(i).append(", :amount_").append(i).append(')');
+        }
+        String sql = TRANSFER_SQL.formatted(values,
+            accrueIncome ? ACCRUE_AND_DEBIT : DEBIT,
+            accrueIncome ? ACCRUED_BALANCE : BALANCE);
+
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql).bind("reason", reason);
+        for (int i : indexes) {
+            Transfer transfer = transfers.get(i);
+            spec = spec.bind("ord_" + i, i)
+                       .bind("from_" + i, transfer.fromPlayerId())
+                       .bind("to_" + i, transfer.toPlayerId())
+                       .bind("amount_" + i, transfer.amount());
+        }
+        return spec.map((row, metadata) -> row.get("ord", Integer.class)).all();
+    }
+}
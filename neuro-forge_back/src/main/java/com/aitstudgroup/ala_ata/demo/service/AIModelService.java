@@ -21,11 +21,13 @@ public class AIModelService {
     private static final Logger logger = LoggerFactory.getLogger(AIModelService.class);
     private final AIModelRepository aiModelRepository;
     private final PlayerRepository playerRepository;
+    private final ResourceService resourceService;
     
     @Autowired
-    public AIModelService(AIModelRepository aiModelRepository, PlayerRepository playerRepository) {
+    public AIModelService(AIModelRepository aiModelRepository, PlayerRepository playerRepository, ResourceService resourceService) {
         this.aiModelRepository = aiModelRepository;
         this.playerRepository = playerRepository;
+        this.resourceService = resourceService;
         logger.info("AIModelService initialized with AIModelRepository and PlayerRepository.");
     }
     
@@ -73,10 +75,15 @@ public class AIModelService {
         return aiModelRepository.findByPlayerIdAndIsDeployedTrue(playerId);
     }
     
-    // Получить все развернутые модели (для пассивного дохода)
+    // Получить все развернутые модели
     public Flux<AIModel> findAllDeployedModels() {
         return aiModelRepository.findByIsDeployedTrue();
     }
+
+    // Развернутые модели с еще не посчитанным доходом
+    public Flux<AIModel> findDeployedModelsWithoutIncome() {
+        return aiModelRepository.findDeployedWithoutIncome();
+    }
     
     // Развернуть/снять модель
     @Transactional
@@ -121,6 +128,15 @@ public class AIModelService {
                             System.out.println("=== ERROR SAVING MODEL ===");
                             System.out.println("Error type: " + e.getClass().getName());
                             System.out.println("Error message: " + e.getMessage());
+                        })
+                        .flatMap(savedModel -> {
+                            // Доход еще не посчитан: пересчет сам поправит ставку кошелька
+                            if (deploy && savedModel.getCreditsPerMinute() <= 0) {
+                                return recalculateModelIncome(modelId).then(aiModelRepository.findById(modelId));
+                            }
+                            int contribution = incomeContribution(true, savedModel.getCreditsPerMinute());
+                            return resourceService.adjustIncomeRate(playerId, deploy ? contribution : -contribution)
+                                .thenReturn(savedModel);
                         });
                 } else {
                     System.out.println("No change needed - model already has deployment status: " + deploy);
@@ -135,7 +151,10 @@ public class AIModelService {
         if (creditsPerMinute < 0) {
             return Mono.error(new IllegalArgumentException("Доходность не может быть отрицательной"));
         }
-        return aiModelRepository.updateCreditsPerMinute(modelId, creditsPerMinute);
+        return aiModelRepository.findById(modelId)
+            .flatMap(model -> aiModelRepository.updateCreditsPerMinute(modelId, creditsPerMinute)
+                .then(resourceService.adjustIncomeRate(model.getPlayerId(),
+                    incomeContribution(model.isDeployed(), creditsPerMinute) - incomeContribution(model.isDeployed(), model.getCreditsPerMinute()))));
     }
     
     // Обновить показатель популярности модели
@@ -147,7 +166,7 @@ public class AIModelService {
     public Mono<Integer> recalculateModelIncome(Long modelId) {
         return aiModelRepository.findById(modelId)
             .switchIfEmpty(Mono.error(new IllegalArgumentException("Модель с ID " + modelId + " не найдена")))
-            .map(model -> {
+            .flatMap(model -> {
                 // Формула расчета дохода:
                 // базовый_доход + (точность * множитель) + (популярность * множитель)
                 int baseIncome = 5; // Базовый доход для всех моделей
@@ -156,10 +175,18 @@ public class AIModelService {
                 int speedBonus = model.getSpeedScore() / 20; // Бонус от скорости
                 
                 int totalIncome = (int) (baseIncome + accuracyFactor + popularityFactor + speedBonus);
-                return Math.max(totalIncome, 0); // Не меньше 0
-            })
-            .flatMap(income -> aiModelRepository.updateCreditsPerMinute(modelId, income)
-                .thenReturn(income));
+                int income = Math.max(totalIncome, 0); // Не меньше 0
+                // Ставка кошелька меняется на разницу, без пересчета всех моделей игрока
+                int delta = incomeContribution(model.isDeployed(), income) - incomeContribution(model.isDeployed(), model.getCreditsPerMinute());
+                return aiModelRepository.updateCreditsPerMinute(modelId, income)
+                    .then(resourceService.adjustIncomeRate(model.getPlayerId(), delta))
+                    .thenReturn(income);
+            });
+    }
+
+    // Вклад модели в ставку дохода игрока - как в SUM пассивного дохода: только развернутые модели с доходом > 0
+    private static int incomeContribution(boolean deployed, int creditsPerMinute) {
+        return deployed && creditsPerMinute > 0 ? creditsPerMinute : 0;
     }
     
     // Получить топ моделей по доходности
@@ -0,0 +1,73 @@
+package com.aitstudgroup.ala_ata.demo.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Which state topics have subscribers that asked for binary (CBOR) frames.
+ * Sessions that connect with "state-encoding: cbor" have their subscriptions to a state topic
+ * moved to topic + {@link #CBOR_SUFFIX} (see BinaryStateChannelInterceptor). The counts here only
+ * see sessions of this node, which is the whole picture with the simple broker but not with a
+ * broker relay (websocket.broker.mode=relay), where CBOR subscribers may sit on any node. So
+ * GameStateBroadcaster asks {@link #needsCborCopy}: with the simple broker the copy is encoded
+ * only while this node has such subscribers, with a relay it is always published.
+ */
+@Component
+public class BinaryStateSubscriptions {
+    public static final String CBOR_SUFFIX = "/cbor";
+    public static final String ENCODING_HEADER = "state-encoding"; // CONNECT: запрошенная кодировка; MESSAGE: кодировка тела
+
+    private final boolean relayed; // Подписчики /cbor могут быть на других узлах
+    private final Map<String, AtomicInteger> subscribersByTopic = new ConcurrentHashMap<>(); // Топик с суффиксом -> число подписок
+    private final Map<String, Map<String, String>> topicsBySession = new ConcurrentHashMap<>(); // sessionId -> (subscriptionId -> топик)
+
+    public BinaryStateSubscriptions(@Value("${websocket.broker.mode:simple}") String brokerMode) {
+        this.relayed = !"simple".equals(brokerMode);
+    }
+
+    public static boolean isStateTopic(String destination) {
+        return destination != null && destination.startsWith("/topic/duel/") && destination.endsWith("/state");
+    }
+
+    public void subscribed(String sessionId, String subscriptionId, String cborTopic) {
+        String previous = topicsBySession.computeIfAbsent(sessionId, id -> new ConcurrentHashMap<>()).put(subscriptionId, cborTopic);
+        if (previous != null) {
+            decrement(previous);
+        }
+        subscribersByTopic.computeIfAbsent(cborTopic, t -> new AtomicInteger()).incrementAndGet();
+    }
+
+    public void unsubscribed(String sessionId, String subscriptionId) {
+        Map<String, String> subscriptions = topicsBySession.get(sessionId);
+        String topic = subscriptions != null ? subscriptions.remove(subscriptionId) : null;
+        if (topic != null) {
+            decrement(topic);
+        }
+    }
+
+    public void sessionClosed(String sessionId) {
+        Map<String, String> subscriptions = topicsBySession.remove(sessionId);
+        if (subscriptions != null) {
+            subscriptions.values().forEach(this::decrement);
+        }
+    }
+
+    // Нужна ли CBOR-копия обновления топика состояния: через relay - всегда, локальные счетчики там неполные
+    public boolean needsCborCopy(String stateTopic) {
+        return relayed || hasLocalSubscribers(stateTopic);
+    }
+
+    // Подписки на CBOR-копию от сессий этого узла
+    public boolean hasLocalSubscribers(String stateTopic) {
+        AtomicInteger count = subscribersByTopic.get(stateTopic + CBOR_SUFFIX);
+        return count != null && count.get() > 0;
+    }
+
+    private void decrement(String topic) {
+        subscribersByTopic.computeIfPresent(topic, (t, count) -> count.decrementAndGet() > 0 ? count : null);
+    }
+}
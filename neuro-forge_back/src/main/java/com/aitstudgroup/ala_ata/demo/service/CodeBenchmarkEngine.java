@@ -0,0 +1,465 @@
+package com.aitstudgroup.ala_ata.demo.service;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.graalvm.polyglot.Context;
+import org.graalvm.polyglot.Engine;
+import org.graalvm.polyglot.EnvironmentAccess;
+import org.graalvm.polyglot.HostAccess;
+import org.graalvm.polyglot.PolyglotException;
+import org.graalvm.polyglot.Source;
+import org.graalvm.polyglot.Value;
+import org.graalvm.polyglot.io.IOAccess;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import com.aitstudgroup.ala_ata.demo.model.BenchmarkResult;
+import com.aitstudgroup.ala_ata.demo.model.OptimizationProblem;
+
+import jakarta.annotation.PreDestroy;
+import reactor.core.publisher.Mono;
+
+/**
+ * Runs Optimization Rally submissions for real instead of guessing their metrics.
+ * Each submission is evaluated in its own sandboxed GraalJS context (no host, IO, thread or
+ * process access) on a bounded worker pool. The submitted function is called on inputs of
+ * increasing size made by the problem's generator; every call is checked against the problem's
+ * reference solution and timed (best of {@link #REPEATS}), and the worker thread's allocations
+ * are counted. Inputs and expected answers are prepared before the submission is loaded, and the
+ * built-ins are frozen before that, so it cannot tamper with the checker; answers are compared
+ * structurally (own data properties only, toJSON and getters are never called). A watchdog cancels
+ * the context once the time or allocation budget is spent; sizes completed before that still count.
+ * The watchdog only samples, so single allocations are capped up front: strings, typed arrays and
+ * ArrayBuffers larger than max-object-mb fail with a RangeError inside the sandbox.
+ * The complexity class is the growth model that best fits, on a log scale, either the times or
+ * the allocation volume (which tracks the operation count and is not disturbed by JIT warm-up),
+ * whichever series fits its model more tightly.
+ */
+@Component
+public class CodeBenchmarkEngine {
+    private static final Logger logger = LoggerFactory.getLogger(CodeBenchmarkEngine.class);
+
+    static final int[] INPUT_SIZES = {64, 128, 256, 512, 1024};
+    private static final int REPEATS = 3;
+    private static final int WARMUP_RUNS = 5; // Интерпретатор специализирует AST на первых вызовах
+    private static final int MIN_POINTS_FOR_FIT = 3;
+    private static final long WATCHDOG_PERIOD_MS = 10;
+
+    // Прогон при старте: первый бенчмарк в холодной JVM искажает замеры на малых размерах
+    private static final OptimizationProblem ENGINE_WARMUP_PROBLEM = new OptimizationProblem(
+        "engine-warmup", "", 0,
+        """
+        function insertionSort(a) {
+            for (let i = 1; i < a.length; i++) {
+                const v = a[i];
+                let j = i - 1;
+                while (j >= 0 && a[j] > v) { a[j + 1] = a[j]; j--; }
+                a[j + 1] = v;
+            }
+            return a;
+        }
+        """,
+        "function sort(a) { return a.sort(function (x, y) { return x - y; }); }",
+        "(function (n, random) { const a = new Array(n); for (let i = 0; i < n; i++) a[i] = random(100000); return [a]; })");
+
+    // Модели роста в тех же обозначениях, что и getComplexityScore / фронтенд
+    private static final String[] COMPLEXITY_CLASSES = {"1", "log n", "n", "n log n", "n^2", "n^3"};
+
+    private static final Pattern FUNCTION_NAME = Pattern.compile(
+        "function\\s+([A-Za-z_$][\\w$]*)|(?:const|let|var)\\s+([A-Za-z_$][\\w$]*)\\s*=");
+
+    // Генератор входов задачи, эталон и проверка ответа живут в той же песочнице, что и решение.
+    // Все нужное проверке захвачено до загрузки решения; lockdown() перед загрузкой замораживает
+    // встроенные объекты (иначе решение подменит, например, Array.prototype.toJSON) и убирает Proxy,
+    // а ответ сравнивается структурно: только собственные data-свойства, без toJSON и геттеров.
+    // Глобальный объект открыт решению, поэтому вызываемые во время проверки String, Number и
+    // конструкторы ошибок тоже берутся из захваченных при загрузке копий, а не по имени
+    private static final Source HARNESS = Source.create("js", """
+        (function (generate, reference, maxBufferBytes) {
+            const stringify = JSON.stringify, parse = JSON.parse, isArray = Array.isArray, keys = Object.keys;
+            const describe = Object.getOwnPropertyDescriptor, ownKeys = Reflect.ownKeys, construct = Reflect.construct;
+            const protoOf = Object.getPrototypeOf, freeze = Object.freeze, define = Object.defineProperty;
+            const NativeArrayBuffer = ArrayBuffer, global = globalThis;
+            const toString = String, toNumber = Number, NativeTypeError = TypeError, NativeRangeError = RangeError;
+            let state = 1;
+            function random(bound) {
+                state ^= state << 13; state ^= state >>> 17; state ^= state << 5;
+                return (state >>> 0) % bound;
+            }
+            function canonical(value) {
+                switch (typeof value) {
+                    case 'string': return stringify(value);
+                    case 'number': case 'boolean': case 'undefined': return toString(value);
+                    case 'bigint': return toString(value) + 'n';
+                    case 'object': break;
+                    default: throw new NativeTypeError('Unexpected ' + typeof value);
+                }
+                if (value === null) {
+                    return 'null';
+                }
+                let out;
+                if (isArray(value)) {
+                    out = '[';
+                    for (let i = 0; i < value.length; i++) {
+                        out += (i > 0 ? ',' : '') + canonical(dataValue(value, toString(i)));
+                    }
+                    return out + ']';
+                }
+                out = '{';
+                const names = keys(value);
+                for (let i = 0; i < names.length; i++) {
+                    out += (i > 0 ? ',' : '') + stringify(names[i]) + ':' + canonical(dataValue(value, names[i]));
+                }
+                return out + '}';
+            }
+            function dataValue(object, name) {
+                const descriptor = describe(object, name);
+                if (descriptor === undefined) {
+                    return undefined;
+                }
+                if (descriptor.get !== undefined || descriptor.set !== undefined) {
+                    throw new NativeTypeError('Accessor property ' + name);
+                }
+                return descriptor.value;
+            }
+            function byteCount(length) {
+                const bytes = toNumber(length);
+                if (bytes > maxBufferBytes) {
+                    throw new NativeRangeError('Array buffer larger than ' + maxBufferBytes + ' bytes');
+                }
+                return bytes;
+            }
+            function GuardedArrayBuffer(length, options) {
+                if (new.target === undefined) {
+                    throw new NativeTypeError('Constructor ArrayBuffer requires new');
+                }
+                const limited = options !== undefined && options !== null && options.maxByteLength !== undefined
+                    ? [byteCount(length), {maxByteLength: byteCount(options.maxByteLength)}]
+                    : [byteCount(length)];
+                return construct(NativeArrayBuffer, limited, new.target);
+            }
+            function lockdown() {
+                GuardedArrayBuffer.prototype = NativeArrayBuffer.prototype;
+                define(GuardedArrayBuffer, 'isView', {value: NativeArrayBuffer.isView});
+                for (const name of ['transfer', 'transferToFixedLength']) {
+                    const transfer = NativeArrayBuffer.prototype[name];
+                    if (transfer !== undefined) {
+                        define(NativeArrayBuffer.prototype, name, {value: function (length) {
+                            return transfer.call(this, length === undefined ? undefined : byteCount(length));
+                        }});
+                    }
+                }
+                define(NativeArrayBuffer.prototype, 'constructor', {value: GuardedArrayBuffer});
+                define(global, 'ArrayBuffer', {value: GuardedArrayBuffer});
+                delete global.SharedArrayBuffer;
+                delete global.Proxy;
+                // Глобальный объект не замораживаем: решение объявляет в нем свою функцию
+                const pending = [protoOf(function* () {}), protoOf(async function () {}), protoOf([][Symbol.iterator]()),
+                    protoOf(''[Symbol.iterator]()), protoOf(new Map().entries()), protoOf(new Set().values()), protoOf(/a/[Symbol.matchAll](''))];
+                for (const name of ownKeys(global)) {
+                    pending.push(describe(global, name).value);
+                }
+                const seen = new Set();
+                while (pending.length > 0) {
+                    const object = pending.pop();
+                    if (object === global || (typeof object !== 'object' && typeof object !== 'function') || object === null || seen.has(object)) {
+                        continue;
+                    }
+                    seen.add(object);
+                    freeze(object);
+                    pending.push(protoOf(object));
+                    for (const name of ownKeys(object)) {
+                        const descriptor = describe(object, name);
+                        pending.push(descriptor.value, descriptor.get, descriptor.set);
+                    }
+                }
+            }
+            return {
+                input: function (n, seed) {
+                    state = seed | 1;
+                    return generate(n, random);
+                },
+                expected: function (args) {
+                    return canonical(reference.apply(null, parse(stringify(args))));
+                },
+                lockdown: lockdown,
+                matches: function (actual, expected) {
+                    try {
+                        return canonical(actual) === expected;
+                    } catch (e) {
+                        return false; // Геттер, цикл, функция в ответе
+                    }
+                }
+            };
+        })
+        """);
+
+    private final Engine engine;
+    private final ThreadPoolExecutor workers;
+    private final ScheduledExecutorService watchdog;
+    private final com.sun.management.ThreadMXBean threadMXBean;
+    private final long timeLimitNanos;
+    private final long allocationLimitBytes;
+    private final long maxObjectBytes;
+
+    public CodeBenchmarkEngine(@org.springframework.beans.factory.annotation.Value("${benchmark.workers:0}") int configuredWorkers,
+                               @org.springframework.beans.factory.annotation.Value("${benchmark.queue-capacity:64}") int queueCapacity,
+                               @org.springframework.beans.factory.annotation.Value("${benchmark.time-limit-ms:5000}") long timeLimitMs,
+                               @org.springframework.beans.factory.annotation.Value("${benchmark.allocation-limit-mb:2048}") long allocationLimitMb,
+                               @org.springframework.beans.factory.annotation.Value("${benchmark.max-object-mb:64}") long maxObjectMb) {
+        int workerCount = configuredWorkers > 0 ? configuredWorkers : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        this.engine = Engine.newBuilder("js")
+            .option("engine.WarnInterpreterOnly", "false")
+            .build();
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity),
+            runnable -> {
+                Thread thread = new Thread(runnable, "code-benchmark-" + threadIndex.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            },
+            new ThreadPoolExecutor.AbortPolicy());
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "code-benchmark-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        this.timeLimitNanos = TimeUnit.MILLISECONDS.toNanos(timeLimitMs);
+        this.allocationLimitBytes = allocationLimitMb * 1024 * 1024;
+        this.maxObjectBytes = maxObjectMb * 1024 * 1024;
+        workers.execute(() -> logger.info("Code benchmark engine warmed up: {}",
+            run(ENGINE_WARMUP_PROBLEM.getOriginalCode(), ENGINE_WARMUP_PROBLEM).getComplexity()));
+        logger.info("Code benchmark engine started: {} workers, queue {}, time limit {} ms, allocation limit {} MB, max object {} MB",
+            workerCount, queueCapacity, timeLimitMs, allocationLimitMb, maxObjectMb);
+    }
+
+    // Оценить решение задачи; при переполненной очереди - ошибка RejectedExecutionException
+    public Mono<BenchmarkResult> benchmark(String code, OptimizationProblem problem) {
+        return Mono.defer(() -> Mono.fromFuture(CompletableFuture.supplyAsync(() -> run(code, problem), workers)));
+    }
+
+    /**
+     * Identifies everything a stored measurement depends on besides the problem itself: the
+     * harness, the input sizes, the JS engine and JVM versions and the core count of this host.
+     * Baselines measured under a different fingerprint are not comparable and must be re-measured.
+     */
+    public String fingerprint() {
+        return HARNESS.getCharacters() + Arrays.toString(INPUT_SIZES) + REPEATS + WARMUP_RUNS
+            + engine.getVersion() + System.getProperty("java.vm.version") + System.getProperty("os.arch")
+            + Runtime.getRuntime().availableProcessors();
+    }
+
+    private BenchmarkResult run(String code, OptimizationProblem problem) {
+        String functionName = findFunctionName(code);
+        if (functionName == null) {
+            return BenchmarkResult.failed("No function declaration found");
+        }
+        String referenceName = findFunctionName(problem.getReferenceCode());
+        if (referenceName == null) {
+            throw new IllegalArgumentException("Reference solution of problem " + problem.getId() + " declares no function");
+        }
+
+        Thread worker = Thread.currentThread();
+        long startNanos = System.nanoTime();
+        long startAllocated = threadMXBean.getCurrentThreadAllocatedBytes();
+        AtomicReference<String> limitHit = new AtomicReference<>();
+
+        int[] sizes = new int[INPUT_SIZES.length];
+        long[] nanos = new long[INPUT_SIZES.length];
+        long[] allocated = new long[INPUT_SIZES.length];
+        int points = 0;
+
+        try (Context context = newSandbox()) {
+            ScheduledFuture<?> guard = watchdog.scheduleAtFixedRate(() -> {
+                String reason = System.nanoTime() - startNanos > timeLimitNanos ? "Time limit exceeded"
+                    : threadMXBean.getThreadAllocatedBytes(worker.threadId()) - startAllocated > allocationLimitBytes ? "Allocation limit exceeded"
+                    : null;
+                if (reason != null && limitHit.compareAndSet(null, reason)) {
+                    context.close(true);
+                }
+            }, WATCHDOG_PERIOD_MS, WATCHDOG_PERIOD_MS, TimeUnit.MILLISECONDS);
+
+            try {
+                // Эталон - в своей области видимости, чтобы имя не столкнулось с функцией игрока
+                Value reference = context.eval("js", "(function () {\n" + problem.getReferenceCode() + "\nreturn " + referenceName + ";\n})()");
+                Value harness = context.eval(HARNESS).execute(context.eval("js", problem.getInputGenerator()), reference, maxObjectBytes);
+
+                Object[][] warmupInputs = new Object[WARMUP_RUNS][];
+                for (int warmup = 0; warmup < WARMUP_RUNS; warmup++) {
+                    warmupInputs[warmup] = arguments(harness.invokeMember("input", INPUT_SIZES[0], 7 + warmup));
+                }
+                Object[][][] inputs = new Object[INPUT_SIZES.length][REPEATS][];
+                String[][] expected = new String[INPUT_SIZES.length][REPEATS];
+                for (int sizeIndex = 0; sizeIndex < INPUT_SIZES.length; sizeIndex++) {
+                    for (int repeat = 0; repeat < REPEATS; repeat++) {
+                        Value input = harness.invokeMember("input", INPUT_SIZES[sizeIndex], 31 * INPUT_SIZES[sizeIndex] + repeat);
+                        expected[sizeIndex][repeat] = harness.invokeMember("expected", input).asString();
+                        inputs[sizeIndex][repeat] = arguments(input);
+                    }
+                }
+
+                harness.invokeMember("lockdown");
+                context.eval("js", code);
+                Value function = context.getBindings("js").getMember(functionName);
+                if (function == null || !function.canExecute()) {
+                    return BenchmarkResult.failed("'" + functionName + "' is not a function");
+                }
+
+                for (Object[] warmupInput : warmupInputs) {
+                    function.execute(warmupInput);
+                }
+                for (int sizeIndex = 0; sizeIndex < INPUT_SIZES.length; sizeIndex++) {
+                    int size = INPUT_SIZES[sizeIndex];
+                    long bestNanos = Long.MAX_VALUE;
+                    long bestAllocated = Long.MAX_VALUE;
+                    for (int repeat = 0; repeat < REPEATS; repeat++) {
+                        long allocatedBefore = threadMXBean.getCurrentThreadAllocatedBytes();
+                        long before = System.nanoTime();
+                        Value output = function.execute(inputs[sizeIndex][repeat]);
+                        long elapsed = System.nanoTime() - before;
+                        long allocatedDuring = threadMXBean.getCurrentThreadAllocatedBytes() - allocatedBefore;
+                        if (!harness.invokeMember("matches", output, expected[sizeIndex][repeat]).asBoolean()) {
+                            return BenchmarkResult.failed("Wrong result for input size " + size);
+                        }
+                        bestNanos = Math.min(bestNanos, elapsed);
+                        bestAllocated = Math.min(bestAllocated, allocatedDuring);
+                    }
+                    sizes[points] = size;
+                    nanos[points] = bestNanos;
+                    allocated[points] = bestAllocated;
+                    points++;
+                }
+            } finally {
+                guard.cancel(false);
+            }
+        } catch (PolyglotException e) {
+            if (!e.isCancelled() || limitHit.get() == null) {
+                return BenchmarkResult.failed(e.isSyntaxError() ? "Syntax error: " + e.getMessage() : "Runtime error: " + e.getMessage());
+            }
+        } catch (IllegalStateException e) {
+            // Контекст закрыт сторожем между вызовами
+            if (limitHit.get() == null) {
+                throw e;
+            }
+        }
+
+        if (points < MIN_POINTS_FOR_FIT) {
+            return BenchmarkResult.failed(limitHit.get() != null ? limitHit.get() : "Not enough measurements");
+        }
+        if (limitHit.get() != null) {
+            logger.debug("Benchmark of '{}' stopped after {} input sizes: {}", functionName, points, limitHit.get());
+        }
+        sizes = Arrays.copyOf(sizes, points);
+        nanos = Arrays.copyOf(nanos, points);
+        allocated = Arrays.copyOf(allocated, points);
+        return BenchmarkResult.measured(sizes, nanos, allocated, fitComplexity(sizes, nanos, allocated));
+    }
+
+    public int getWorkerCount() {
+        return workers.getMaximumPoolSize();
+    }
+
+    // Массив аргументов из генератора - в аргументы вызова функции
+    private static Object[] arguments(Value input) {
+        Object[] arguments = new Object[(int) input.getArraySize()];
+        for (int i = 0; i < arguments.length; i++) {
+            arguments[i] = input.getArrayElement(i);
+        }
+        return arguments;
+    }
+
+    private Context newSandbox() {
+        return Context.newBuilder("js")
+            .engine(engine)
+            .allowHostAccess(HostAccess.NONE)
+            .allowHostClassLookup(className -> false)
+            .allowIO(IOAccess.NONE)
+            .allowCreateThread(false)
+            .allowCreateProcess(false)
+            .allowNativeAccess(false)
+            .allowEnvironmentAccess(EnvironmentAccess.NONE)
+            // Жесткие пределы размера строки и типизированного массива есть только среди экспериментальных опций
+            .allowExperimentalOptions(true)
+            .option("js.string-length-limit", Long.toString(maxObjectBytes / 2))
+            .option("js.max-typed-array-length", Long.toString(maxObjectBytes / 8))
+            .build();
+    }
+
+    // Первая объявленная функция (function f(...) или const f = ...) - это решение игрока
+    static String findFunctionName(String code) {
+        Matcher matcher = FUNCTION_NAME.matcher(code);
+        if (!matcher.find()) {
+            return null;
+        }
+        return matcher.group(1) != null ? matcher.group(1) : matcher.group(2);
+    }
+
+    // Класс сложности по времени и по объему аллокаций: берем ряд, который точнее ложится на свою модель
+    static String fitComplexity(int[] sizes, long[] nanos, long[] allocatedBytes) {
+        double[] byTime = new double[1];
+        double[] byAllocations = new double[1];
+        String timeModel = bestModel(sizes, nanos, byTime);
+        String allocationModel = bestModel(sizes, allocatedBytes, byAllocations);
+        return byAllocations[0] < byTime[0] ? allocationModel : timeModel;
+    }
+
+    // Модель f(n), при которой ln(y) - ln(f(n)) меньше всего разбросан (y ~ c * f(n)); разброс - в spreadOut[0]
+    private static String bestModel(int[] sizes, long[] values, double[] spreadOut) {
+        String best = COMPLEXITY_CLASSES[0];
+        double bestSpread = Double.MAX_VALUE;
+        for (String model : COMPLEXITY_CLASSES) {
+            double[] residuals = new double[sizes.length];
+            double mean = 0;
+            for (int i = 0; i < sizes.length; i++) {
+                residuals[i] = Math.log(Math.max(1, values[i])) - Math.log(growth(model, sizes[i]));
+                mean += residuals[i];
+            }
+            mean /= sizes.length;
+            double spread = 0;
+            for (double residual : residuals) {
+                spread += (residual - mean) * (residual - mean);
+            }
+            if (spread < bestSpread) {
+                bestSpread = spread;
+                best = model;
+            }
+        }
+        spreadOut[0] = bestSpread;
+        return best;
+    }
+
+    private static double growth(String model, int n) {
+        double log = Math.log(n) / Math.log(2);
+        return switch (model) {
+            case "1" -> 1;
+            case "log n" -> log;
+            case "n" -> n;
+            case "n log n" -> n * log;
+            case "n^2" -> (double) n * n;
+            case "n^3" -> (double) n * n * n;
+            default -> throw new IllegalArgumentException("Unknown complexity class: " + model);
+        };
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+        watchdog.shutdownNow();
+        engine.close(true);
+    }
+}
@@ -0,0 +1,219 @@
+package com.aitstudgroup.ala_ata.demo.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.aitstudgroup.ala_ata.demo.model.BenchmarkResult;
+import com.aitstudgroup.ala_ata.demo.model.OptimizationProblem;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import reactor.core.publisher.Mono;
+
+/**
+ * Content-addressed cache of benchmark results in front of {@link CodeBenchmarkEngine}.
+ * The key is the problem id plus the SHA-256 of the normalized code, so resubmitting the same
+ * code (or the same code re-indented, with other spacing or comments) costs a hash lookup. Concurrent requests for the same key share one run.
+ * Size-bounded with Caffeine's W-TinyLFU eviction; hit/miss stats are exported as
+ * cache.* metrics with cache=evaluation.
+ */
+@Component
+public class EvaluationCache {
+    // После этих слов '/' начинает регулярное выражение, а не деление
+    private static final Set<String> KEYWORDS_BEFORE_EXPRESSION = Set.of(
+        "return", "typeof", "instanceof", "in", "of", "new", "delete", "void", "throw", "case", "do", "else",
+        "yield", "await");
+
+    private final CodeBenchmarkEngine codeBenchmarkEngine;
+    private final AsyncCache<String, BenchmarkResult> results;
+
+    public EvaluationCache(CodeBenchmarkEngine codeBenchmarkEngine,
+                           MeterRegistry meterRegistry,
+                           @Value("${evaluation.cache.max-entries:10000}") long maxEntries) {
+        this.codeBenchmarkEngine = codeBenchmarkEngine;
+        this.results = CaffeineCacheMetrics.monitor(meterRegistry,
+            Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .recordStats()
+                .<String, BenchmarkResult>buildAsync(),
+            "evaluation");
+    }
+
+    public Mono<BenchmarkResult> benchmark(String code, OptimizationProblem problem) {
+        String key = keyFor(code, problem);
+        return Mono.fromFuture(() -> results.get(key, (k, executor) -> codeBenchmarkEngine.benchmark(code, problem)
+                .toFuture()
+                .thenApply(result -> {
+                    // Превышение лимита зависит от нагрузки в момент прогона - такой результат не запоминаем
+                    if (!result.isSuccessful() && result.getError().contains("limit exceeded")) {
+                        results.synchronous().invalidate(k);
+                    }
+                    return result;
+                })), true);
+    }
+
+    // Готовый результат без запуска бенчмарка (пусто, если его нет или он еще считается)
+    public Mono<BenchmarkResult> getIfCompleted(String code, OptimizationProblem problem) {
+        CompletableFuture<BenchmarkResult> cached = results.getIfPresent(keyFor(code, problem));
+        if (cached == null || !cached.isDone() || cached.isCompletedExceptionally()) {
+            return Mono.empty();
+        }
+        return Mono.just(cached.join());
+    }
+
+    // Одно и то же решение разных задач проверяется разными генераторами и эталонами
+    static String keyFor(String code, OptimizationProblem problem) {
+        return problem.getId() + ":" + sha256(normalize(code));
+    }
+
+    static String sha256(String text) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Drops comments, blank lines and indentation, and collapses other whitespace. A space is
+     * kept only where removing it could change the program (between two identifier characters,
+     * between repeated + - / characters, before a dot after a digit). Line breaks are kept
+     * because of automatic semicolon insertion. String, template and regular expression literals
+     * are copied as is; a '/' starts a regular expression where a division cannot stand (at the
+     * start, after an operator or punctuator other than ) and ], or after a keyword like return).
+     */
+    static String normalize(String code) {
+        StringBuilder out = new StringBuilder(code.length());
+        boolean pendingSpace = false;
+        boolean pendingNewline = false;
+        int i = 0;
+        while (i < code.length()) {
+            char c = code.charAt(i);
+            if (c == '/' && i + 1 < code.length() && code.charAt(i + 1) == '/') {
+                while (i < code.length() && code.charAt(i) != '\n') {
+                    i++;
+                }
+                continue;
+            }
+            if (c == '/' && i + 1 < code.length() && code.charAt(i + 1) == '*') {
+                int end = code.indexOf("*/", i + 2);
+                i = end < 0 ? code.length() : end + 2;
+                pendingSpace = true;
+                continue;
+            }
+            if (c == '\n' || c == '\r') {
+                pendingNewline = out.length() > 0;
+                i++;
+                continue;
+            }
+            if (Character.isWhitespace(c)) {
+                pendingSpace = true;
+                i++;
+                continue;
+            }
+
+            if (pendingNewline && out.charAt(out.length() - 1) != '\n') {
+                out.append('\n');
+            } else if (pendingSpace && out.length() > 0 && spaceMatters(out.charAt(out.length() - 1), c)) {
+                out.append(' ');
+            }
+            pendingSpace = false;
+            pendingNewline = false;
+
+            if (c == '"' || c == '\'' || c == '`') {
+                int end = i + 1;
+                while (end < code.length() && code.charAt(end) != c) {
+                    end += code.charAt(end) == '\\' ? 2 : 1;
+                }
+                end = Math.min(end + 1, code.length());
+                out.append(code, i, end);
+                i = end;
+                continue;
+            }
+            if (c == '/' && regexCanStart(out)) {
+                int end = regexEnd(code, i);
+                out.append(code, i, end);
+                i = end;
+                continue;
+            }
+            out.append(c);
+            i++;
+        }
+        return out.toString();
+    }
+
+    // Может ли здесь начаться регулярное выражение: смотрим на последний значимый символ или слово
+    private static boolean regexCanStart(StringBuilder out) {
+        int last = out.length() - 1;
+        while (last >= 0 && (out.charAt(last) == ' ' || out.charAt(last) == '\n')) {
+            last--;
+        }
+        if (last < 0) {
+            return true;
+        }
+        char previous = out.charAt(last);
+        if (previous == ')' || previous == ']' || previous == '"' || previous == '\'' || previous == '`') {
+            return false;
+        }
+        if (!isIdentifierChar(previous)) {
+            return true; // Оператор или знак препинания (после '}' чаще кончается блок, чем объектный литерал)
+        }
+        int start = last;
+        while (start > 0 && isIdentifierChar(out.charAt(start - 1))) {
+            start--;
+        }
+        return KEYWORDS_BEFORE_EXPRESSION.contains(out.substring(start, last + 1));
+    }
+
+    // Конец регулярного выражения с флагами: '/' внутри [...] и экранированный '\/' его не закрывают
+    private static int regexEnd(String code, int start) {
+        int end = start + 1;
+        boolean inClass = false;
+        while (end < code.length()) {
+            char c = code.charAt(end);
+            if (c == '\n' || c == '\r') {
+                return end; // Незакрытое выражение: остаток строки разбирается как обычный код
+            }
+            if (c == '\\') {
+                end += 2;
+                continue;
+            }
+            end++;
+            if (c == '[') {
+                inClass = true;
+            } else if (c == ']') {
+                inClass = false;
+            } else if (c == '/' && !inClass) {
+                break;
+            }
+        }
+        while (end < code.length() && isIdentifierChar(code.charAt(end))) {
+            end++;
+        }
+        return Math.min(end, code.length());
+    }
+
+    private static boolean spaceMatters(char previous, char next) {
+        if (isIdentifierChar(previous) && isIdentifierChar(next)) {
+            return true;
+        }
+        if (previous == next && (previous == '+' || previous == '-' || previous == '/')) {
+            return true;
+        }
+        return Character.isDigit(previous) && next == '.';
+    }
+
+    private static boolean isIdentifierChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+    }
+}
@@ -0,0 +1,69 @@
+package com.aitstudgroup.ala_ata.demo.service;
+
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.aitstudgroup.ala_ata.demo.util.FairWorkQueue;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+
+/**
+ * Bounded admission queue in front of the code benchmark engine.
+ * Jobs wait in per-match FIFO queues and are started round-robin across matches, so one busy
+ * match cannot starve the others. At most as many jobs run as the engine has workers; the rest
+ * wait here up to a global and a per-match limit. Past either limit a job is rejected at once
+ * with {@link PipelineBusyException} instead of piling up behind the others.
+ */
+@Component
+public class EvaluationPipeline {
+    private static final Logger logger = LoggerFactory.getLogger(EvaluationPipeline.class);
+
+    private final FairWorkQueue<Long> queue;
+    private final Counter rejectedCounter;
+
+    public static class PipelineBusyException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        public PipelineBusyException(String message) {
+            super(message);
+        }
+    }
+
+    public EvaluationPipeline(CodeBenchmarkEngine codeBenchmarkEngine,
+                              MeterRegistry meterRegistry,
+                              @Value("${evaluation.pipeline.capacity:256}") int capacity,
+                              @Value("${evaluation.pipeline.per-match-capacity:4}") int perMatchCapacity) {
+        // Работы одного матча могут идти параллельно: порядок внутри матча держит шард матча, а не очередь
+        this.queue = new FairWorkQueue<>(codeBenchmarkEngine.getWorkerCount(), capacity, perMatchCapacity, false);
+        this.rejectedCounter = Counter.builder("evaluation.pipeline.rejected")
+            .description("Code submissions rejected because the evaluation pipeline was full")
+            .register(meterRegistry);
+        Gauge.builder("evaluation.pipeline.queued", queue, FairWorkQueue::queuedCount).register(meterRegistry);
+        Gauge.builder("evaluation.pipeline.in.flight", queue, FairWorkQueue::inFlightCount).register(meterRegistry);
+    }
+
+    // Поставить работу матча в очередь; если очередь заполнена - PipelineBusyException
+    public <T> Mono<T> submit(Long matchId, Supplier<Mono<T>> work) {
+        return queue.submit(matchId, work, () -> {
+            rejectedCounter.increment();
+            logger.warn("Evaluation pipeline busy (queued {}, match {} queued {}). Rejecting submission.",
+                queue.queuedCount(), matchId, queue.queuedCount(matchId));
+            return new PipelineBusyException("Evaluation pipeline is busy, try again shortly");
+        });
+    }
+
+    public int queuedCount() {
+        return queue.queuedCount();
+    }
+
+    public int inFlightCount() {
+        return queue.inFlightCount();
+    }
+}
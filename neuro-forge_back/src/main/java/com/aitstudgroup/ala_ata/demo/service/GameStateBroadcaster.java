@@ -0,0 +1,159 @@
+package com.aitstudgroup.ala_ata.demo.service;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+
+import com.aitstudgroup.ala_ata.demo.util.CborEncoder;
+import com.aitstudgroup.ala_ata.demo.util.JsonDiff;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Versioned game-state broadcasts.
+ * Every topic keeps the last state it sent and a version number. An update goes out as
+ * {"type":"delta","version":v,"baseVersion":v-1,"ops":[...]} with JSON Patch style ops against
+ * the previous state, so a submission costs the bytes of what changed rather than the whole
+ * state (original code, every step's code). The first update of a topic, every Nth update and
+ * updates whose patch would be too large go out as {"type":"snapshot","version":v,"state":{...}}.
+ * A client that sees a baseVersion it does not hold asks for {@link #resync}, which resends
+ * the last state as a snapshot. Versions are counted per node; every message carries the node's
+ * "source" id, so with a broker relay a client never applies one node's delta on top of another's.
+ * Sessions that negotiated binary frames get the same messages CBOR-encoded on topic + "/cbor".
+ */
+@Component
+public class GameStateBroadcaster {
+    private static final Logger logger = LoggerFactory.getLogger(GameStateBroadcaster.class);
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final BinaryStateSubscriptions binaryStateSubscriptions;
+    private final ObjectMapper objectMapper;
+    private final int snapshotEvery;
+    private final int maxOpsPerDelta;
+    private final long idleNanos;
+    private final Map<String, TopicState> topics = new ConcurrentHashMap<>();
+    private final String source = UUID.randomUUID().toString().substring(0, 8); // Id этого узла в сообщениях
+
+    // Поля - под монитором объекта: версии одного топика уходят строго по порядку
+    private static final class TopicState {
+        long version;
+        JsonNode lastState;
+        int deltasSinceSnapshot;
+        volatile long lastUsedNanos = System.nanoTime();
+    }
+
+    public GameStateBroadcaster(SimpMessagingTemplate messagingTemplate,
+                                BinaryStateSubscriptions binaryStateSubscriptions,
+                                ObjectMapper objectMapper,
+                                @Value("${state-sync.snapshot-every:50}") int snapshotEvery,
+                                @Value("${state-sync.max-ops-per-delta:64}") int maxOpsPerDelta,
+                                @Value("${state-sync.idle-minutes:30}") long idleMinutes) {
+        this.messagingTemplate = messagingTemplate;
+        this.binaryStateSubscriptions = binaryStateSubscriptions;
+        this.objectMapper = objectMapper;
+        this.snapshotEvery = snapshotEvery;
+        this.maxOpsPerDelta = maxOpsPerDelta;
+        this.idleNanos = TimeUnit.MINUTES.toNanos(idleMinutes);
+    }
+
+    public void broadcast(String topic, Object state) {
+        broadcastTree(topic, objectMapper.valueToTree(state));
+    }
+
+    // Для состояний, уже сериализованных для match_data
+    public void broadcastJson(String topic, String stateJson) {
+        try {
+            broadcastTree(topic, objectMapper.readTree(stateJson));
+        } catch (JsonProcessingException e) {
+            logger.error("Cannot broadcast malformed state JSON to {}: {}", topic, e.getMessage());
+        }
+    }
+
+    // Повторить последнее состояние снимком (клиент потерял версию)
+    public void resync(String topic) {
+        TopicState topicState = topics.get(topic);
+        if (topicState == null) {
+            logger.debug("Resync requested for {}, but nothing was broadcast there yet.", topic);
+            return;
+        }
+        synchronized (topicState) {
+            topicState.lastUsedNanos = System.nanoTime();
+            topicState.deltasSinceSnapshot = 0;
+            send(topic, snapshot(topicState.version, topicState.lastState));
+        }
+    }
+
+    private void broadcastTree(String topic, JsonNode state) {
+        TopicState topicState = topics.computeIfAbsent(topic, t -> new TopicState());
+        synchronized (topicState) {
+            topicState.lastUsedNanos = System.nanoTime();
+            JsonNode previous = topicState.lastState;
+            long version = ++topicState.version;
+            topicState.lastState = state;
+
+            ArrayNode ops = previous != null && topicState.deltasSinceSnapshot + 1 < snapshotEvery ? JsonDiff.diff(previous, state) : null;
+            if (ops == null || ops.size() > maxOpsPerDelta) {
+                topicState.deltasSinceSnapshot = 0;
+                send(topic, snapshot(version, state));
+                return;
+            }
+            topicState.deltasSinceSnapshot++;
+            ObjectNode delta = objectMapper.createObjectNode();
+            delta.put("type", "delta");
+            delta.put("source", source);
+            delta.put("version", version);
+            delta.put("baseVersion", version - 1);
+            delta.set("ops", ops);
+            send(topic, delta);
+        }
+    }
+
+    private ObjectNode snapshot(long version, JsonNode state) {
+        ObjectNode snapshot = objectMapper.createObjectNode();
+        snapshot.put("type", "snapshot");
+        snapshot.put("source", source);
+        snapshot.put("version", version);
+        snapshot.set("state", state);
+        return snapshot;
+    }
+
+    private void send(String topic, ObjectNode message) {
+        try {
+            messagingTemplate.convertAndSend(topic, message);
+            if (binaryStateSubscriptions.needsCborCopy(topic)) {
+                // CBOR-копия для сессий с бинарными кадрами; octet-stream - чтобы STOMP ушел бинарным кадром
+                SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+                headers.setContentType(MimeTypeUtils.APPLICATION_OCTET_STREAM);
+                headers.setNativeHeader(BinaryStateSubscriptions.ENCODING_HEADER, "cbor");
+                headers.setLeaveMutable(true);
+                messagingTemplate.send(topic + BinaryStateSubscriptions.CBOR_SUFFIX,
+                    MessageBuilder.createMessage(CborEncoder.encode(message), headers.getMessageHeaders()));
+            }
+            logger.debug("Broadcasted {} v{} to {}", message.get("type").asText(), message.get("version").asLong(), topic);
+        } catch (Exception e) {
+            logger.error("Error broadcasting game state to {}: {}", topic, e.getMessage());
+        }
+    }
+
+    // Забыть топики закончившихся/заброшенных матчей
+    @Scheduled(fixedDelay = 60_000)
+    public void evictIdleTopics() {
+        long now = System.nanoTime();
+        topics.values().removeIf(topicState -> now - topicState.lastUsedNanos > idleNanos);
+    }
+}
@@ -0,0 +1,194 @@
+package com.aitstudgroup.ala_ata.demo.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.aitstudgroup.ala_ata.demo.model.Match;
+import com.aitstudgroup.ala_ata.demo.repository.MatchRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Hot store for the game state of live duels, keyed by match id.
+ * The first action on a match loads and deserializes matches.match_data once; later actions
+ * mutate the in-memory object and mark it dirty. Dirty states are written back to match_data
+ * in the background (write-behind), and a match is evicted on GAME_OVER or after sitting idle.
+ * Every write-behind carries the next match_data_version and only lands on an older one, so a
+ * flush still in flight after eviction cannot overwrite a newer state or the final match_data
+ * (final writes set {@link MatchRepository#FINAL_MATCH_DATA_VERSION}).
+ * A match's state may only be touched on its {@link MatchActorExecutor} shard: mutations by
+ * the game services, serialization by the flush here.
+ */
+@Component
+public class LiveMatchStateStore {
+    private static final Logger logger = LoggerFactory.getLogger(LiveMatchStateStore.class);
+
+    private final MatchRepository matchRepository;
+    private final ObjectMapper objectMapper;
+    private final MatchActorExecutor matchActorExecutor;
+    private final Duration idleEviction;
+    private final Map<Long, LiveMatch<?>> liveMatches = new ConcurrentHashMap<>();
+    private final Set<Long> dirtyMatchIds = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public LiveMatchStateStore(MatchRepository matchRepository,
+                               ObjectMapper objectMapper,
+                               MatchActorExecutor matchActorExecutor,
+                               @Value("${live-match.idle-eviction-minutes:30}") long idleEvictionMinutes) {
+        this.matchRepository = matchRepository;
+        this.objectMapper = objectMapper;
+        this.matchActorExecutor = matchActorExecutor;
+        this.idleEviction = Duration.ofMinutes(idleEvictionMinutes);
+    }
+
+    // Состояние живого матча вместе со строкой matches
+    public static final class LiveMatch<S> {
+        private final Match match;
+        private final S state;
+        private volatile Instant lastAccess = Instant.now();
+        private long dataVersion; // только на шарде матча
+
+        private LiveMatch(Match match, S state) {
+            this.match = match;
+            this.state = state;
+            this.dataVersion = match.getMatchDataVersion();
+        }
+
+        public Match getMatch() {
+            return match;
+        }
+
+        public S getState() {
+            return state;
+        }
+    }
+
+    // Получить состояние из памяти или загрузить его из match_data (один раз на матч)
+    public <S> Mono<LiveMatch<S>> getOrLoad(Long matchId, Class<S> stateType) {
+        LiveMatch<?> cached = liveMatches.get(matchId);
+        if (cached != null) {
+            return Mono.fromCallable(() -> typed(cached, stateType));
+        }
+        return matchRepository.findById(matchId)
+            .switchIfEmpty(Mono.error(new IllegalArgumentException("Match not found: " + matchId)))
+            .flatMap(match -> {
+                S state;
+                try {
+                    state = objectMapper.readValue(match.getMatchData(), stateType);
+                } catch (JsonProcessingException | IllegalArgumentException e) {
+                    return Mono.error(new IllegalStateException("Could not parse game state for match: " + matchId, e));
+                }
+                LiveMatch<?> winner = liveMatches.putIfAbsent(matchId, new LiveMatch<>(match, state));
+                logger.debug("Match {} loaded into the live state store ({} live matches).", matchId, liveMatches.size());
+                return Mono.fromCallable(() -> typed(winner != null ? winner : liveMatches.get(matchId), stateType));
+            });
+    }
+
+    // Состояние изменено в памяти; будет записано в match_data при следующем сбросе
+    public void markDirty(Long matchId) {
+        if (liveMatches.containsKey(matchId)) {
+            dirtyMatchIds.add(matchId);
+        }
+    }
+
+    private record VersionedJson(String json, long version) {
+    }
+
+    // Сериализовать состояние на шарде матча, чтобы не читать его посреди изменения; версия растет вместе с состоянием
+    private Mono<VersionedJson> toJson(Long matchId, LiveMatch<?> live) {
+        return matchActorExecutor.execute(matchId, () -> {
+            if (live.dataVersion < MatchRepository.FINAL_MATCH_DATA_VERSION) {
+                live.dataVersion++;
+            }
+            return new VersionedJson(objectMapper.writeValueAsString(live.getState()), live.dataVersion);
+        });
+    }
+
+    private Mono<Integer> writeBehind(Long matchId, LiveMatch<?> live) {
+        return toJson(matchId, live)
+            .flatMap(versioned -> matchRepository.writeBehindMatchData(matchId, versioned.json(), versioned.version()))
+            .doOnNext(updated -> {
+                if (updated == 0) {
+                    logger.debug("Write-behind of match {} skipped: match_data already holds a newer or final state.", matchId);
+                }
+            });
+    }
+
+    // Записать текущее состояние сразу и выгрузить матч из памяти (GAME_OVER)
+    public Mono<Void> flushAndEvict(Long matchId) {
+        LiveMatch<?> live = evict(matchId);
+        if (live == null) {
+            return Mono.empty();
+        }
+        return writeBehind(matchId, live).then();
+    }
+
+    // Выгрузить матч без записи (строка уже сохранена вызывающим кодом или удалена)
+    public LiveMatch<?> evict(Long matchId) {
+        dirtyMatchIds.remove(matchId);
+        return liveMatches.remove(matchId);
+    }
+
+    public int size() {
+        return liveMatches.size();
+    }
+
+    @Scheduled(fixedDelayString = "${live-match.flush-interval-ms:1000}")
+    public void flushDirty() {
+        Instant idleCutoff = Instant.now().minus(idleEviction);
+        liveMatches.forEach((matchId, live) -> {
+            if (live.lastAccess.isBefore(idleCutoff)) {
+                logger.info("Evicting idle live match {}.", matchId);
+                flushAndEvict(matchId).subscribe(null, error ->
+                    logger.error("Failed to persist idle match {} on eviction: {}", matchId, error.getMessage()));
+            }
+        });
+
+        if (dirtyMatchIds.isEmpty()) {
+            return;
+        }
+        Flux.fromIterable(Set.copyOf(dirtyMatchIds))
+            .flatMap(matchId -> {
+                dirtyMatchIds.remove(matchId);
+                LiveMatch<?> live = liveMatches.get(matchId);
+                if (live == null) {
+                    return Mono.empty();
+                }
+                return writeBehind(matchId, live)
+                    .onErrorResume(error -> {
+                        logger.error("Write-behind of match {} failed, will retry: {}", matchId, error.getMessage());
+                        markDirty(matchId);
+                        return Mono.empty();
+                    });
+            })
+            .count()
+            .subscribe(count -> logger.debug("Flushed {} live match states to match_data.", count));
+    }
+
+    private static <S> LiveMatch<S> typed(LiveMatch<?> live, Class<S> stateType) {
+        if (live == null) {
+            throw new IllegalStateException("Live match was evicted while loading");
+        }
+        if (!stateType.isInstance(live.getState())) {
+            throw new IllegalStateException("Match " + live.getMatch().getId() + " holds "
+                + live.getState().getClass().getSimpleName() + ", not " + stateType.getSimpleName());
+        }
+        live.lastAccess = Instant.now();
+        @SuppressWarnings("unchecked")
+        LiveMatch<S> cast = (LiveMatch<S>) live;
+        return cast;
+    }
+}
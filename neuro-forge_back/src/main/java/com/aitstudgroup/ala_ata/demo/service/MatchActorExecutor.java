@@ -0,0 +1,52 @@
+package com.aitstudgroup.ala_ata.demo.service;
+
+import java.util.concurrent.Callable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Single-writer execution for live duels.
+ * Every match id maps to one of N single-threaded shards, so all actions of a match run one
+ * after another in arrival order (an actor mailbox per match), while different matches run in
+ * parallel across shards. Code running on a match's shard may mutate its live state without
+ * locks; everything else must hop onto the shard through {@link #execute}.
+ */
+@Component
+public class MatchActorExecutor {
+    private static final Logger logger = LoggerFactory.getLogger(MatchActorExecutor.class);
+
+    private final Scheduler[] shards;
+
+    public MatchActorExecutor(@Value("${live-match.actor-shards:0}") int configuredShards) {
+        int shardCount = configuredShards > 0 ? configuredShards : Runtime.getRuntime().availableProcessors();
+        this.shards = new Scheduler[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = Schedulers.newSingle("match-actor-" + i);
+        }
+        logger.info("Match actor executor started with {} shards.", shardCount);
+    }
+
+    // Выполнить действие на шарде матча; действия одного матча никогда не выполняются параллельно
+    public <T> Mono<T> execute(Long matchId, Callable<T> action) {
+        return Mono.fromCallable(action).subscribeOn(shardFor(matchId));
+    }
+
+    private Scheduler shardFor(Long matchId) {
+        return shards[Math.floorMod(Long.hashCode(matchId), shards.length)];
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Scheduler shard : shards) {
+            shard.dispose();
+        }
+    }
+}
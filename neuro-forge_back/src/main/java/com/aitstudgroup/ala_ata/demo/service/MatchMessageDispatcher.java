@@ -0,0 +1,128 @@
+package com.aitstudgroup.ala_ata.demo.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+
+import com.aitstudgroup.ala_ata.demo.util.FairWorkQueue;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.publisher.Mono;
+
+/**
+ * Ordered, bounded execution of inbound STOMP actions (@MessageMapping handlers).
+ * Actions with the same key run strictly one after another in arrival order: the next one starts
+ * only when the previous action's Mono has completed. Actions with different keys run in parallel,
+ * at most max-concurrent at a time, started round-robin across keys (see {@link FairWorkQueue}).
+ * A slot is held for as long as the action's Mono runs, so an action should complete once the
+ * match shard has accepted it and leave slow follow-up work (code evaluation) to its own queue.
+ * Past the overall or per-key queue limit an action is rejected at once and the sending session
+ * gets an error frame on /user/queue/duel-updates.
+ * Nothing blocks the inbound channel thread: handlers return the Mono and Spring subscribes to it.
+ * Metrics: websocket.handler.latency (queue wait + processing, tag handler),
+ * websocket.handler.rejected (tag handler), websocket.handler.queued, websocket.handler.in.flight.
+ */
+@Component
+public class MatchMessageDispatcher {
+    private static final Logger logger = LoggerFactory.getLogger(MatchMessageDispatcher.class);
+
+    public static final String ERROR_DESTINATION = "/queue/duel-updates";
+
+    private final FairWorkQueue<String> queue;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Timer> latencyTimers = new ConcurrentHashMap<>();
+    private final Map<String, Counter> rejectedCounters = new ConcurrentHashMap<>();
+
+    public MatchMessageDispatcher(SimpMessagingTemplate messagingTemplate,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${websocket.handler.max-concurrent:64}") int maxConcurrent,
+                                  @Value("${websocket.handler.capacity:1000}") int capacity,
+                                  @Value("${websocket.handler.per-key-capacity:16}") int perKeyCapacity) {
+        this.queue = new FairWorkQueue<>(maxConcurrent, capacity, perKeyCapacity, true);
+        this.messagingTemplate = messagingTemplate;
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("websocket.handler.queued", queue, FairWorkQueue::queuedCount)
+            .description("Inbound STOMP actions waiting for their key or a free slot")
+            .register(meterRegistry);
+        Gauge.builder("websocket.handler.in.flight", queue, FairWorkQueue::inFlightCount)
+            .description("Inbound STOMP actions being processed")
+            .register(meterRegistry);
+    }
+
+    public static String matchKey(Long matchId) {
+        return "match:" + matchId;
+    }
+
+    public static String playerKey(Long matchId, Long playerId) {
+        return "match:" + matchId + ":player:" + playerId;
+    }
+
+    // Поставить действие в очередь ключа; подписка на результат ничего не блокирует.
+    // sessionId - STOMP-сессия отправителя: ей уходит кадр ошибки, если очередь заполнена
+    public <T> Mono<T> dispatch(String key, String handler, String sessionId, Supplier<Mono<T>> work) {
+        return Mono.defer(() -> {
+            long enqueuedNanos = System.nanoTime();
+            Supplier<Mono<T>> timedWork = () -> work.get()
+                .doFinally(signal -> latencyTimer(handler).record(System.nanoTime() - enqueuedNanos, TimeUnit.NANOSECONDS));
+            return queue.submit(key, timedWork, () -> {
+                rejectedCounter(handler).increment();
+                logger.warn("Inbound dispatcher busy (queued {}, {} queued {}). Rejecting {}.",
+                    queue.queuedCount(), key, queue.queuedCount(key), handler);
+                notifyRejected(sessionId, handler);
+                return new IllegalStateException("Too many pending actions for " + key + ", try again shortly");
+            });
+        });
+    }
+
+    public int queuedCount() {
+        return queue.queuedCount();
+    }
+
+    public int inFlightCount() {
+        return queue.inFlightCount();
+    }
+
+    // Кадр ошибки только этой сессии: анонимные сессии тоже допускаются, поэтому адресуем по sessionId, а не по игроку
+    private void notifyRejected(String sessionId, String handler) {
+        if (sessionId == null) {
+            return;
+        }
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        headers.setSessionId(sessionId);
+        headers.setLeaveMutable(true);
+        try {
+            messagingTemplate.convertAndSendToUser(sessionId, ERROR_DESTINATION,
+                Map.of("type", "error", "action", handler, "message", "Server is busy, try again shortly"),
+                headers.getMessageHeaders());
+        } catch (Exception e) {
+            logger.error("Error notifying session {} about rejected {}: {}", sessionId, handler, e.getMessage());
+        }
+    }
+
+    private Timer latencyTimer(String handler) {
+        return latencyTimers.computeIfAbsent(handler, name -> Timer.builder("websocket.handler.latency")
+            .tag("handler", name)
+            .description("Inbound STOMP action latency from arrival to completion, queue wait included")
+            .register(meterRegistry));
+    }
+
+    private Counter rejectedCounter(String handler) {
+        return rejectedCounters.computeIfAbsent(handler, name -> Counter.builder("websocket.handler.rejected")
+            .tag("handler", name)
+            .description("Inbound STOMP actions rejected because the dispatcher queue was full")
+            .register(meterRegistry));
+    }
+}
@@ -1,16 +1,32 @@
 package com.aitstudgroup.ala_ata.demo.service;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import com.aitstudgroup.ala_ata.demo.dto.MatchSummaryResponse;
+import com.aitstudgroup.ala_ata.demo.model.AIModel;
 import com.aitstudgroup.ala_ata.demo.model.Match;
+import com.aitstudgroup.ala_ata.demo.model.MatchmakingQueueEntry;
+import com.aitstudgroup.ala_ata.demo.model.Pairing;
+import com.aitstudgroup.ala_ata.demo.model.Player;
 import com.aitstudgroup.ala_ata.demo.model.OptimizationRallyState;
 import com.aitstudgroup.ala_ata.demo.repository.AIModelRepository;
 import com.aitstudgroup.ala_ata.demo.repository.MatchRepository;
@@ -38,6 +54,8 @@ public class MatchService {
     private final SimpMessagingTemplate messagingTemplate;
     private final TranslationBattleService translationBattleService;
     private final OptimizationRallyService optimizationRallyService;
+    private final LiveMatchStateStore liveMatchStateStore;
+    private final boolean publicMatchFeed; // Дублировать сводки новых матчей в /topic/matches
     
     @Autowired
     public MatchService(
@@ -47,7 +65,9 @@ public class MatchService {
             PlayerService playerService,
             SimpMessagingTemplate messagingTemplate,
             TranslationBattleService translationBattleService,
-            OptimizationRallyService optimizationRallyService) {
+            OptimizationRallyService optimizationRallyService,
+            LiveMatchStateStore liveMatchStateStore,
+            @Value("${match-notifications.public-feed:false}") boolean publicMatchFeed) {
         this.matchRepository = matchRepository;
         this.playerRepository = playerRepository;
         this.aiModelRepository = aiModelRepository;
@@ -55,6 +75,22 @@ public class MatchService {
         this.messagingTemplate = messagingTemplate;
         this.translationBattleService = translationBattleService;
         this.optimizationRallyService = optimizationRallyService;
+        this.liveMatchStateStore = liveMatchStateStore;
+        this.publicMatchFeed = publicMatchFeed;
+    }
+
+    /**
+     * Tells the two participants about a new match on their /user/queue/matches (the session
+     * user is the JWT subject, i.e. the player id). Only a summary is sent, never matchData;
+     * the same summary goes to the public /topic/matches feed if it is enabled.
+     */
+    private void notifyMatchCreated(Match match) {
+        MatchSummaryResponse summary = new MatchSummaryResponse(match);
+        messagingTemplate.convertAndSendToUser(match.getPlayer1Id().toString(), "/queue/matches", summary);
+        messagingTemplate.convertAndSendToUser(match.getPlayer2Id().toString(), "/queue/matches", summary);
+        if (publicMatchFeed) {
+            messagingTemplate.convertAndSend("/topic/matches", summary);
+        }
     }
     
     // Создать новый матч
@@ -100,8 +136,7 @@ public class MatchService {
                         .flatMap(matchRepository::save)
                         .doOnSuccess(savedMatch -> {
                             logger.info("TRANSLATION match {} created and saved successfully. Initial matchData: {}", savedMatch.getId(), savedMatch.getMatchData());
-                            // Notify players or a general topic about the new match
-                            messagingTemplate.convertAndSend("/topic/matches", savedMatch); // Example notification
+                            notifyMatchCreated(savedMatch);
                         })
                         .doOnError(error -> logger.error("Error saving translation match: {}", error.getMessage()));
                 } else if ("OPTIMIZATION".equalsIgnoreCase(match.getMatchType())) {
@@ -111,7 +146,7 @@ public class MatchService {
                     return matchRepository.save(match)
                         .doOnSuccess(savedMatch -> {
                             logger.info("OPTIMIZATION match {} created and saved successfully. Initial matchData: {}", savedMatch.getId(), savedMatch.getMatchData());
-                            messagingTemplate.convertAndSend("/topic/matches", savedMatch);
+                            notifyMatchCreated(savedMatch);
                              // Also broadcast the initial game state to the specific duel topic for Optimization Rally
                             optimizationRallyService.broadcastGameStateUpdate(savedMatch.getId(), initialOptimizationState);
                         })
@@ -121,13 +156,102 @@ public class MatchService {
                     return matchRepository.save(match)
                         .doOnSuccess(savedMatch -> {
                              logger.info("Match {} of type {} created and saved successfully.", savedMatch.getId(), savedMatch.getMatchType());
-                            messagingTemplate.convertAndSend("/topic/matches", savedMatch);
+                            notifyMatchCreated(savedMatch);
                         })
                         .doOnError(error -> logger.error("Error saving non-translation match: {}", error.getMessage()));
                 }
             });
     }
     
+    /**
+     * Batched counterpart of {@link #createMatch} for matchmaking bursts: all players and models
+     * are prefetched with two IN (...) queries, initial game states are built in memory and all
+     * matches go in with one multi-row INSERT. Pairings whose players or models no longer exist
+     * are skipped (logged), so the result may hold fewer matches than pairings.
+     * Deliberately not transactional: each INSERT chunk commits on its own and its matches are
+     * announced right after, so on a failure the matches already emitted exist and only the rest
+     * of the pairings have to be released (see MatchmakingService.createMatchesForClaimed).
+     */
+    public Flux<Match> createMatches(List<Pairing> pairings) {
+        List<Pairing> valid = pairings.stream()
+            .filter(p -> {
+                boolean ok = !p.getFirst().getPlayerId().equals(p.getSecond().getPlayerId())
+                    && p.getMatchType() != null && !p.getMatchType().trim().isEmpty();
+                if (!ok) logger.warn("Пропуск некорректной пары {}", p);
+                return ok;
+            })
+            .collect(Collectors.toList());
+        if (valid.isEmpty()) {
+            return Flux.empty();
+        }
+        logger.debug("Пакетное создание {} матчей", valid.size());
+
+        Set<Long> playerIds = valid.stream()
+            .flatMap(p -> Stream.of(p.getFirst().getPlayerId(), p.getSecond().getPlayerId()))
+            .collect(Collectors.toSet());
+        Set<Long> modelIds = valid.stream()
+            .flatMap(p -> Stream.of(p.getFirst().getModelId(), p.getSecond().getModelId()))
+            .filter(Objects::nonNull)
+            .collect(Collectors.toSet());
+
+        Mono<Map<Long, Player>> playersMono = playerRepository.findAllById(playerIds).collectMap(Player::getId);
+        Mono<Map<Long, AIModel>> modelsMono = modelIds.isEmpty()
+            ? Mono.just(Map.of())
+            : aiModelRepository.findAllById(modelIds).collectMap(AIModel::getId);
+
+        return Mono.zip(playersMono, modelsMono)
+            .flatMapMany(tuple -> {
+                Map<Long, Player> players = tuple.getT1();
+                Map<Long, AIModel> models = tuple.getT2();
+                Instant startedAt = Instant.now();
+                List<Match> matches = new ArrayList<>(valid.size());
+                Map<Long, OptimizationRallyState> optimizationStates = new HashMap<>();
+
+                for (Pairing pairing : valid) {
+                    MatchmakingQueueEntry first = pairing.getFirst();
+                    MatchmakingQueueEntry second = pairing.getSecond();
+                    if (!players.containsKey(first.getPlayerId()) || !players.containsKey(second.getPlayerId())
+                            || (first.getModelId() != null && !models.containsKey(first.getModelId()))
+                            || (second.getModelId() != null && !models.containsKey(second.getModelId()))) {
+                        logger.warn("Пропуск пары {}: игрок или модель не найдены", pairing);
+                        continue;
+                    }
+                    Match match = new Match();
+                    match.setPlayer1Id(first.getPlayerId());
+                    match.setPlayer2Id(second.getPlayerId());
+                    match.setPlayer1ModelId(first.getModelId());
+                    match.setPlayer2ModelId(second.getModelId());
+                    match.setMatchType(pairing.getMatchType());
+                    match.setStartedAt(startedAt);
+
+                    if ("TRANSLATION".equalsIgnoreCase(match.getMatchType())) {
+                        try {
+                            // У каждого матча своя выборка фраз
+                            match.setMatchData(translationBattleService.buildInitialMatchData());
+                        } catch (JsonProcessingException e) {
+                            return Flux.error(e);
+                        }
+                    } else if ("OPTIMIZATION".equalsIgnoreCase(match.getMatchType())) {
+                        OptimizationRallyState state = optimizationRallyService.initializeNewGame(match.getPlayer1Id(), match.getPlayer2Id());
+                        match.setMatchData(optimizationRallyService.convertGameStateToJson(state));
+                        optimizationStates.put(match.getPlayer1Id(), state);
+                    }
+                    matches.add(match);
+                }
+
+                return matchRepository.insertAll(matches)
+                    .doOnNext(savedMatch -> {
+                        notifyMatchCreated(savedMatch);
+                        OptimizationRallyState state = optimizationStates.get(savedMatch.getPlayer1Id());
+                        if (state != null) {
+                            optimizationRallyService.broadcastGameStateUpdate(savedMatch.getId(), state);
+                        }
+                    })
+                    .doOnComplete(() -> logger.info("Пакетно создано {} матчей из {} пар", matches.size(), pairings.size()));
+            })
+            .doOnError(error -> logger.error("Ошибка пакетного создания матчей: {}", error.getMessage()));
+    }
+    
     // Получить матч по ID
     public Mono<Match> getMatchById(Long matchId) {
         return matchRepository.findById(matchId)
@@ -170,9 +294,12 @@ public class MatchService {
                     return Mono.error(new IllegalArgumentException("Победитель должен быть одним из участников матча"));
                 }
                 
+                // Живое состояние больше не нужно, и оно не должно перезаписать итоговый match_data
+                liveMatchStateStore.evict(matchId);
+
                 // Обновляем данные матча
                 return matchRepository.finishMatch(matchId, winnerId, player1Score, player2Score, endTime)
-                    .then(matchData != null ? matchRepository.updateMatchData(matchId, matchData) : Mono.just(0))
+                    .then(matchData != null ? matchRepository.updateMatchData(matchId, matchData) : matchRepository.fenceMatchData(matchId))
                     .then(matchRepository.findById(matchId))
                     .doOnSuccess(finishedMatch -> {
                         if (finishedMatch != null) {
@@ -257,6 +384,7 @@ public class MatchService {
                 }
                 
                 // Удаляем матч
+                liveMatchStateStore.evict(matchId);
                 return matchRepository.deleteById(matchId);
             });
     }
@@ -0,0 +1,94 @@
+package com.aitstudgroup.ala_ata.demo.service;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.aitstudgroup.ala_ata.demo.model.MatchmakingQueueEntry;
+import com.aitstudgroup.ala_ata.demo.model.Pairing;
+
+/**
+ * Batch (whole-queue) pairing for one match type.
+ * The pair cost is the ELO gap minus a bonus for the time both players have waited, and a
+ * pair is allowed when the gap fits either player's search window. Because ELO is a line,
+ * crossing pairs are never cheaper than their uncrossed version, so instead of a general
+ * weighted-matching solver this runs a dynamic program over the ELO-sorted queue. Each pair
+ * may skip up to {@link #LOOKBACK} - 1 entries between its two players. Every possible
+ * match is rewarded first, so the result is the largest matching, and among those the
+ * cheapest. O(N * LOOKBACK).
+ */
+public final class MatchmakingBatchSolver {
+    static final int LOOKBACK = 4;
+    static final double WAIT_BONUS_PER_SECOND = 0.5; // ELO points forgiven per second waited (per player)
+    private static final double MATCH_REWARD = 10_000; // Larger than any allowed gap: more matches always win
+
+    private MatchmakingBatchSolver() {
+    }
+
+    // Стоимость пары для целевой функции (разница ELO минус бонус за ожидание)
+    public static double pairCost(MatchmakingQueueEntry a, MatchmakingQueueEntry b, Instant now) {
+        return Math.abs(a.getEloRating() - b.getEloRating()) - WAIT_BONUS_PER_SECOND * (waitedSeconds(a, now) + waitedSeconds(b, now));
+    }
+
+    public static boolean compatible(MatchmakingQueueEntry a, MatchmakingQueueEntry b, Instant now) {
+        int gap = Math.abs(a.getEloRating() - b.getEloRating());
+        return gap <= Math.max(MatchmakingPool.eloRangeFor(a, now), MatchmakingPool.eloRangeFor(b, now));
+    }
+
+    /**
+     * Solves one match type. {@code sortedByElo} must be ordered by ELO ascending, which is
+     * the pool's iteration order. The longer-waiting player is first in each pairing.
+     */
+    public static List<Pairing> solve(List<MatchmakingQueueEntry> sortedByElo, Instant now) {
+        int n = sortedByElo.size();
+        int[] elo = new int[n];
+        int[] range = new int[n];
+        long[] waited = new long[n];
+        for (int i = 0; i < n; i++) {
+            MatchmakingQueueEntry entry = sortedByElo.get(i);
+            elo[i] = entry.getEloRating();
+            range[i] = MatchmakingPool.eloRangeFor(entry, now);
+            waited[i] = waitedSeconds(entry, now);
+        }
+
+        // best[i] - лучший счет для первых i записей; partner[i] - с кем спарена запись i-1 (-1: без пары)
+        double[] best = new double[n + 1];
+        int[] partner = new int[n + 1];
+        partner[0] = -1;
+        for (int i = 1; i <= n; i++) {
+            int last = i - 1;
+            best[i] = best[i - 1];
+            partner[i] = -1;
+            for (int j = last - 1; j >= Math.max(0, last - LOOKBACK); j--) {
+                int gap = elo[last] - elo[j];
+                if (gap > Math.max(range[j], range[last])) {
+                    continue;
+                }
+                double score = best[j] + MATCH_REWARD - gap + WAIT_BONUS_PER_SECOND * (waited[j] + waited[last]);
+                if (score > best[i]) {
+                    best[i] = score;
+                    partner[i] = j;
+                }
+            }
+        }
+
+        List<Pairing> pairings = new ArrayList<>();
+        for (int i = n; i > 0; ) {
+            int j = partner[i];
+            if (j < 0) {
+                i--;
+                continue;
+            }
+            MatchmakingQueueEntry a = sortedByElo.get(j);
+            MatchmakingQueueEntry b = sortedByElo.get(i - 1);
+            pairings.add(waited[j] >= waited[i - 1] ? new Pairing(a, b) : new Pairing(b, a));
+            i = j;
+        }
+        return pairings;
+    }
+
+    private static long waitedSeconds(MatchmakingQueueEntry entry, Instant now) {
+        return Math.max(0, ChronoUnit.SECONDS.between(entry.getSearchStartTime(), now));
+    }
+}
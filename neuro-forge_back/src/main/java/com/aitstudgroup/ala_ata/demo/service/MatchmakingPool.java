@@ -0,0 +1,195 @@
+package com.aitstudgroup.ala_ata.demo.service;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+import org.springframework.stereotype.Component;
+
+import com.aitstudgroup.ala_ata.demo.model.MatchmakingQueueEntry;
+import com.aitstudgroup.ala_ata.demo.model.Pairing;
+
+/**
+ * In-memory view of the matchmaking queue.
+ * Entries of each match type live in a skip list ordered by ELO, so finding an opponent is a
+ * neighbour probe instead of a database query per entry. The matchmaking_queue table stays
+ * the durable mirror; the pool itself never talks to the database.
+ * Pooled entries must not be mutated: re-joining replaces the entry instead.
+ */
+@Component
+public class MatchmakingPool {
+    static final int ELO_RANGE_INITIAL = 100; // Initial ELO search range (+/-)
+    static final int ELO_RANGE_EXPANSION_RATE = 50; // How much to expand ELO range per interval
+    static final long MAX_WAIT_SECONDS_FOR_EXPANSION = 30; // Seconds to wait before expanding ELO range
+
+    private static final Comparator<MatchmakingQueueEntry> BY_ELO = Comparator
+        .comparing(MatchmakingQueueEntry::getEloRating)
+        .thenComparing(MatchmakingQueueEntry::getSearchStartTime)
+        .thenComparing(MatchmakingQueueEntry::getPlayerId);
+
+    private static final Comparator<MatchmakingQueueEntry> BY_WAIT = Comparator
+        .comparing(MatchmakingQueueEntry::getSearchStartTime)
+        .thenComparing(MatchmakingQueueEntry::getPlayerId);
+
+    private final Map<String, ConcurrentSkipListSet<MatchmakingQueueEntry>> queuesByType = new ConcurrentHashMap<>();
+    private final Map<Long, MatchmakingQueueEntry> entriesByPlayer = new ConcurrentHashMap<>();
+
+    // Текущая ширина окна поиска: растет на ELO_RANGE_EXPANSION_RATE каждые MAX_WAIT_SECONDS_FOR_EXPANSION секунд
+    public static int eloRangeFor(MatchmakingQueueEntry entry, Instant now) {
+        long secondsWaited = Math.max(0, ChronoUnit.SECONDS.between(entry.getSearchStartTime(), now));
+        return ELO_RANGE_INITIAL + (int) (secondsWaited / MAX_WAIT_SECONDS_FOR_EXPANSION) * ELO_RANGE_EXPANSION_RATE;
+    }
+
+    // Добавить (или заменить) запись игрока
+    public void add(MatchmakingQueueEntry entry) {
+        remove(entry.getPlayerId());
+        ConcurrentSkipListSet<MatchmakingQueueEntry> queue = queueFor(entry.getMatchType());
+        synchronized (queue) {
+            queue.add(entry);
+            entriesByPlayer.put(entry.getPlayerId(), entry);
+        }
+    }
+
+    // Убрать игрока из пула; возвращает true, если он там был
+    public boolean remove(Long playerId) {
+        MatchmakingQueueEntry existing = entriesByPlayer.get(playerId);
+        if (existing == null) {
+            return false;
+        }
+        ConcurrentSkipListSet<MatchmakingQueueEntry> queue = queueFor(existing.getMatchType());
+        synchronized (queue) {
+            boolean removed = entriesByPlayer.remove(playerId, existing);
+            queue.remove(existing);
+            return removed;
+        }
+    }
+
+    public boolean contains(Long playerId) {
+        return entriesByPlayer.containsKey(playerId);
+    }
+
+    public int size() {
+        return entriesByPlayer.size();
+    }
+
+    // Убрать и вернуть все записи, ожидающие дольше cutoff
+    public List<MatchmakingQueueEntry> evictWaitingSince(Instant cutoff) {
+        List<MatchmakingQueueEntry> evicted = new ArrayList<>();
+        for (MatchmakingQueueEntry entry : entriesByPlayer.values()) {
+            if (entry.getSearchStartTime().isBefore(cutoff) && remove(entry.getPlayerId())) {
+                evicted.add(entry);
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * Pairs every compatible entry of every match type in one pass and removes the paired
+     * entries from the pool. Entries are served longest-waiting first; each one takes the
+     * closest-ELO neighbour (ties go to the longer wait) if the gap fits either player's search
+     * window, the same rule {@link #pairAllBatch} uses. Runs in O(N log N) per match type.
+     */
+    public List<Pairing> pairAll(Instant now) {
+        List<Pairing> pairings = new ArrayList<>();
+        for (ConcurrentSkipListSet<MatchmakingQueueEntry> queue : queuesByType.values()) {
+            synchronized (queue) {
+                List<MatchmakingQueueEntry> byWait = new ArrayList<>(queue);
+                byWait.sort(BY_WAIT);
+                for (MatchmakingQueueEntry entry : byWait) {
+                    if (!queue.contains(entry)) {
+                        continue; // Already taken as an opponent earlier in this pass
+                    }
+                    MatchmakingQueueEntry opponent = closestOpponent(queue, entry, Integer.MAX_VALUE);
+                    if (opponent != null && MatchmakingBatchSolver.compatible(entry, opponent, now)) {
+                        pairings.add(take(queue, entry, opponent));
+                    }
+                }
+            }
+        }
+        return pairings;
+    }
+
+    /**
+     * Batch alternative to {@link #pairAll}: solves a min-cost matching over each match
+     * type's whole queue (see {@link MatchmakingBatchSolver}) and removes the paired entries.
+     */
+    public List<Pairing> pairAllBatch(Instant now) {
+        List<Pairing> pairings = new ArrayList<>();
+        for (ConcurrentSkipListSet<MatchmakingQueueEntry> queue : queuesByType.values()) {
+            synchronized (queue) {
+                List<MatchmakingQueueEntry> sortedByElo = new ArrayList<>(queue);
+                for (Pairing pairing : MatchmakingBatchSolver.solve(sortedByElo, now)) {
+                    pairings.add(take(queue, pairing.getFirst(), pairing.getSecond()));
+                }
+            }
+        }
+        return pairings;
+    }
+
+    /**
+     * Tries to pair a freshly joined entry right away instead of waiting for the next sweep.
+     * A neighbour is accepted if the gap fits either side's window, since a longer-waiting
+     * opponent would have picked this entry on the sweep anyway. Returns null if nothing fits.
+     */
+    public Pairing tryPair(MatchmakingQueueEntry entry, Instant now) {
+        ConcurrentSkipListSet<MatchmakingQueueEntry> queue = queuesByType.get(entry.getMatchType());
+        if (queue == null) {
+            return null;
+        }
+        synchronized (queue) {
+            if (!queue.contains(entry)) {
+                return null; // Already paired by a concurrent sweep or left the queue
+            }
+            MatchmakingQueueEntry opponent = closestOpponent(queue, entry, eloRangeFor(entry, now));
+            if (opponent == null) {
+                MatchmakingQueueEntry lower = queue.lower(entry);
+                MatchmakingQueueEntry higher = queue.higher(entry);
+                opponent = acceptsAsOpponent(lower, entry, now) ? lower
+                         : acceptsAsOpponent(higher, entry, now) ? higher : null;
+            }
+            return opponent != null ? take(queue, entry, opponent) : null;
+        }
+    }
+
+    private static boolean acceptsAsOpponent(MatchmakingQueueEntry waiting, MatchmakingQueueEntry entry, Instant now) {
+        return waiting != null && Math.abs(waiting.getEloRating() - entry.getEloRating()) <= eloRangeFor(waiting, now);
+    }
+
+    private Pairing take(ConcurrentSkipListSet<MatchmakingQueueEntry> queue,
+                         MatchmakingQueueEntry entry, MatchmakingQueueEntry opponent) {
+        queue.remove(entry);
+        queue.remove(opponent);
+        entriesByPlayer.remove(entry.getPlayerId(), entry);
+        entriesByPlayer.remove(opponent.getPlayerId(), opponent);
+        return new Pairing(entry, opponent);
+    }
+
+    // Ближайший по ELO сосед в пределах окна (соседи в skip list - это и есть кандидаты)
+    private MatchmakingQueueEntry closestOpponent(ConcurrentSkipListSet<MatchmakingQueueEntry> queue,
+                                                 MatchmakingQueueEntry entry, int range) {
+        MatchmakingQueueEntry lower = queue.lower(entry);
+        MatchmakingQueueEntry higher = queue.higher(entry);
+        int lowerGap = lower != null ? entry.getEloRating() - lower.getEloRating() : Integer.MAX_VALUE;
+        int higherGap = higher != null ? higher.getEloRating() - entry.getEloRating() : Integer.MAX_VALUE;
+
+        MatchmakingQueueEntry best;
+        if (lowerGap == higherGap) {
+            best = lower == null ? null : BY_WAIT.compare(lower, higher) <= 0 ? lower : higher;
+        } else {
+            best = lowerGap < higherGap ? lower : higher;
+        }
+        if (best == null || Math.abs(best.getEloRating() - entry.getEloRating()) > range) {
+            return null;
+        }
+        return best;
+    }
+
+    private ConcurrentSkipListSet<MatchmakingQueueEntry> queueFor(String matchType) {
+        return queuesByType.computeIfAbsent(matchType, type -> new ConcurrentSkipListSet<>(BY_ELO));
+    }
+}
@@ -4,52 +4,78 @@ import com.aitstudgroup.ala_ata.demo.model.MatchmakingQueueEntry;
 import com.aitstudgroup.ala_ata.demo.model.Player;
 import com.aitstudgroup.ala_ata.demo.model.AIModel;
 import com.aitstudgroup.ala_ata.demo.model.Match;
+import com.aitstudgroup.ala_ata.demo.model.Pairing;
 import com.aitstudgroup.ala_ata.demo.repository.MatchmakingQueueRepository;
 import com.aitstudgroup.ala_ata.demo.repository.PlayerRepository;
 import com.aitstudgroup.ala_ata.demo.repository.AIModelRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.util.function.Tuple2;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class MatchmakingService {
     private static final Logger logger = LoggerFactory.getLogger(MatchmakingService.class);
-    private static final int ELO_RANGE_INITIAL = 100; // Initial ELO search range (+/-)
-    private static final int ELO_RANGE_EXPANSION_RATE = 50; // How much to expand ELO range per interval
-    private static final long MAX_WAIT_SECONDS_FOR_EXPANSION = 30; // Seconds to wait before expanding ELO range
     private static final long QUEUE_TIMEOUT_MINUTES = 5; // Remove player from queue after this many minutes
 
     private final MatchmakingQueueRepository matchmakingQueueRepository;
     private final PlayerRepository playerRepository;
     private final AIModelRepository aiModelRepository;
     private final MatchService matchService; // To create actual matches
+    private final MatchmakingPool matchmakingPool; // In-memory queue; the table is its durable mirror
     private final Random random = new Random();
     private final R2dbcEntityTemplate r2dbcEntityTemplate;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Timer> timeToMatchTimers = new ConcurrentHashMap<>(); // По типу матча, строятся один раз
+    private final boolean batchMode; // Min-cost matching over the whole queue instead of greedy pairing
+    private final Duration claimTimeout; // Claims older than this were abandoned by a dead instance
 
     @Autowired
     public MatchmakingService(MatchmakingQueueRepository matchmakingQueueRepository,
                               PlayerRepository playerRepository,
                               AIModelRepository aiModelRepository,
                               MatchService matchService,
-                              R2dbcEntityTemplate r2dbcEntityTemplate) {
+                              MatchmakingPool matchmakingPool,
+                              R2dbcEntityTemplate r2dbcEntityTemplate,
+                              MeterRegistry meterRegistry,
+                              @Value("${matchmaking.batch-mode:false}") boolean batchMode,
+                              @Value("${matchmaking.claim-timeout-seconds:60}") long claimTimeoutSeconds) {
         this.matchmakingQueueRepository = matchmakingQueueRepository;
         this.playerRepository = playerRepository;
         this.aiModelRepository = aiModelRepository;
         this.matchService = matchService;
+        this.matchmakingPool = matchmakingPool;
         this.r2dbcEntityTemplate = r2dbcEntityTemplate;
+        this.meterRegistry = meterRegistry;
+        this.batchMode = batchMode;
+        this.claimTimeout = Duration.ofSeconds(claimTimeoutSeconds);
     }
 
-    @Transactional
+    // Not @Transactional: the queue row is a single write and must be committed before the
+    // immediate pairing attempt below deletes it again through MatchService.
     public Mono<MatchmakingQueueEntry> joinQueue(Long playerId, Long modelId, String matchType) {
         logger.info("[JOIN_QUEUE_START] PlayerId: {}, ModelId: {}, MatchType: {}", playerId, modelId, matchType);
 
@@ -122,32 +148,84 @@ public class MatchmakingService {
                                 .using(newEntry);
                     }));
             })
+            .doOnSuccess(entry -> {
+                if (entry != null) {
+                    matchmakingPool.add(entry);
+                    logger.info("[JOIN_QUEUE_POOLED] PlayerId: {} added to in-memory pool ({} entries).", entry.getPlayerId(), matchmakingPool.size());
+                }
+            })
+            .flatMap(entry -> pairOnJoin(entry).thenReturn(entry))
             .doOnError(e -> logger.error("[JOIN_QUEUE_ERROR] Error in joinQueue for PlayerId: {}, ModelId: {}: Message: {}. Cause: {}", 
                                         playerId, modelId, e.getMessage(), e.getCause() != null ? e.getCause().getMessage() : "N/A", e));
     }
 
+    // Event-driven path: pair right after joining instead of waiting for the next sweep
+    private Mono<Match> pairOnJoin(MatchmakingQueueEntry entry) {
+        Pairing pairing = matchmakingPool.tryPair(entry, Instant.now());
+        if (pairing == null) {
+            logger.debug("[JOIN_QUEUE_NO_IMMEDIATE_MATCH] PlayerId: {} waits for the sweep.", entry.getPlayerId());
+            return Mono.empty();
+        }
+        logger.info("[JOIN_QUEUE_IMMEDIATE_MATCH] PlayerId: {} paired on join with PlayerId: {}.",
+                    entry.getPlayerId(), pairing.getSecond().getPlayerId());
+        return claim(pairing)
+            .flatMapMany(claimed -> createMatchesForClaimed(List.of(claimed)))
+            .next();
+    }
+
     @Transactional
     public Mono<Void> leaveQueue(Long playerId) {
         logger.info("Player {} attempting to leave matchmaking queue.", playerId);
+        matchmakingPool.remove(playerId);
         return matchmakingQueueRepository.deleteById(playerId)
             .doOnSuccess(v -> logger.info("Player {} successfully removed from queue.", playerId))
             .doOnError(e -> logger.error("Error removing player {} from queue: {}", playerId, e.getMessage()));
     }
 
+    // Restore the in-memory pool from the durable mirror after a restart
+    @EventListener(ApplicationReadyEvent.class)
+    public void restorePool() {
+        syncPoolFromMirror()
+            .subscribe(
+                count -> logger.info("Restored {} matchmaking entries into the in-memory pool.", count),
+                error -> logger.error("Failed to restore matchmaking pool: {}", error.getMessage(), error)
+            );
+    }
+
+    // One bulk read per tick picks up entries that joined through other instances.
+    // Stale entries that slip in are harmless: their claim simply fails.
+    private Mono<Long> syncPoolFromMirror() {
+        return matchmakingQueueRepository.findByStatus("SEARCHING")
+            .filter(entry -> !matchmakingPool.contains(entry.getPlayerId()))
+            .doOnNext(matchmakingPool::add)
+            .count();
+    }
+
+    // Joins pair immediately; this sweep only catches entries whose window has widened since
     @Scheduled(fixedDelay = 5000)
     public void processMatchmakingQueue() {
-        logger.debug("Processing matchmaking queue...");
-        matchmakingQueueRepository.findByStatus("SEARCHING")
-            .filter(entry -> {
-                if (entry.getSearchStartTime().plus(QUEUE_TIMEOUT_MINUTES, ChronoUnit.MINUTES).isBefore(Instant.now())) {
-                    logger.info("Player {} (ELO {}) timed out from queue for type {}. Removing.", 
-                                entry.getPlayerId(), entry.getEloRating(), entry.getMatchType());
-                    matchmakingQueueRepository.deleteById(entry.getPlayerId()).subscribe();
-                    return false;
-                }
-                return true;
+        logger.debug("Processing matchmaking queue ({} pooled entries)...", matchmakingPool.size());
+        Instant now = Instant.now();
+        Instant timeout = now.minus(QUEUE_TIMEOUT_MINUTES, ChronoUnit.MINUTES);
+
+        List<MatchmakingQueueEntry> timedOut = matchmakingPool.evictWaitingSince(timeout);
+        timedOut.forEach(entry -> logger.info("Player {} (ELO {}) timed out from queue for type {}. Removing.",
+                                               entry.getPlayerId(), entry.getEloRating(), entry.getMatchType()));
+        Mono<Integer> mirrorCleanup = timedOut.isEmpty()
+            ? Mono.just(0)
+            : matchmakingQueueRepository.deleteTimedOutEntries(timeout);
+
+        mirrorCleanup
+            .then(recoverStaleClaims(now.minus(claimTimeout)))
+            .then(syncPoolFromMirror())
+            .doOnNext(synced -> {
+                if (synced > 0) logger.debug("Picked up {} queue entries from other instances.", synced);
             })
-            .flatMap(this::findAndCreateMatch)
+            .thenMany(Flux.defer(() -> Flux.fromIterable(
+                batchMode ? matchmakingPool.pairAllBatch(now) : matchmakingPool.pairAll(now))))
+            .flatMap(this::claim) // Claims make concurrent pairings safe
+            .collectList()
+            .flatMapMany(this::createMatchesForClaimed)
             .subscribe(
                 match -> logger.info("Successfully created match {} for players {} and {}.", 
                                    match.getId(), match.getPlayer1Id(), match.getPlayer2Id()),
@@ -156,40 +234,128 @@ public class MatchmakingService {
             );
     }
 
-    private Mono<Match> findAndCreateMatch(MatchmakingQueueEntry entry1) {
-        long secondsWaited = ChronoUnit.SECONDS.between(entry1.getSearchStartTime(), Instant.now());
-        int currentEloRange = ELO_RANGE_INITIAL + (int) (secondsWaited / MAX_WAIT_SECONDS_FOR_EXPANSION) * ELO_RANGE_EXPANSION_RATE;
-        
-        logger.debug("Attempting to find match for player {} (ELO {}), type {}, waited {}s, ELO range {}", 
-                     entry1.getPlayerId(), entry1.getEloRating(), entry1.getMatchType(), secondsWaited, currentEloRange);
-
-        return matchmakingQueueRepository
-            .findPotentialMatches(entry1.getMatchType(), 
-                                  entry1.getEloRating() - currentEloRange, 
-                                  entry1.getEloRating() + currentEloRange,
-                                  entry1.getPlayerId())
-            .next()
-            .flatMap(entry2 -> {
-                logger.info("Potential match found: Player {} (ELO {}) vs Player {} (ELO {}) for type {}", 
-                            entry1.getPlayerId(), entry1.getEloRating(), entry2.getPlayerId(), entry2.getEloRating(), entry1.getMatchType());
-                
-                return matchmakingQueueRepository.deleteById(entry1.getPlayerId())
-                    .then(matchmakingQueueRepository.deleteById(entry2.getPlayerId()))
-                    .then(matchService.createMatch(
-                        entry1.getPlayerId(), 
-                        entry2.getPlayerId(), 
-                        entry1.getModelId(), 
-                        entry2.getModelId(), 
-                        entry1.getMatchType()))
-                    .doOnSuccess(match -> logger.info("Match {} created for players {} and {}.", 
-                                                    match.getId(), entry1.getPlayerId(), entry2.getPlayerId()))
-                    .doOnError(e -> logger.error("Failed to create match for {} and {}: {}", 
-                                                 entry1.getPlayerId(), entry2.getPlayerId(), e.getMessage()));
+    // Claims of an instance that died mid-pairing: players whose claim produced a match are dequeued, the rest searches again
+    private Mono<Void> recoverStaleClaims(Instant claimedBefore) {
+        return matchmakingQueueRepository.deleteStaleClaimsOfMatchedPlayers(claimedBefore)
+            .flatMap(dequeued -> matchmakingQueueRepository.resetStaleClaims(claimedBefore)
+                .doOnNext(reset -> {
+                    if (dequeued + reset > 0) {
+                        logger.warn("Recovered stale matchmaking claims: {} dequeued (match of the claim exists), {} back to SEARCHING.",
+                                    dequeued, reset);
+                    }
+                }))
+            .onErrorResume(e -> {
+                logger.error("Failed to recover stale matchmaking claims: {}", e.getMessage());
+                return Mono.empty();
             })
-            .switchIfEmpty(Mono.<Match>defer(() -> {
-                logger.debug("No suitable opponent found for player {} in this cycle.", entry1.getPlayerId());
+            .then();
+    }
+
+    // Claim both queue rows first; only the instance that wins the claim creates the match
+    private Mono<Pairing> claim(Pairing pairing) {
+        MatchmakingQueueEntry entry1 = pairing.getFirst();
+        MatchmakingQueueEntry entry2 = pairing.getSecond();
+        logger.info("Potential match found: Player {} (ELO {}) vs Player {} (ELO {}) for type {}", 
+                    entry1.getPlayerId(), entry1.getEloRating(), entry2.getPlayerId(), entry2.getEloRating(), entry1.getMatchType());
+
+        return matchmakingQueueRepository.claimPair(entry1.getPlayerId(), entry2.getPlayerId())
+            .flatMap(claimed -> {
+                if (claimed != 2) {
+                    logger.info("Claim lost for players {} and {} (claimed {}). Returning still-searching entries to the pool.",
+                                entry1.getPlayerId(), entry2.getPlayerId(), claimed);
+                    return repoolIfSearching(entry1).then(repoolIfSearching(entry2)).then(Mono.<Pairing>empty());
+                }
+                return Mono.just(pairing);
+            })
+            .onErrorResume(e -> {
+                logger.error("Claim failed for players {} and {}: {}", entry1.getPlayerId(), entry2.getPlayerId(), e.getMessage());
                 return Mono.empty();
-            }));
+            });
+    }
+
+    // Create all claimed matches in one batch, then drop their queue rows in one statement.
+    // Matches are inserted, committed and announced chunk by chunk, so after a failure only the pairings
+    // without an inserted match are released; a failed cleanup never repools matched players
+    private Flux<Match> createMatchesForClaimed(List<Pairing> claimed) {
+        if (claimed.isEmpty()) {
+            return Flux.empty();
+        }
+        List<Match> inserted = new ArrayList<>();
+        return matchService.createMatches(claimed)
+            .doOnNext(inserted::add)
+            .then()
+            .onErrorResume(e -> {
+                logger.error("Failed to create {} matches ({} inserted): {}. Releasing the rest.", claimed.size(), inserted.size(), e.getMessage());
+                return Mono.empty();
+            })
+            .thenMany(Flux.defer(() -> settleClaimed(claimed, inserted)));
+    }
+
+    private Flux<Match> settleClaimed(List<Pairing> claimed, List<Match> matches) {
+        Set<Long> matchedPlayerIds = new HashSet<>();
+        matches.forEach(match -> {
+            matchedPlayerIds.add(match.getPlayer1Id());
+            matchedPlayerIds.add(match.getPlayer2Id());
+        });
+        List<Pairing> failed = claimed.stream()
+            .filter(p -> !matchedPlayerIds.contains(p.getFirst().getPlayerId()))
+            .collect(Collectors.toList());
+
+        Instant matchedAt = Instant.now();
+        claimed.stream()
+            .filter(p -> matchedPlayerIds.contains(p.getFirst().getPlayerId()))
+            .forEach(p -> {
+                recordTimeToMatch(p.getFirst(), matchedAt);
+                recordTimeToMatch(p.getSecond(), matchedAt);
+            });
+
+        Mono<Integer> dequeueMatched = matchedPlayerIds.isEmpty()
+            ? Mono.just(0)
+            : matchmakingQueueRepository.deleteByPlayerIds(matchedPlayerIds)
+                .retry(2)
+                .onErrorResume(e -> {
+                    // Строки остаются claimed; recoverStaleClaims удалит их, раз матч этого claim создан
+                    logger.error("Failed to dequeue {} matched players: {}", matchedPlayerIds.size(), e.getMessage());
+                    return Mono.just(0);
+                });
+        return dequeueMatched
+            .then(releaseAndRepool(failed)
+                .onErrorResume(e -> {
+                    logger.error("Failed to release {} unmatched pairings: {}", failed.size(), e.getMessage());
+                    return Mono.empty();
+                }))
+            .thenMany(Flux.fromIterable(matches));
+    }
+
+    private Mono<Void> releaseAndRepool(List<Pairing> pairings) {
+        if (pairings.isEmpty()) {
+            return Mono.empty();
+        }
+        List<Long> playerIds = pairings.stream()
+            .flatMap(p -> Stream.of(p.getFirst().getPlayerId(), p.getSecond().getPlayerId()))
+            .collect(Collectors.toList());
+        return matchmakingQueueRepository.releaseClaims(playerIds)
+            .thenMany(Flux.fromIterable(pairings))
+            .concatMap(p -> repoolIfSearching(p.getFirst()).then(repoolIfSearching(p.getSecond())))
+            .then();
+    }
+
+    private Mono<Void> repoolIfSearching(MatchmakingQueueEntry entry) {
+        return matchmakingQueueRepository.findById(entry.getPlayerId())
+            .filter(current -> "SEARCHING".equals(current.getStatus()) && !matchmakingPool.contains(current.getPlayerId()))
+            .doOnNext(matchmakingPool::add)
+            .then();
+    }
+
+    // Per-match-type time-to-match histogram, exposed as matchmaking.time.to.match via /actuator/metrics
+    private void recordTimeToMatch(MatchmakingQueueEntry entry, Instant matchedAt) {
+        timeToMatchTimers.computeIfAbsent(entry.getMatchType(), matchType -> Timer.builder("matchmaking.time.to.match")
+                .description("Time from joining the queue to getting a match")
+                .tag("matchType", matchType)
+                .publishPercentiles(0.5, 0.99)
+                .publishPercentileHistogram()
+                .register(meterRegistry))
+            .record(Duration.between(entry.getSearchStartTime(), matchedAt));
     }
 
     @Scheduled(cron = "0 0 * * * ?")
@@ -1,6 +1,8 @@
 package com.aitstudgroup.ala_ata.demo.service;
 
+import com.aitstudgroup.ala_ata.demo.model.BenchmarkResult;
 import com.aitstudgroup.ala_ata.demo.model.Match;
+import com.aitstudgroup.ala_ata.demo.model.OptimizationProblem;
 import com.aitstudgroup.ala_ata.demo.model.OptimizationRallyState;
 import com.aitstudgroup.ala_ata.demo.model.OptimizationStepProgress;
 import com.aitstudgroup.ala_ata.demo.repository.MatchRepository;
@@ -10,54 +12,59 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import reactor.core.publisher.Mono;
 
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class OptimizationRallyService {
     private static final Logger logger = LoggerFactory.getLogger(OptimizationRallyService.class);
     private final ObjectMapper objectMapper; // For JSON conversion
-    private final SimpMessagingTemplate messagingTemplate; // For WebSocket updates
+    private final GameStateBroadcaster gameStateBroadcaster; // For WebSocket updates (versioned deltas)
     private final MatchRepository matchRepository;
-    private final Random random = new Random();
-
-    // Default game data (can be moved to config or DB later)
-    private static final String DEFAULT_PROBLEM_DESCRIPTION = "Задача: Оптимизировать функцию сортировки массива чисел (Bubble Sort)";
-    private static final String DEFAULT_ORIGINAL_CODE = "function bubbleSort(arr) {\n" +
-            "  let len = arr.length;\n" +
-            "  for (let i = 0; i < len; i++) {\n" +
-            "    for (let j = 0; j < len - i - 1; j++) {\n" +
-            "      if (arr[j] > arr[j + 1]) {\n" +
-            "        let temp = arr[j];\n" +
-            "        arr[j] = arr[j + 1];\n" +
-            "        arr[j + 1] = temp;\n" +
-            "      }\n" +
-            "    }\n" +
-            "  }\n" +
-            "  return arr;\n" +
-            "}";
-    private static final int DEFAULT_TIME_STEPS = 5;
+    private final LiveMatchStateStore liveMatchStateStore;
+    private final MatchActorExecutor matchActorExecutor;
+    private final EvaluationCache evaluationCache;
+    private final EvaluationPipeline evaluationPipeline;
+    private final ProblemCatalog problemCatalog;
+    private final Set<String> evaluatingSubmissions = ConcurrentHashMap.newKeySet(); // "matchId:userId" of submissions in the pipeline
+
+    // Результат действия на шарде матча: gameStateJson == null, если отправка проигнорирована
+    private record SubmissionOutcome(OptimizationRallyState gameState, String gameStateJson, boolean gameOver) {}
+
+    private static final int FAILED_RELATIVE_COST = 200; // Cost index for submissions that fail, time out or give wrong results
 
     @Autowired
-    public OptimizationRallyService(ObjectMapper objectMapper, SimpMessagingTemplate messagingTemplate, MatchRepository matchRepository) {
+    public OptimizationRallyService(ObjectMapper objectMapper, GameStateBroadcaster gameStateBroadcaster, MatchRepository matchRepository,
+                                    LiveMatchStateStore liveMatchStateStore,
+                                    MatchActorExecutor matchActorExecutor,
+                                    EvaluationCache evaluationCache,
+                                    EvaluationPipeline evaluationPipeline,
+                                    ProblemCatalog problemCatalog) {
         this.objectMapper = objectMapper;
-        this.messagingTemplate = messagingTemplate;
+        this.gameStateBroadcaster = gameStateBroadcaster;
         this.matchRepository = matchRepository;
+        this.liveMatchStateStore = liveMatchStateStore;
+        this.matchActorExecutor = matchActorExecutor;
+        this.evaluationCache = evaluationCache;
+        this.evaluationPipeline = evaluationPipeline;
+        this.problemCatalog = problemCatalog;
     }
 
     public OptimizationRallyState initializeNewGame(Long player1Id, Long player2Id) {
         OptimizationRallyState gameState = new OptimizationRallyState();
         gameState.setPlayer1Id(player1Id);
         gameState.setPlayer2Id(player2Id);
-        gameState.setProblemDescription(DEFAULT_PROBLEM_DESCRIPTION);
-        gameState.setOriginalCode(DEFAULT_ORIGINAL_CODE);
-        gameState.setTimeSteps(DEFAULT_TIME_STEPS);
+        OptimizationProblem problem = problemCatalog.randomProblem();
+        gameState.setProblemId(problem.getId());
+        gameState.setProblemDescription(problem.getDescription());
+        gameState.setOriginalCode(problem.getOriginalCode());
+        gameState.setTimeSteps(problem.getTimeSteps());
         gameState.setCurrentStep(1); // Start at step 1
         gameState.setGameStatus(OptimizationRallyState.GameStatus.ROUND_IN_PROGRESS); 
         // Or AWAITING_PLAYER_1_SUBMISSION if turns are sequential
@@ -92,36 +99,56 @@ public class OptimizationRallyService {
         }
     }
     
-    // Placeholder for code evaluation - to be expanded significantly
-    private Map<String, Object> evaluateCode(String code, String originalCode) {
+    // Реальная оценка: решение прогоняется в песочнице (через кэш результатов) и сравнивается с замером исходного кода из каталога
+    private Mono<Map<String, Object>> evaluateCode(String code, OptimizationProblem problem) {
+        return Mono.zip(evaluationCache.benchmark(code, problem), problemCatalog.originalBaseline(problem))
+            .map(results -> {
+                Map<String, Object> metrics = toMetrics(results.getT1(), results.getT2(), problemCatalog.referenceBaseline(problem));
+                logger.debug("Evaluated code (length {}) for problem {}, metrics: {}", code.length(), problem.getId(), metrics);
+                return metrics;
+            });
+    }
+
+    /**
+     * executionTime and memoryUsage are indices relative to the original code on the largest
+     * input size both runs completed (original = 100), so calculateEfficiency keeps its scale.
+     * The raw numbers for that size are reported alongside, and so is the reference solution's
+     * time index once the catalog has measured it, as the target to aim for.
+     */
+    private Map<String, Object> toMetrics(BenchmarkResult submission, BenchmarkResult baseline, BenchmarkResult reference) {
         Map<String, Object> metrics = new HashMap<>();
-        // Simple heuristic: longer code might be more complex or less efficient initially
-        // Shorter code might be more efficient. This is a gross simplification.
-        int executionTime = 50 + random.nextInt(100) + (code.length() / 10); // Base + random + length factor
-        int memoryUsage = 50 + random.nextInt(50) + (code.length() / 20);
-        
-        metrics.put("executionTime", Math.max(20, executionTime)); // Ensure minimums
-        metrics.put("memoryUsage", Math.max(30, memoryUsage));
-
-        // Mock complexity based on common patterns (very simplified)
-        if (code.contains("for (") && code.substring(code.indexOf("for (") + 1).contains("for (")) {
-            metrics.put("complexity", "n^2");
-        } else if (code.contains("for (") || code.contains("while (") || code.contains(".forEach(") || code.contains(".map(")) {
-            metrics.put("complexity", "n");
-        } else if (code.contains(".sort(")) {
-             metrics.put("complexity", "n log n");
-        }else {
-            metrics.put("complexity", "1"); // Constant time if no loops detected
+        if (!submission.isSuccessful()) {
+            metrics.put("executionTime", FAILED_RELATIVE_COST);
+            metrics.put("memoryUsage", FAILED_RELATIVE_COST);
+            metrics.put("complexity", "unknown");
+            metrics.put("error", submission.getError());
+            metrics.put("efficiencyScore", 0.0);
+            return metrics;
         }
-        
-        // Calculate efficiency score (example, align with frontend if possible)
-        double efficiency = calculateEfficiency(metrics);
-        metrics.put("efficiencyScore", efficiency);
 
-        logger.debug("Evaluated code (length {}), original (length {}), metrics: {}", code.length(), originalCode.length(), metrics);
+        int last = submission.getInputSizes().length - 1;
+        int common = baseline.isSuccessful() ? submission.largestCommonPoint(baseline) : -1;
+        metrics.put("executionTime", common < 0 ? 100 : relativeIndex(submission.getNanos()[common], baseline.getNanos()[common]));
+        metrics.put("memoryUsage", common < 0 ? 100 : relativeIndex(submission.getAllocatedBytes()[common], baseline.getAllocatedBytes()[common]));
+        metrics.put("complexity", submission.getComplexity());
+        metrics.put("inputSize", submission.getInputSizes()[last]);
+        metrics.put("executionTimeMs", Math.round(submission.getNanos()[last] / 1_000.0) / 1_000.0);
+        metrics.put("allocatedKb", submission.getAllocatedBytes()[last] / 1024);
+        int referencePoint = reference != null && baseline.isSuccessful() ? reference.largestCommonPoint(baseline) : -1;
+        if (referencePoint >= 0) {
+            metrics.put("referenceExecutionTime", relativeIndex(reference.getNanos()[referencePoint], baseline.getNanos()[referencePoint]));
+        }
+        metrics.put("efficiencyScore", calculateEfficiency(metrics));
         return metrics;
     }
 
+    private static int relativeIndex(long value, long reference) {
+        if (reference <= 0) {
+            return 100;
+        }
+        return (int) Math.max(1, Math.min(1000, Math.round(100.0 * value / reference)));
+    }
+
     // Basic efficiency calculation (can be aligned with frontend logic)
     private double calculateEfficiency(Map<String, Object> metrics) {
         double executionTime = ((Number) metrics.getOrDefault("executionTime", 200)).doubleValue();
@@ -158,91 +185,184 @@ public class OptimizationRallyService {
 
     // Method to send game state updates via WebSocket
     public void broadcastGameStateUpdate(Long matchId, OptimizationRallyState gameState) {
+        broadcastGameStateJson(matchId, convertGameStateToJson(gameState));
+    }
+
+    // Отправка уже сериализованного состояния (сериализуем один раз под монитором живого матча)
+    private void broadcastGameStateJson(Long matchId, String gameStateJson) {
         String topic = "/topic/duel/" + matchId + "/optimization/state";
-        try {
-            String gameStateJson = convertGameStateToJson(gameState);
-            messagingTemplate.convertAndSend(topic, gameStateJson);
-            logger.info("Broadcasted Optimization Rally game state update to {}: {}", topic, gameStateJson);
-        } catch (Exception e) {
-            logger.error("Error broadcasting game state update for match {}: {}", matchId, e.getMessage());
-        }
+        gameStateBroadcaster.broadcastJson(topic, gameStateJson);
+        logger.debug("Broadcasted Optimization Rally game state update to {}: {}", topic, gameStateJson);
     }
 
-    // Method to handle player code submission
+    /**
+     * Handles a player's code submission without evaluating it on the caller's thread.
+     * The submission is first accepted on the match's shard (the player shows up in
+     * evaluatingPlayerIds and that state is broadcast); the returned Mono completes right there.
+     * Evaluation goes on detached: the submission is queued in the evaluation pipeline, and the
+     * result is applied back on the shard and broadcast again. If the pipeline is full, the
+     * submission is rejected with reason BUSY.
+     */
     public Mono<OptimizationRallyState> handlePlayerCodeSubmission(Long matchId, Long userId, String submittedCode, int stepNumber) {
-        return matchRepository.findById(matchId)
-            .switchIfEmpty(Mono.error(new IllegalArgumentException("Match not found: " + matchId)))
-            .flatMap(match -> {
-                OptimizationRallyState gameState = convertJsonToGameState(match.getMatchData());
-                if (gameState == null) {
-                    return Mono.error(new IllegalStateException("Could not parse game state for match: " + matchId));
-                }
-
-                if (gameState.getGameStatus() == OptimizationRallyState.GameStatus.GAME_OVER) {
-                    logger.warn("Attempt to submit code for already ended match {}. Ignoring.", matchId);
-                    return Mono.just(gameState); // Return current state without changes
-                }
-
-                if (stepNumber != gameState.getCurrentStep()) {
-                    logger.warn("Submission for wrong step. Match {}, User {}, Submitted Step {}, Current Step {}. Ignoring.", 
-                                matchId, userId, stepNumber, gameState.getCurrentStep());
-                    return Mono.just(gameState); // Or error, depending on desired strictness
-                }
-
-                // Determine if player is P1 or P2 and if they already submitted for this step
-                boolean isPlayer1 = userId.equals(gameState.getPlayer1Id());
-                List<OptimizationStepProgress> playerProgress = isPlayer1 ? gameState.getPlayer1Progress() : gameState.getPlayer2Progress();
-
-                // Check if player already submitted for this step (simple check by list size vs current step)
-                if (playerProgress.size() >= gameState.getCurrentStep()) {
-                    logger.warn("Player {} already submitted for step {} in match {}. Ignoring duplicate submission.", 
-                                userId, gameState.getCurrentStep(), matchId);
-                    // Optionally, allow re-submission by removing the last entry and adding a new one.
-                    // For now, we ignore subsequent submissions for the same step by the same player.
-                    return Mono.just(gameState);
-                }
-
-                Map<String, Object> metrics = evaluateCode(submittedCode, gameState.getOriginalCode());
-                OptimizationStepProgress newProgress = new OptimizationStepProgress(submittedCode, metrics);
-                playerProgress.add(newProgress); // Assumes list size correctly corresponds to steps completed by this player
-
-                gameState.setLastSubmittingPlayerId(userId);
-
-                // Update game status based on submissions for the current step
-                int player1Submissions = gameState.getPlayer1Progress().size();
-                int player2Submissions = gameState.getPlayer2Progress().size();
-                int currentStep = gameState.getCurrentStep();
-
-                if (player1Submissions == currentStep && player2Submissions == currentStep) {
-                    // Both players have submitted for the current step
-                    if (currentStep < gameState.getTimeSteps()) {
-                        gameState.setGameStatus(OptimizationRallyState.GameStatus.ROUND_COMPLETED); // Intermediate status, frontend might show results then prompt to advance
-                        // Or automatically advance to next round and set to ROUND_IN_PROGRESS
-                        gameState.setCurrentStep(currentStep + 1);
-                        gameState.setGameStatus(OptimizationRallyState.GameStatus.ROUND_IN_PROGRESS);
-                        logger.info("Match {}, Step {}: Both players submitted. Advancing to step {}.", matchId, currentStep, gameState.getCurrentStep());
-                    } else {
-                        gameState.setGameStatus(OptimizationRallyState.GameStatus.GAME_OVER);
-                        logger.info("Match {}: Game Over. All steps completed.", matchId);
-                        // Here, we might also trigger MatchService.finishMatch logic if not handled by a separate call
+        return liveMatchStateStore.getOrLoad(matchId, OptimizationRallyState.class)
+            .flatMap(live -> matchActorExecutor.execute(matchId, () -> acceptSubmission(matchId, live.getState(), userId, stepNumber))
+                .map(accepted -> {
+                    publishOutcome(matchId, accepted);
+                    if (accepted.gameStateJson() != null) {
+                        // Оценка не держит слот входящего диспетчера: ее ограничивает EvaluationPipeline
+                        evaluateAndApply(matchId, live, userId, submittedCode, stepNumber).subscribe(
+                            state -> logger.debug("Submission of player {} in match {} evaluated, status {}", userId, matchId, state.getGameStatus()),
+                            error -> logger.error("Error evaluating submission of player {} in match {}: {}", userId, matchId, error.getMessage())
+                        );
                     }
-                } else if (player1Submissions == currentStep) {
-                    gameState.setGameStatus(OptimizationRallyState.GameStatus.AWAITING_PLAYER_2_SUBMISSION);
-                     logger.info("Match {}, Step {}: Player 1 submitted. Awaiting Player 2.", matchId, currentStep);
-                } else if (player2Submissions == currentStep) {
-                    gameState.setGameStatus(OptimizationRallyState.GameStatus.AWAITING_PLAYER_1_SUBMISSION);
-                    logger.info("Match {}, Step {}: Player 2 submitted. Awaiting Player 1.", matchId, currentStep);
-                } else {
-                    // Should not happen if logic is correct, implies one player submitted more than current step allows
-                    logger.warn("Match {}, Step {}: Inconsistent submission count (P1: {}, P2: {}). Review logic.", 
-                                matchId, currentStep, player1Submissions, player2Submissions);
-                    gameState.setGameStatus(OptimizationRallyState.GameStatus.ROUND_IN_PROGRESS); // Default back
-                }
-                
-                String updatedMatchDataJson = convertGameStateToJson(gameState);
-                return matchRepository.updateMatchData(matchId, updatedMatchDataJson)
-                    .thenReturn(gameState) // Return the updated game state object
-                    .doOnSuccess(gs -> broadcastGameStateUpdate(matchId, gs));
-            });
+                    return accepted.gameState();
+                }));
+    }
+
+    private Mono<OptimizationRallyState> evaluateAndApply(Long matchId, LiveMatchStateStore.LiveMatch<OptimizationRallyState> live, Long userId, String submittedCode, int stepNumber) {
+        // Задача не меняется после инициализации, ее можно читать вне шарда
+        OptimizationProblem problem = problemCatalog.getProblem(live.getState().getProblemId());
+        // Оба результата уже готовы - очередь оценки не нужна
+        Mono<Map<String, Object>> cachedMetrics = Mono.zip(evaluationCache.getIfCompleted(submittedCode, problem), problemCatalog.originalBaselineIfReady(problem))
+            .map(results -> toMetrics(results.getT1(), results.getT2(), problemCatalog.referenceBaseline(problem)));
+        return cachedMetrics
+            .switchIfEmpty(Mono.defer(() -> evaluationPipeline.submit(matchId, () -> evaluateCode(submittedCode, problem))))
+            .flatMap(metrics -> matchActorExecutor.execute(matchId,
+                () -> applySubmission(matchId, live.getState(), userId, submittedCode, stepNumber, metrics)))
+            .onErrorResume(error -> {
+                String reason = error instanceof EvaluationPipeline.PipelineBusyException ? "BUSY" : "EVALUATION_FAILED";
+                logger.warn("Submission of player {} in match {} rejected ({}): {}", userId, matchId, reason, error.getMessage());
+                return matchActorExecutor.execute(matchId, () -> rejectSubmission(matchId, live.getState(), userId, reason));
+            })
+            .doFinally(signal -> evaluatingSubmissions.remove(matchId + ":" + userId))
+            .flatMap(outcome -> publishOutcome(matchId, outcome));
+    }
+
+    // Разослать изменившееся состояние; GAME_OVER сначала пишется в match_data (write-through)
+    private Mono<OptimizationRallyState> publishOutcome(Long matchId, SubmissionOutcome outcome) {
+        OptimizationRallyState gameState = outcome.gameState();
+        if (outcome.gameStateJson() == null) {
+            return Mono.just(gameState);
+        }
+        if (!outcome.gameOver()) {
+            broadcastGameStateJson(matchId, outcome.gameStateJson());
+            return Mono.just(gameState);
+        }
+        return matchRepository.updateMatchData(matchId, outcome.gameStateJson())
+            .doOnSuccess(updated -> liveMatchStateStore.evict(matchId))
+            .thenReturn(gameState) // Return the updated game state object
+            .doOnSuccess(gs -> broadcastGameStateJson(matchId, outcome.gameStateJson()));
+    }
+
+    // Принять отправку в оценку (только на шарде матча): проверки шага и повторов, отметка "оценивается"
+    private SubmissionOutcome acceptSubmission(Long matchId, OptimizationRallyState gameState, Long userId, int stepNumber) {
+        if (gameState.getGameStatus() == OptimizationRallyState.GameStatus.GAME_OVER) {
+            logger.warn("Attempt to submit code for already ended match {}. Ignoring.", matchId);
+            return new SubmissionOutcome(gameState, null, false); // Return current state without changes
+        }
+
+        if (stepNumber != gameState.getCurrentStep()) {
+            logger.warn("Submission for wrong step. Match {}, User {}, Submitted Step {}, Current Step {}. Ignoring.", 
+                        matchId, userId, stepNumber, gameState.getCurrentStep());
+            return new SubmissionOutcome(gameState, null, false); // Or error, depending on desired strictness
+        }
+
+        List<OptimizationStepProgress> playerProgress = userId.equals(gameState.getPlayer1Id()) ? gameState.getPlayer1Progress() : gameState.getPlayer2Progress();
+        if (playerProgress.size() >= gameState.getCurrentStep() || !evaluatingSubmissions.add(matchId + ":" + userId)) {
+            logger.warn("Player {} already submitted for step {} in match {}. Ignoring duplicate submission.", 
+                        userId, gameState.getCurrentStep(), matchId);
+            return new SubmissionOutcome(gameState, null, false);
+        }
+
+        // evaluatingPlayerIds - для отображения; после рестарта там может остаться устаревшая отметка
+        gameState.getEvaluatingPlayerIds().remove(userId);
+        gameState.getEvaluatingPlayerIds().add(userId);
+        if (userId.equals(gameState.getRejectedPlayerId())) {
+            gameState.setRejectedPlayerId(null);
+            gameState.setRejectionReason(null);
+        }
+        liveMatchStateStore.markDirty(matchId);
+        return new SubmissionOutcome(gameState, convertGameStateToJson(gameState), false);
+    }
+
+    // Отклонить принятую отправку (только на шарде матча): игрок может отправить код заново
+    private SubmissionOutcome rejectSubmission(Long matchId, OptimizationRallyState gameState, Long userId, String reason) {
+        gameState.getEvaluatingPlayerIds().remove(userId);
+        gameState.setRejectedPlayerId(userId);
+        gameState.setRejectionReason(reason);
+        liveMatchStateStore.markDirty(matchId);
+        return new SubmissionOutcome(gameState, convertGameStateToJson(gameState), false);
+    }
+
+    // Применить оцененную отправку к живому состоянию; выполняется только на шарде матча
+    private SubmissionOutcome applySubmission(Long matchId, OptimizationRallyState gameState, Long userId,
+                                              String submittedCode, int stepNumber, Map<String, Object> metrics) {
+        gameState.getEvaluatingPlayerIds().remove(userId);
+        if (gameState.getGameStatus() == OptimizationRallyState.GameStatus.GAME_OVER) {
+            logger.warn("Attempt to submit code for already ended match {}. Ignoring.", matchId);
+            return new SubmissionOutcome(gameState, null, false); // Return current state without changes
+        }
+
+        if (stepNumber != gameState.getCurrentStep()) {
+            logger.warn("Submission for wrong step. Match {}, User {}, Submitted Step {}, Current Step {}. Ignoring.", 
+                        matchId, userId, stepNumber, gameState.getCurrentStep());
+            return new SubmissionOutcome(gameState, null, false); // Or error, depending on desired strictness
+        }
+
+        // Determine if player is P1 or P2 and if they already submitted for this step
+        boolean isPlayer1 = userId.equals(gameState.getPlayer1Id());
+        List<OptimizationStepProgress> playerProgress = isPlayer1 ? gameState.getPlayer1Progress() : gameState.getPlayer2Progress();
+
+        // Check if player already submitted for this step (simple check by list size vs current step)
+        if (playerProgress.size() >= gameState.getCurrentStep()) {
+            logger.warn("Player {} already submitted for step {} in match {}. Ignoring duplicate submission.", 
+                        userId, gameState.getCurrentStep(), matchId);
+            // Optionally, allow re-submission by removing the last entry and adding a new one.
+            // For now, we ignore subsequent submissions for the same step by the same player.
+            return new SubmissionOutcome(gameState, null, false);
+        }
+
+        OptimizationStepProgress newProgress = new OptimizationStepProgress(submittedCode, metrics);
+        playerProgress.add(newProgress); // Assumes list size correctly corresponds to steps completed by this player
+
+        gameState.setLastSubmittingPlayerId(userId);
+
+        // Update game status based on submissions for the current step
+        int player1Submissions = gameState.getPlayer1Progress().size();
+        int player2Submissions = gameState.getPlayer2Progress().size();
+        int currentStep = gameState.getCurrentStep();
+
+        if (player1Submissions == currentStep && player2Submissions == currentStep) {
+            // Both players have submitted for the current step
+            if (currentStep < gameState.getTimeSteps()) {
+                gameState.setGameStatus(OptimizationRallyState.GameStatus.ROUND_COMPLETED); // Intermediate status, frontend might show results then prompt to advance
+                // Or automatically advance to next round and set to ROUND_IN_PROGRESS
+                gameState.setCurrentStep(currentStep + 1);
+                gameState.setGameStatus(OptimizationRallyState.GameStatus.ROUND_IN_PROGRESS);
+                logger.info("Match {}, Step {}: Both players submitted. Advancing to step {}.", matchId, currentStep, gameState.getCurrentStep());
+            } else {
+                gameState.setGameStatus(OptimizationRallyState.GameStatus.GAME_OVER);
+                logger.info("Match {}: Game Over. All steps completed.", matchId);
+                // Here, we might also trigger MatchService.finishMatch logic if not handled by a separate call
+            }
+        } else if (player1Submissions == currentStep) {
+            gameState.setGameStatus(OptimizationRallyState.GameStatus.AWAITING_PLAYER_2_SUBMISSION);
+             logger.info("Match {}, Step {}: Player 1 submitted. Awaiting Player 2.", matchId, currentStep);
+        } else if (player2Submissions == currentStep) {
+            gameState.setGameStatus(OptimizationRallyState.GameStatus.AWAITING_PLAYER_1_SUBMISSION);
+            logger.info("Match {}, Step {}: Player 2 submitted. Awaiting Player 1.", matchId, currentStep);
+        } else {
+            // Should not happen if logic is correct, implies one player submitted more than current step allows
+            logger.warn("Match {}, Step {}: Inconsistent submission count (P1: {}, P2: {}). Review logic.", 
+                        matchId, currentStep, player1Submissions, player2Submissions);
+            gameState.setGameStatus(OptimizationRallyState.GameStatus.ROUND_IN_PROGRESS); // Default back
+        }
+
+        String updatedMatchDataJson = convertGameStateToJson(gameState);
+        boolean gameOver = gameState.getGameStatus() == OptimizationRallyState.GameStatus.GAME_OVER;
+        if (!gameOver) {
+            liveMatchStateStore.markDirty(matchId); // GAME_OVER пишется сразу в handlePlayerCodeSubmission (write-through)
+        }
+        return new SubmissionOutcome(gameState, updatedMatchDataJson, gameOver);
     }
-} 
\ No newline at end of file
+}
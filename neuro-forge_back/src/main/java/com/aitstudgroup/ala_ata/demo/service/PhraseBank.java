@@ -0,0 +1,267 @@
+package com.aitstudgroup.ala_ata.demo.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+
+/**
+ * Translation Battle phrases, loaded once from a tab-separated file
+ * (id, source_lang, target_lang, difficulty, text, correct_answer) into a columnar index;
+ * correct_answer may list several accepted translations separated by '|'.
+ * All texts and answers share one string pool addressed by offsets, language codes are
+ * interned to small numbers, and rows are sorted by id so an id resolves by binary search.
+ * Rows of each (sourceLang, targetLang, difficulty) are contiguous, so a query is a handful of
+ * row ranges and {@link #sample} draws distinct phrases from them without copying anything.
+ * Matches keep only the phrase ids.
+ */
+@Component
+public class PhraseBank {
+    private static final Logger logger = LoggerFactory.getLogger(PhraseBank.class);
+
+    private final String pool; // text_0 answer_0 text_1 answer_1 ... подряд, без разделителей
+    private final int[] poolOffsets; // Строка i: text = [2i, 2i+1), answer = [2i+1, 2i+2)
+    private final int[] ids;
+    private final int[] rowById; // Строки в порядке возрастания id (для бинарного поиска)
+    private final int[] sortedIds;
+    private final byte[] sourceLangs;
+    private final byte[] targetLangs;
+    private final byte[] difficulties;
+    private final String[] languages; // Интернированные коды языков, индекс - значение в sourceLangs/targetLangs
+    private final Map<Integer, int[]> bucketRanges; // ключ (source, target, difficulty) -> [from, to) строк
+
+    private record Row(int id, byte sourceLang, byte targetLang, byte difficulty, String text, String answer) {}
+
+    public PhraseBank(ResourceLoader resourceLoader,
+                      @Value("${phrase-bank.location:classpath:translation-phrases/phrases.tsv}") String location) {
+        Map<String, Byte> languageCodes = new LinkedHashMap<>();
+        List<Row> rows = readRows(resourceLoader.getResource(location), languageCodes);
+        if (rows.isEmpty()) {
+            throw new IllegalStateException("Phrase bank " + location + " is empty");
+        }
+        // Группируем строки по ключу индекса, чтобы каждый ключ был одним диапазоном
+        rows.sort((a, b) -> a.sourceLang() != b.sourceLang() ? Byte.compare(a.sourceLang(), b.sourceLang())
+            : a.targetLang() != b.targetLang() ? Byte.compare(a.targetLang(), b.targetLang())
+            : a.difficulty() != b.difficulty() ? Byte.compare(a.difficulty(), b.difficulty())
+            : Integer.compare(a.id(), b.id()));
+
+        int size = rows.size();
+        StringBuilder poolBuilder = new StringBuilder();
+        this.poolOffsets = new int[2 * size + 1];
+        this.ids = new int[size];
+        this.sourceLangs = new byte[size];
+        this.targetLangs = new byte[size];
+        this.difficulties = new byte[size];
+        this.bucketRanges = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            Row row = rows.get(i);
+            ids[i] = row.id();
+            sourceLangs[i] = row.sourceLang();
+            targetLangs[i] = row.targetLang();
+            difficulties[i] = row.difficulty();
+            poolOffsets[2 * i] = poolBuilder.length();
+            poolBuilder.append(row.text());
+            poolOffsets[2 * i + 1] = poolBuilder.length();
+            poolBuilder.append(row.answer());
+            int key = bucketKey(row.sourceLang(), row.targetLang(), row.difficulty());
+            int[] range = bucketRanges.computeIfAbsent(key, k -> new int[] {0, 0});
+            if (range[1] == 0) {
+                range[0] = i;
+            }
+            range[1] = i + 1;
+        }
+        poolOffsets[2 * size] = poolBuilder.length();
+        this.pool = poolBuilder.toString();
+        this.languages = languageCodes.keySet().toArray(new String[0]);
+
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Integer.compare(ids[a], ids[b]));
+        this.rowById = new int[size];
+        this.sortedIds = new int[size];
+        for (int i = 0; i < size; i++) {
+            rowById[i] = order[i];
+            sortedIds[i] = ids[order[i]];
+            if (i > 0 && sortedIds[i] == sortedIds[i - 1]) {
+                throw new IllegalStateException("Duplicate phrase id " + sortedIds[i] + " in " + location);
+            }
+        }
+        logger.info("Loaded {} phrases ({} language pairs/difficulties, {} chars) from {}",
+            size, bucketRanges.size(), pool.length(), location);
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * Up to {@code count} distinct phrase ids for the query, in random order. A null or empty
+     * language and a difficulty of 0 or less match anything. Runs in O(count + buckets), using
+     * Floyd's algorithm over the concatenated row ranges of the matching buckets.
+     */
+    public int[] sample(String sourceLang, String targetLang, int difficulty, int count) {
+        List<int[]> ranges = new ArrayList<>();
+        int total = 0;
+        for (Map.Entry<Integer, int[]> bucket : bucketRanges.entrySet()) {
+            int key = bucket.getKey();
+            if (matches(sourceLang, key >>> 16 & 0xFF) && matches(targetLang, key >>> 8 & 0xFF)
+                && (difficulty <= 0 || difficulty == (key & 0xFF))) {
+                ranges.add(bucket.getValue());
+                total += bucket.getValue()[1] - bucket.getValue()[0];
+            }
+        }
+        int picked = Math.min(count, total);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Set<Integer> chosen = new HashSet<>(picked * 2);
+        int[] result = new int[picked];
+        int next = 0;
+        for (int j = total - picked; j < total; j++) {
+            int candidate = random.nextInt(j + 1);
+            if (!chosen.add(candidate)) {
+                candidate = j;
+                chosen.add(j);
+            }
+            result[next++] = ids[rowAt(ranges, candidate)];
+        }
+        // Floyd дает случайное множество, но не порядок: перемешиваем
+        for (int i = result.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = result[i];
+            result[i] = result[j];
+            result[j] = swap;
+        }
+        return result;
+    }
+
+    public String getText(int phraseId) {
+        int row = indexOf(phraseId);
+        return pool.substring(poolOffsets[2 * row], poolOffsets[2 * row + 1]);
+    }
+
+    // Принятые переводы через '|' (см. TranslationScorer)
+    public String getCorrectAnswer(int phraseId) {
+        int row = indexOf(phraseId);
+        return pool.substring(poolOffsets[2 * row + 1], poolOffsets[2 * row + 2]);
+    }
+
+    public String getCorrectAnswerAt(int index) {
+        return pool.substring(poolOffsets[2 * index + 1], poolOffsets[2 * index + 2]);
+    }
+
+    public String getSourceLang(int phraseId) {
+        return languages[sourceLangs[indexOf(phraseId)] & 0xFF];
+    }
+
+    public String getTargetLang(int phraseId) {
+        return languages[targetLangs[indexOf(phraseId)] & 0xFF];
+    }
+
+    public int getDifficulty(int phraseId) {
+        return difficulties[indexOf(phraseId)] & 0xFF;
+    }
+
+    public boolean contains(int phraseId) {
+        return Arrays.binarySearch(sortedIds, phraseId) >= 0;
+    }
+
+    // Фраза для отправки игрокам - без правильного ответа
+    public Map<String, Object> describe(int phraseId) {
+        int row = indexOf(phraseId);
+        Map<String, Object> phrase = new LinkedHashMap<>();
+        phrase.put("id", phraseId);
+        phrase.put("text", pool.substring(poolOffsets[2 * row], poolOffsets[2 * row + 1]));
+        phrase.put("sourceLang", languages[sourceLangs[row] & 0xFF]);
+        phrase.put("targetLang", languages[targetLangs[row] & 0xFF]);
+        phrase.put("difficulty", difficulties[row] & 0xFF);
+        return phrase;
+    }
+
+    // Позиция фразы в индексе (0..size-1), стабильна, пока жив бин; по ней адресуются производные индексы (TranslationScorer)
+    public int indexOf(int phraseId) {
+        int index = Arrays.binarySearch(sortedIds, phraseId);
+        if (index < 0) {
+            throw new IllegalArgumentException("Unknown phrase id: " + phraseId);
+        }
+        return rowById[index];
+    }
+
+    private boolean matches(String language, int code) {
+        return language == null || language.isEmpty() || language.equals(languages[code]);
+    }
+
+    // Номер строки по позиции в склейке диапазонов
+    private static int rowAt(List<int[]> ranges, int position) {
+        for (int[] range : ranges) {
+            int length = range[1] - range[0];
+            if (position < length) {
+                return range[0] + position;
+            }
+            position -= length;
+        }
+        throw new IllegalStateException("Sample position out of range");
+    }
+
+    private static int bucketKey(byte sourceLang, byte targetLang, byte difficulty) {
+        return (sourceLang & 0xFF) << 16 | (targetLang & 0xFF) << 8 | (difficulty & 0xFF);
+    }
+
+    private static List<Row> readRows(Resource resource, Map<String, Byte> languageCodes) {
+        List<Row> rows = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] columns = line.split("\t", -1);
+                if (columns.length != 6) {
+                    throw new IllegalStateException("Phrase bank line " + lineNumber + " has " + columns.length + " columns, expected 6");
+                }
+                int difficulty = Integer.parseInt(columns[3].trim());
+                if (difficulty < 1 || difficulty > 255) {
+                    throw new IllegalStateException("Phrase bank line " + lineNumber + " has difficulty " + difficulty + ", expected 1..255");
+                }
+                rows.add(new Row(Integer.parseInt(columns[0].trim()),
+                    internLanguage(columns[1].trim(), languageCodes),
+                    internLanguage(columns[2].trim(), languageCodes),
+                    (byte) difficulty,
+                    columns[4], columns[5]));
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to load phrase bank from " + resource.getDescription(), e);
+        }
+        return rows;
+    }
+
+    private static byte internLanguage(String code, Map<String, Byte> languageCodes) {
+        Byte interned = languageCodes.get(code);
+        if (interned == null) {
+            if (languageCodes.size() > 255) {
+                throw new IllegalStateException("Phrase bank has more than 256 languages");
+            }
+            interned = (byte) languageCodes.size();
+            languageCodes.put(code, interned);
+        }
+        return interned;
+    }
+}
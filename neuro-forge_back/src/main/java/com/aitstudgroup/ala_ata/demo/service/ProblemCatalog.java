@@ -0,0 +1,210 @@
+package com.aitstudgroup.ala_ata.demo.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+
+import com.aitstudgroup.ala_ata.demo.model.BenchmarkResult;
+import com.aitstudgroup.ala_ata.demo.model.OptimizationProblem;
+import com.aitstudgroup.ala_ata.demo.model.ProblemBaseline;
+import com.aitstudgroup.ala_ata.demo.repository.ProblemBaselineRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Optimization Rally problems, loaded once from classpath:optimization-problems/ into an
+ * immutable list (for O(1) random picks) and an id index. Each problem directory holds the
+ * original code, a reference solution and an input generator.
+ * After startup the original and reference code of every problem are benchmarked once and
+ * the results are stored in optimization_problem_baselines together with a hash of the
+ * problem code and {@link CodeBenchmarkEngine#fingerprint()}; later starts reuse the stored
+ * rows while the hash matches. Until a problem's baseline is ready, scoring falls back to
+ * benchmarking the original code through {@link EvaluationCache}.
+ */
+@Component
+public class ProblemCatalog {
+    private static final Logger logger = LoggerFactory.getLogger(ProblemCatalog.class);
+
+    static final String CATALOG_ROOT = "optimization-problems/";
+    static final String DEFAULT_PROBLEM_ID = "bubble-sort"; // Матчи, созданные до появления каталога
+
+    private final ObjectMapper objectMapper;
+    private final ProblemBaselineRepository problemBaselineRepository;
+    private final EvaluationCache evaluationCache;
+    private final CodeBenchmarkEngine codeBenchmarkEngine;
+
+    private final List<OptimizationProblem> problems;
+    private final Map<String, OptimizationProblem> problemsById;
+    private final Map<String, BenchmarkResult> originalBaselines = new ConcurrentHashMap<>();
+    private final Map<String, BenchmarkResult> referenceBaselines = new ConcurrentHashMap<>();
+
+    public ProblemCatalog(ObjectMapper objectMapper,
+                          ProblemBaselineRepository problemBaselineRepository,
+                          EvaluationCache evaluationCache,
+                          CodeBenchmarkEngine codeBenchmarkEngine) {
+        this.objectMapper = objectMapper;
+        this.problemBaselineRepository = problemBaselineRepository;
+        this.evaluationCache = evaluationCache;
+        this.codeBenchmarkEngine = codeBenchmarkEngine;
+        this.problems = List.copyOf(loadProblems(objectMapper));
+        Map<String, OptimizationProblem> byId = new LinkedHashMap<>();
+        for (OptimizationProblem problem : problems) {
+            if (byId.put(problem.getId(), problem) != null) {
+                throw new IllegalStateException("Duplicate optimization problem id: " + problem.getId());
+            }
+        }
+        if (!byId.containsKey(DEFAULT_PROBLEM_ID)) {
+            throw new IllegalStateException("Optimization problem catalog has no '" + DEFAULT_PROBLEM_ID + "' problem");
+        }
+        this.problemsById = Collections.unmodifiableMap(byId);
+        logger.info("Loaded {} optimization problems: {}", problems.size(), problemsById.keySet());
+    }
+
+    public OptimizationProblem randomProblem() {
+        return problems.get(ThreadLocalRandom.current().nextInt(problems.size()));
+    }
+
+    // Задача матча; у старых матчей id задачи нет - это была сортировка пузырьком
+    public OptimizationProblem getProblem(String problemId) {
+        OptimizationProblem problem = problemsById.get(problemId != null ? problemId : DEFAULT_PROBLEM_ID);
+        if (problem == null) {
+            throw new IllegalArgumentException("Unknown optimization problem: " + problemId);
+        }
+        return problem;
+    }
+
+    public List<OptimizationProblem> getProblems() {
+        return problems;
+    }
+
+    // Замер исходного кода задачи: из каталога, а пока его нет - через общий кэш бенчмарков
+    public Mono<BenchmarkResult> originalBaseline(OptimizationProblem problem) {
+        BenchmarkResult baseline = originalBaselines.get(problem.getId());
+        return baseline != null ? Mono.just(baseline) : evaluationCache.benchmark(problem.getOriginalCode(), problem);
+    }
+
+    // То же, но без запуска бенчмарка (пусто, если замера еще нет)
+    public Mono<BenchmarkResult> originalBaselineIfReady(OptimizationProblem problem) {
+        BenchmarkResult baseline = originalBaselines.get(problem.getId());
+        return baseline != null ? Mono.just(baseline) : evaluationCache.getIfCompleted(problem.getOriginalCode(), problem);
+    }
+
+    // Замер эталонного решения (null, если еще не готов)
+    public BenchmarkResult referenceBaseline(OptimizationProblem problem) {
+        return referenceBaselines.get(problem.getId());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadBaselines() {
+        problemBaselineRepository.findAll()
+            .collectMap(ProblemBaseline::getProblemId)
+            .onErrorResume(e -> {
+                logger.warn("Could not read stored problem baselines, measuring all problems: {}", e.getMessage());
+                return Mono.just(Map.of());
+            })
+            // По одной задаче за раз: замеры не должны забирать всех воркеров у живых матчей
+            .flatMapMany(stored -> Flux.fromIterable(problems).concatMap(problem -> loadBaseline(problem, stored.get(problem.getId()))))
+            .count()
+            .subscribe(
+                measured -> logger.info("Optimization problem baselines ready ({} measured, {} from storage).",
+                    measured, originalBaselines.size() - measured),
+                error -> logger.error("Failed to prepare optimization problem baselines: {}", error.getMessage(), error)
+            );
+    }
+
+    // Взять сохраненный замер, если код задачи и окружение не менялись; иначе замерить и сохранить (элемент - признак нового замера)
+    private Mono<Boolean> loadBaseline(OptimizationProblem problem, ProblemBaseline stored) {
+        String contentHash = contentHash(problem);
+        if (stored != null && contentHash.equals(stored.getContentHash())) {
+            try {
+                originalBaselines.put(problem.getId(), objectMapper.readValue(stored.getOriginalResult(), BenchmarkResult.class));
+                referenceBaselines.put(problem.getId(), objectMapper.readValue(stored.getReferenceResult(), BenchmarkResult.class));
+                return Mono.empty();
+            } catch (JsonProcessingException e) {
+                logger.warn("Stored baseline of problem {} is unreadable, measuring again: {}", problem.getId(), e.getMessage());
+            }
+        }
+
+        // Через кэш: матч, которому замер понадобился раньше, разделит с нами один прогон
+        return Mono.zip(evaluationCache.benchmark(problem.getOriginalCode(), problem),
+                        evaluationCache.benchmark(problem.getReferenceCode(), problem))
+            .flatMap(results -> {
+                BenchmarkResult original = results.getT1();
+                BenchmarkResult reference = results.getT2();
+                if (!original.isSuccessful() || !reference.isSuccessful()) {
+                    logger.error("Problem {} cannot be measured: original {}, reference {}", problem.getId(), original.getError(), reference.getError());
+                    return Mono.<Boolean>empty();
+                }
+                originalBaselines.put(problem.getId(), original);
+                referenceBaselines.put(problem.getId(), reference);
+                logger.info("Measured problem {}: original {}, reference {}", problem.getId(), original.getComplexity(), reference.getComplexity());
+                try {
+                    return problemBaselineRepository.upsert(problem.getId(), contentHash,
+                            objectMapper.writeValueAsString(original), objectMapper.writeValueAsString(reference))
+                        .onErrorResume(e -> {
+                            logger.warn("Could not store baseline of problem {}: {}", problem.getId(), e.getMessage());
+                            return Mono.just(0);
+                        })
+                        .thenReturn(true);
+                } catch (JsonProcessingException e) {
+                    return Mono.<Boolean>error(new IllegalStateException("Failed to serialize baseline of problem " + problem.getId(), e));
+                }
+            })
+            .onErrorResume(e -> {
+                logger.error("Failed to measure problem {}: {}", problem.getId(), e.getMessage());
+                return Mono.empty();
+            });
+    }
+
+    private String contentHash(OptimizationProblem problem) {
+        return EvaluationCache.sha256(problem.getOriginalCode() + '\0' + problem.getReferenceCode() + '\0'
+            + problem.getInputGenerator() + '\0' + codeBenchmarkEngine.fingerprint());
+    }
+
+    private static List<OptimizationProblem> loadProblems(ObjectMapper objectMapper) {
+        List<OptimizationProblem> loaded = new ArrayList<>();
+        try (InputStream catalog = new ClassPathResource(CATALOG_ROOT + "catalog.json").getInputStream()) {
+            for (JsonNode entry : objectMapper.readTree(catalog)) {
+                String id = entry.get("id").asText();
+                loaded.add(new OptimizationProblem(
+                    id,
+                    entry.get("description").asText(),
+                    entry.get("timeSteps").asInt(),
+                    readProblemFile(id, "original.js"),
+                    readProblemFile(id, "reference.js"),
+                    readProblemFile(id, "input.js")));
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to load the optimization problem catalog", e);
+        }
+        if (loaded.isEmpty()) {
+            throw new IllegalStateException("Optimization problem catalog is empty");
+        }
+        return loaded;
+    }
+
+    private static String readProblemFile(String problemId, String fileName) throws IOException {
+        try (InputStream in = new ClassPathResource(CATALOG_ROOT + problemId + "/" + fileName).getInputStream()) {
+            return StreamUtils.copyToString(in, StandardCharsets.UTF_8).strip();
+        }
+    }
+}
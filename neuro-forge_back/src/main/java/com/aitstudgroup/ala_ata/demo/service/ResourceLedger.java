@@ -0,0 +1,212 @@
+package com.aitstudgroup.ala_ata.demo.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.aitstudgroup.ala_ata.demo.repository.ResourceLedgerRepository;
+import com.aitstudgroup.ala_ata.demo.repository.ResourceLedgerRepository.LedgerEntry;
+import com.aitstudgroup.ala_ata.demo.repository.ResourceWalletRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+/**
+ * Append-only journal of wallet credits (resource_ledger). A credit is buffered and written with
+ * the others in one multi-row INSERT every flush-interval-ms (or as soon as batch-size is reached)
+ * instead of UPDATE-ing the wallet row, so frequent credits to the same wallet do not queue on its
+ * row lock. A wallet's balance is its columns (the snapshot) plus its unfolded entries (the tail);
+ * ResourceService reads it that way. In the background the tail is folded into the columns, one
+ * set-based statement per fold-chunk-size entries, and folded entries older than retention-days
+ * are deleted. Debits stay conditional UPDATEs of the wallet because they need the balance check;
+ * one the snapshot alone does not cover folds the player's tail and tries again.
+ * At most capacity credits may be waiting for or inside an insert; past that append fails at once.
+ * A flush writes the buffer in appends of at most MAX_ENTRIES_PER_APPEND entries, each one statement;
+ * only an append that failed (and so committed nothing) is retried entry by entry, so a partial
+ * failure never credits the same entry twice.
+ * Metrics: resource.ledger.pending, resource.ledger.appended, resource.ledger.folded.
+ */
+@Component
+public class ResourceLedger {
+    private static final Logger logger = LoggerFactory.getLogger(ResourceLedger.class);
+
+    public static final String REASON_GRANT = "grant";
+    public static final String REASON_UPGRADE_REFUND = "upgrade-refund";
+    public static final String REASON_TRANSFER = "transfer";
+
+    private final ResourceWalletRepository resourceWalletRepository;
+    private final MeterRegistry meterRegistry;
+    private final int batchSize;
+    private final int capacity;
+    private final int foldChunkSize;
+    private final Duration retention;
+    private final Counter appendedEntries;
+    private final Counter foldedEntries;
+    private final AtomicBoolean folding = new AtomicBoolean();
+
+    // Под монитором this
+    private List<Pending> buffer = new ArrayList<>();
+    private int pending; // в буфере и в незавершенных вставках
+
+    private record Pending(LedgerEntry entry, MonoSink<Void> sink) {
+    }
+
+    public ResourceLedger(ResourceWalletRepository resourceWalletRepository,
+                          MeterRegistry meterRegistry,
+                          @Value("${resource-ledger.batch-size:500}") int batchSize,
+                          @Value("${resource-ledger.capacity:20000}") int capacity,
+                          @Value("${resource-ledger.fold-chunk-size:5000}") int foldChunkSize,
+                          @Value("${resource-ledger.retention-days:30}") int retentionDays) {
+        this.resourceWalletRepository = resourceWalletRepository;
+        this.meterRegistry = meterRegistry;
+        this.batchSize = batchSize;
+        this.capacity = capacity;
+        this.foldChunkSize = foldChunkSize;
+        this.retention = Duration.ofDays(retentionDays);
+        this.appendedEntries = Counter.builder("resource.ledger.appended")
+            .description("Credits written to the resource ledger")
+            .register(meterRegistry);
+        this.foldedEntries = Counter.builder("resource.ledger.folded")
+            .description("Ledger entries folded into wallet balances")
+            .register(meterRegistry);
+    }
+
+    // Gauge читает this, поэтому регистрируется после конструктора
+    @PostConstruct
+    void registerPendingGauge() {
+        Gauge.builder("resource.ledger.pending", this, ledger -> ledger.pendingCount())
+            .description("Credits waiting for or inside a ledger insert")
+            .register(meterRegistry);
+    }
+
+    // Записать начисление; Mono завершается, когда пакет с записью вставлен
+    public Mono<Void> append(Long playerId, String currency, int amount, String reason) {
+        if (playerId == null || amount <= 0) {
+            return Mono.error(new IllegalArgumentException("Начисление требует игрока и положительной суммы"));
+        }
+        return Mono.create(sink -> {
+            boolean full;
+            synchronized (this) {
+                if (pending >= capacity) {
+                    logger.warn("Resource ledger is full ({} pending). Rejecting {} for player {}.", pending, reason, playerId);
+                    sink.error(new IllegalStateException("Resource ledger is busy, try again shortly"));
+                    return;
+                }
+                buffer.add(new Pending(new LedgerEntry(playerId, currency, amount, reason), sink));
+                pending++;
+                full = buffer.size() >= batchSize;
+            }
+            if (full) {
+                flush();
+            }
+        });
+    }
+
+    public synchronized int pendingCount() {
+        return pending;
+    }
+
+    @Scheduled(fixedDelayString = "${resource-ledger.flush-interval-ms:50}")
+    public void flush() {
+        List<Pending> batch;
+        synchronized (this) {
+            if (buffer.isEmpty()) {
+                return;
+            }
+            batch = buffer;
+            buffer = new ArrayList<>();
+        }
+        // Каждая вставка - один оператор: упавшая не записала ничего, и ее можно повторить по одной
+        int appends = (batch.size() + ResourceLedgerRepository.MAX_ENTRIES_PER_APPEND - 1) / ResourceLedgerRepository.MAX_ENTRIES_PER_APPEND;
+        Flux.range(0, appends)
+            .concatMap(append -> write(batch.subList(
+                append * ResourceLedgerRepository.MAX_ENTRIES_PER_APPEND,
+                Math.min(batch.size(), (append + 1) * ResourceLedgerRepository.MAX_ENTRIES_PER_APPEND))))
+            .subscribe();
+    }
+
+    private Mono<Void> write(List<Pending> batch) {
+        return resourceWalletRepository.appendAll(batch.stream().map(Pending::entry).toList())
+            .doOnNext(appendedEntries::increment)
+            .doOnSuccess(count -> complete(batch, null))
+            .then()
+            .onErrorResume(error -> {
+                if (batch.size() == 1) {
+                    complete(batch, error);
+                    return Mono.empty();
+                }
+                // Одна плохая запись (например, игрок уже удален) не должна ронять весь пакет: пишем по одной
+                logger.warn("Ledger insert of {} entries failed, writing them one by one: {}", batch.size(), error.getMessage());
+                return Flux.fromIterable(batch)
+                    .concatMap(entry -> write(List.of(entry)))
+                    .then();
+            });
+    }
+
+    private void complete(List<Pending> batch, Throwable error) {
+        synchronized (this) {
+            pending -= batch.size();
+        }
+        for (Pending entry : batch) {
+            if (error == null) {
+                entry.sink().success();
+            } else {
+                entry.sink().error(error);
+            }
+        }
+    }
+
+    // Перенести хвост одного игрока в кошелек (списанию не хватило снимка); возвращает число перенесенных записей
+    public Mono<Long> foldTail(Long playerId) {
+        return resourceWalletRepository.foldLedgerTail(playerId)
+            .doOnNext(foldedEntries::increment);
+    }
+
+    @Scheduled(fixedDelayString = "${resource-ledger.fold-interval-ms:10000}")
+    public void foldAll() {
+        if (!folding.compareAndSet(false, true)) {
+            return;
+        }
+        long startNanos = System.nanoTime();
+        resourceWalletRepository.createWalletsForLedger(ResourceService.INITIAL_CREDITS)
+            .then(Mono.defer(() -> resourceWalletRepository.foldLedgerChunk(foldChunkSize)))
+            .expand(folded -> folded < foldChunkSize ? Mono.empty() : resourceWalletRepository.foldLedgerChunk(foldChunkSize))
+            .reduce(0L, Long::sum)
+            .doFinally(signal -> folding.set(false))
+            .subscribe(
+                folded -> {
+                    foldedEntries.increment(folded);
+                    if (folded > 0) {
+                        logger.debug("Свернуто {} записей журнала за {} мс", folded, (System.nanoTime() - startNanos) / 1_000_000);
+                    }
+                },
+                error -> logger.error("Ошибка при свертке журнала ресурсов: {}", error.getMessage())
+            );
+    }
+
+    // Раз в час: удалить свернутые записи старше срока хранения, порциями, чтобы не держать долгую транзакцию
+    @Scheduled(cron = "0 30 * * * ?")
+    public void compact() {
+        Instant cutoff = Instant.now().minus(retention);
+        resourceWalletRepository.deleteFoldedBefore(cutoff, foldChunkSize)
+            .expand(deleted -> deleted < foldChunkSize ? Mono.empty() : resourceWalletRepository.deleteFoldedBefore(cutoff, foldChunkSize))
+            .reduce(0L, Long::sum)
+            .subscribe(
+                deleted -> logger.info("Удалено {} свернутых записей журнала ресурсов старше {}", deleted, cutoff),
+                error -> logger.error("Ошибка при очистке журнала ресурсов: {}", error.getMessage())
+            );
+    }
+}
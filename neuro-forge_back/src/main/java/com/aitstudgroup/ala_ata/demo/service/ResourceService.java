@@ -1,60 +1,90 @@
 package com.aitstudgroup.ala_ata.demo.service;
 
-import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.aitstudgroup.ala_ata.demo.model.ResourceWallet;
 import com.aitstudgroup.ala_ata.demo.repository.PlayerRepository;
+import com.aitstudgroup.ala_ata.demo.repository.ResourceLedgerRepository;
 import com.aitstudgroup.ala_ata.demo.repository.ResourceWalletRepository;
+import com.aitstudgroup.ala_ata.demo.repository.WalletIncomeRepository.IncomeChunk;
+import com.aitstudgroup.ala_ata.demo.repository.WalletTransferRepository.Transfer;
 
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.util.retry.Retry;
 
 @Service
 public class ResourceService {
     private static final Logger logger = LoggerFactory.getLogger(ResourceService.class);
+    public static final int INITIAL_CREDITS = 500; // Стартовый баланс нового кошелька
     private final ResourceWalletRepository resourceWalletRepository;
     private final PlayerRepository playerRepository;
+    private final ResourceLedger resourceLedger;
+    // lazy: пассивный доход не начисляется по таймеру, а материализуется при чтении и списании (см. PassiveIncomeTask)
+    private final boolean lazyIncome;
     
     @Autowired
     public ResourceService(ResourceWalletRepository resourceWalletRepository, 
-                          PlayerRepository playerRepository) {
+                          PlayerRepository playerRepository,
+                          ResourceLedger resourceLedger,
+                          @Value("${passive-income.mode:tick}") String passiveIncomeMode) {
         this.resourceWalletRepository = resourceWalletRepository;
         this.playerRepository = playerRepository;
+        this.resourceLedger = resourceLedger;
+        this.lazyIncome = switch (passiveIncomeMode) {
+            case "tick" -> false;
+            case "lazy" -> true;
+            default -> throw new IllegalStateException("Unknown passive-income.mode '" + passiveIncomeMode + "', expected tick or lazy");
+        };
+    }
+
+    public boolean isLazyIncome() {
+        return lazyIncome;
     }
     
-    // Получить кошелек игрока
+    // Получить кошелек игрока: баланс с еще не свернутыми начислениями журнала
     @Transactional
     public Mono<ResourceWallet> getWalletByPlayerId(Long playerId) {
         if (playerId == null) {
             return Mono.error(new IllegalArgumentException("ID игрока не может быть null"));
         }
         
-        return resourceWalletRepository.findByPlayerId(playerId)
+        return findWallet(playerId)
             .switchIfEmpty(Mono.<ResourceWallet>defer(() -> {
                 logger.debug("Кошелек для игрока {} не найден, создаем новый", playerId);
                 
                 // Проверка существования игрока
                 return playerRepository.findById(playerId)
                     .switchIfEmpty(Mono.error(new IllegalArgumentException("Игрок с ID " + playerId + " не найден")))
-                    .flatMap(player -> {
-                        // Создаем новый кошелек с начальным балансом
+                    .flatMap(player -> resourceWalletRepository.sumDeployedIncome(playerId))
+                    .flatMap(incomePerMinute -> {
+                        // Создаем новый кошелек с начальным балансом и текущей ставкой дохода по моделям игрока
                         ResourceWallet wallet = new ResourceWallet();
                         wallet.setPlayerId(playerId);
-                        wallet.setCloudCredits(500);
+                        wallet.setCloudCredits(INITIAL_CREDITS);
                         wallet.setResearchPoints(0);
+                        wallet.setIncomePerMinute(incomePerMinute.intValue());
+                        wallet.setLastAccruedAt(Instant.now());
                         
                         return resourceWalletRepository.save(wallet)
                             .onErrorResume(e -> {
                                 // Если ошибка связана с дублированием (кто-то уже создал кошелек)
                                 if (e.getMessage() != null && e.getMessage().contains("duplicate")) {
                                     logger.debug("Кошелек для игрока {} уже был создан другой транзакцией", playerId);
-                                    return resourceWalletRepository.findByPlayerId(playerId);
+                                    return findWallet(playerId);
                                 }
                                 return Mono.error(e);
                             });
@@ -63,8 +93,7 @@ public class ResourceService {
             .retry(1); // Пробуем еще раз, если возникла ошибка (но не больше одного раза)
     }
     
-    // Добавить кредиты
-    @Transactional
+    // Добавить кредиты: запись в журнал (пакетная вставка вместо UPDATE кошелька), затем баланс с этой записью
     public Mono<ResourceWallet> addCredits(Long playerId, int amount) {
         if (amount <= 0) {
             return Mono.error(new IllegalArgumentException("Количество кредитов должно быть положительным"));
@@ -72,20 +101,22 @@ public class ResourceService {
         
         logger.debug("Добавление {} кредитов игроку {}", amount, playerId);
         
-        return getWalletByPlayerId(playerId)
-            .flatMap(wallet -> {
-                int newBalance = wallet.getCloudCredits() + amount;
-                wallet.setCloudCredits(newBalance);
-                
-                return resourceWalletRepository.save(wallet)
-                    .retryWhen(Retry.backoff(3, Duration.ofMillis(100))
-                        .filter(e -> e instanceof org.springframework.dao.OptimisticLockingFailureException)
-                        .doBeforeRetry(signal -> logger.warn("Повторная попытка обновления кошелька: {}", signal.failure().getMessage())));
-            });
+        return resourceLedger.append(playerId, ResourceLedgerRepository.CLOUD_CREDITS, amount, ResourceLedger.REASON_GRANT)
+            .then(getWalletByPlayerId(playerId));
     }
     
-    // Попытка потратить кредиты
-    @Transactional
+    // Начислить кредиты без чтения кошелька - для частых начислений (возвраты, награды); reason попадает в журнал
+    public Mono<Void> recordCredits(Long playerId, int amount, String reason) {
+        if (amount <= 0) {
+            return Mono.error(new IllegalArgumentException("Количество кредитов должно быть положительным"));
+        }
+        
+        logger.debug("Начисление {} кредитов игроку {} ({})", amount, playerId, reason);
+        
+        return resourceLedger.append(playerId, ResourceLedgerRepository.CLOUD_CREDITS, amount, reason);
+    }
+    
+    // Попытка потратить кредиты: проверка баланса и списание - одно условное UPDATE
     public Mono<Boolean> spendCredits(Long playerId, int amount) {
         if (amount <= 0) {
             return Mono.error(new IllegalArgumentException("Сумма списания должна быть положительной"));
@@ -93,25 +124,18 @@ public class ResourceService {
         
         logger.debug("Попытка списать {} кредитов у игрока {}", amount, playerId);
         
-        return getWalletByPlayerId(playerId)
-            .flatMap(wallet -> {
-                if (wallet.getCloudCredits() < amount) {
-                    logger.debug("Недостаточно средств: {} < {}", wallet.getCloudCredits(), amount);
-                    return Mono.just(false); // Недостаточно средств
+        return debitWallet(playerId, () -> lazyIncome
+                ? resourceWalletRepository.accrueAndDebitCredits(playerId, amount)
+                : resourceWalletRepository.debitCredits(playerId, amount))
+            .hasElement()
+            .doOnNext(spent -> {
+                if (!spent) {
+                    logger.debug("Недостаточно средств у игрока {} для списания {}", playerId, amount);
                 }
-                
-                int newBalance = wallet.getCloudCredits() - amount;
-                wallet.setCloudCredits(newBalance);
-                
-                return resourceWalletRepository.save(wallet)
-                    .retryWhen(Retry.backoff(3, Duration.ofMillis(100))
-                        .filter(e -> e instanceof org.springframework.dao.OptimisticLockingFailureException))
-                    .thenReturn(true);
             });
     }
     
     // Добавить исследовательские очки
-    @Transactional
     public Mono<ResourceWallet> addResearchPoints(Long playerId, int amount) {
         if (amount <= 0) {
             return Mono.error(new IllegalArgumentException("Количество исследовательских очков должно быть положительным"));
@@ -119,19 +143,11 @@ public class ResourceService {
         
         logger.debug("Добавление {} исследовательских очков игроку {}", amount, playerId);
         
-        return getWalletByPlayerId(playerId)
-            .flatMap(wallet -> {
-                int newAmount = wallet.getResearchPoints() + amount;
-                wallet.setResearchPoints(newAmount);
-                
-                return resourceWalletRepository.save(wallet)
-                    .retryWhen(Retry.backoff(3, Duration.ofMillis(100))
-                        .filter(e -> e instanceof org.springframework.dao.OptimisticLockingFailureException));
-            });
+        return resourceLedger.append(playerId, ResourceLedgerRepository.RESEARCH_POINTS, amount, ResourceLedger.REASON_GRANT)
+            .then(getWalletByPlayerId(playerId));
     }
     
     // Попытка потратить исследовательские очки
-    @Transactional
     public Mono<Boolean> spendResearchPoints(Long playerId, int amount) {
         if (amount <= 0) {
             return Mono.error(new IllegalArgumentException("Сумма списания должна быть положительной"));
@@ -139,25 +155,68 @@ public class ResourceService {
         
         logger.debug("Попытка списать {} исследовательских очков у игрока {}", amount, playerId);
         
-        return getWalletByPlayerId(playerId)
-            .flatMap(wallet -> {
-                if (wallet.getResearchPoints() < amount) {
-                    logger.debug("Недостаточно исследовательских очков: {} < {}", wallet.getResearchPoints(), amount);
-                    return Mono.just(false); // Недостаточно очков
+        return debitWallet(playerId, () -> resourceWalletRepository.debitResearchPoints(playerId, amount))
+            .hasElement()
+            .doOnNext(spent -> {
+                if (!spent) {
+                    logger.debug("Недостаточно исследовательских очков у игрока {} для списания {}", playerId, amount);
                 }
-                
-                int newAmount = wallet.getResearchPoints() - amount;
-                wallet.setResearchPoints(newAmount);
-                
-                return resourceWalletRepository.save(wallet)
-                    .retryWhen(Retry.backoff(3, Duration.ofMillis(100))
-                        .filter(e -> e instanceof org.springframework.dao.OptimisticLockingFailureException))
-                    .thenReturn(true);
             });
     }
+
+    // Изменить ставку пассивного дохода игрока (модель развернута/снята или ее доход пересчитан).
+    // В ленивом режиме доход по старой ставке сначала начисляется, тем же запросом. Нет кошелька - нечего менять:
+    // новый кошелек возьмет ставку из моделей
+    public Mono<Void> adjustIncomeRate(Long playerId, int delta) {
+        if (delta == 0 || playerId == null) {
+            return Mono.empty();
+        }
+        logger.debug("Ставка дохода игрока {} меняется на {}", playerId, delta);
+        return (lazyIncome
+                ? resourceWalletRepository.accrueAndAdjustIncomeRate(playerId, delta)
+                : resourceWalletRepository.adjustIncomeRate(playerId, delta))
+            .then();
+    }
+
+    // Снимок плюс хвост журнала; в ленивом режиме - еще и с начисленным на сейчас доходом
+    private Mono<ResourceWallet> findWallet(Long playerId) {
+        return lazyIncome
+            ? resourceWalletRepository.accrueAndFindWithTailByPlayerId(playerId)
+            : resourceWalletRepository.findWithTailByPlayerId(playerId);
+    }
+
+    // Списание проверяет только снимок; если его не хватило, а в журнале есть начисления, переносим их и пробуем еще раз
+    private Mono<ResourceWallet> debitWallet(Long playerId, Supplier<Mono<ResourceWallet>> debit) {
+        return applyToWallet(playerId, debit)
+            .switchIfEmpty(Mono.defer(() -> resourceLedger.foldTail(playerId)
+                .flatMap(folded -> folded > 0 ? Mono.defer(debit) : Mono.<ResourceWallet>empty())));
+    }
+
+    // Выполнить условное UPDATE кошелька. Обычно это единственный запрос; пустой результат значит, что
+    // кошелька еще нет (тогда создаем его и повторяем один раз) или что списание не прошло по балансу
+    private Mono<ResourceWallet> applyToWallet(Long playerId, Supplier<Mono<ResourceWallet>> update) {
+        return update.get()
+            .switchIfEmpty(Mono.defer(() -> resourceWalletRepository.findByPlayerId(playerId)
+                .hasElement()
+                .flatMap(exists -> exists
+                    ? Mono.<ResourceWallet>empty()
+                    : getWalletByPlayerId(playerId).then(Mono.defer(update)))));
+    }
     
-    // Перевод кредитов между игроками
-    @Transactional
+    // Записать в журнал минутный пассивный доход всем игрокам с развернутыми моделями: запрос на chunkSize игроков,
+    // так что число запросов зависит от числа игроков, а не моделей. Возвращает итог по всем порциям
+    public Mono<IncomeChunk> creditPassiveIncome(int chunkSize) {
+        return resourceWalletRepository.creditPassiveIncomeChunk(0, chunkSize)
+            .expand(chunk -> chunk.lastPlayerId() == null
+                ? Mono.empty()
+                : resourceWalletRepository.creditPassiveIncomeChunk(chunk.lastPlayerId(), chunkSize))
+            .reduce((total, chunk) -> new IncomeChunk(
+                chunk.lastPlayerId() != null ? chunk.lastPlayerId() : total.lastPlayerId(),
+                total.walletsCredited() + chunk.walletsCredited(),
+                total.creditsAdded() + chunk.creditsAdded()));
+    }
+    
+    // Перевод кредитов между игроками: один запрос - условное списание с отправителя и запись получателю в журнал
     public Mono<Boolean> transferCredits(Long fromPlayerId, Long toPlayerId, int amount) {
         if (fromPlayerId.equals(toPlayerId)) {
             return Mono.error(new IllegalArgumentException("Нельзя переводить кредиты самому себе"));
@@ -169,28 +228,70 @@ public class ResourceService {
         
         logger.debug("Перевод {} кредитов от игрока {} игроку {}", amount, fromPlayerId, toPlayerId);
         
-        // Сначала списываем с отправителя
-        return spendCredits(fromPlayerId, amount)
-            .flatMap(success -> {
-                if (!success) {
-                    return Mono.just(false); // Недостаточно средств у отправителя
+        return transferCredits(List.of(new Transfer(fromPlayerId, toPlayerId, amount)), ResourceLedger.REASON_TRANSFER)
+            .map(applied -> applied.get(0));
+    }
+
+    // Пакет переводов (например, призовые турнира): один запрос на пакет. Переводы одного отправителя проходят
+    // все вместе или ни один; результат - прошел ли каждый перевод, в порядке transfers
+    public Mono<List<Boolean>> transferCredits(List<Transfer> transfers, String reason) {
+        for (Transfer transfer : transfers) {
+            if (transfer.fromPlayerId() == null || transfer.toPlayerId() == null || transfer.amount() <= 0) {
+                return Mono.error(new IllegalArgumentException("Перевод требует отправителя, получателя и положительной суммы: " + transfer));
+            }
+        }
+        
+        Boolean[] applied = new Boolean[transfers.size()];
+        Arrays.fill(applied, false);
+        return resourceWalletRepository.transferCredits(transfers, reason, lazyIncome)
+            .doOnNext(index -> applied[index] = true)
+            .then(Mono.defer(() -> retryFailedSenders(transfers, applied, reason)))
+            .then(Mono.fromSupplier(() -> Arrays.asList(applied)));
+    }
+
+    // Отправителям, у которых не прошло списание, могло не хватить только снимка (начисления в хвосте журнала)
+    // или еще нет кошелька: готовим их и повторяем их переводы один раз, тоже одним запросом
+    private Mono<Void> retryFailedSenders(List<Transfer> transfers, Boolean[] applied, String reason) {
+        Set<Long> failedSenders = new LinkedHashSet<>();
+        for (int i = 0; i < transfers.size(); i++) {
+            if (!applied[i]) {
+                failedSenders.add(transfers.get(i).fromPlayerId());
+            }
+        }
+        if (failedSenders.isEmpty()) {
+            return Mono.empty();
+        }
+        return Flux.fromIterable(failedSenders)
+            .filterWhen(this::prepareSender)
+            .collect(Collectors.toSet())
+            .flatMap(senders -> {
+                List<Integer> retryIndexes = new ArrayList<>();
+                for (int i = 0; i < transfers.size(); i++) {
+                    if (!applied[i] && senders.contains(transfers.get(i).fromPlayerId())) {
+                        retryIndexes.add(i);
+                    }
                 }
-                
-                // Затем начисляем получателю
-                return addCredits(toPlayerId, amount)
-                    .thenReturn(true)
-                    .onErrorResume(e -> {
-                        // В случае ошибки начисления, возвращаем средства отправителю
-                        logger.error("Ошибка при переводе кредитов: {}", e.getMessage());
-                        return addCredits(fromPlayerId, amount)
-                            .then(Mono.just(false));
-                    });
+                if (retryIndexes.isEmpty()) {
+                    return Mono.empty();
+                }
+                List<Transfer> retry = retryIndexes.stream().map(transfers::get).toList();
+                return resourceWalletRepository.transferCredits(retry, reason, lazyIncome)
+                    .doOnNext(index -> applied[retryIndexes.get(index)] = true)
+                    .then();
             });
     }
 
+    // true - есть смысл повторить: кошелек создан или хвост журнала перенесен в снимок
+    private Mono<Boolean> prepareSender(Long playerId) {
+        return resourceWalletRepository.findByPlayerId(playerId)
+            .flatMap(wallet -> resourceLedger.foldTail(playerId).map(folded -> folded > 0))
+            .switchIfEmpty(Mono.defer(() -> getWalletByPlayerId(playerId).thenReturn(true)))
+            .onErrorResume(IllegalArgumentException.class, e -> Mono.just(false)); // Отправителя нет
+    }
+
     public Mono<Integer> getPlayerCredits(Long playerId) {
         logger.debug("Получение кредитов для игрока {}", playerId);
-        return resourceWalletRepository.findByPlayerId(playerId)
+        return findWallet(playerId)
             .map(ResourceWallet::getCloudCredits)
             .defaultIfEmpty(0);
     }
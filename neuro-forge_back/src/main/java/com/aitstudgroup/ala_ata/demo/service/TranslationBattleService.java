@@ -3,45 +3,69 @@ package com.aitstudgroup.ala_ata.demo.service;
 import com.aitstudgroup.ala_ata.demo.model.Match;
 import com.aitstudgroup.ala_ata.demo.payload.GameStatePayload;
 import com.aitstudgroup.ala_ata.demo.repository.MatchRepository;
+import com.aitstudgroup.ala_ata.demo.util.HashedWheelTimer;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
 
-import java.io.IOException;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class TranslationBattleService {
 
     private static final Logger logger = LoggerFactory.getLogger(TranslationBattleService.class);
     private final MatchRepository matchRepository;
+    private final LiveMatchStateStore liveMatchStateStore;
+    private final MatchActorExecutor matchActorExecutor;
+    private final PhraseBank phraseBank;
+    private final TranslationScorer translationScorer;
+    private final HashedWheelTimer roundTimer;
+    private final GameStateBroadcaster gameStateBroadcaster;
+    private final Map<Long, HashedWheelTimer.Timeout> roundTimeouts = new ConcurrentHashMap<>(); // Таймер текущего раунда каждого матча
     private final ObjectMapper objectMapper = new ObjectMapper(); // For JSON processing
 
-    // Sample phrases - in a real app, this would come from a database or config file
-    private static final List<Map<String, String>> SAMPLE_PHRASES = List.of(
-            Map.of("id", "1", "text", "Hello", "sourceLang", "en", "targetLang", "es", "correctAnswer", "Hola"),
-            Map.of("id", "2", "text", "Thank you", "sourceLang", "en", "targetLang", "fr", "correctAnswer", "Merci"),
-            Map.of("id", "3", "text", "Good morning", "sourceLang", "en", "targetLang", "de", "correctAnswer", "Guten Morgen"),
-            Map.of("id", "4", "text", "Goodbye", "sourceLang", "en", "targetLang", "it", "correctAnswer", "Arrivederci"),
-            Map.of("id", "5", "text", "Yes", "sourceLang", "en", "targetLang", "ja", "correctAnswer", "はい (Hai)"),
-            Map.of("id", "6", "text", "No", "sourceLang", "en", "targetLang", "es", "correctAnswer", "No"),
-            Map.of("id", "7", "text", "Please", "sourceLang", "en", "targetLang", "fr", "correctAnswer", "S'il vous plaît"),
-            Map.of("id", "8", "text", "Excuse me", "sourceLang", "en", "targetLang", "de", "correctAnswer", "Entschuldigung"),
-            Map.of("id", "9", "text", "Water", "sourceLang", "en", "targetLang", "it", "correctAnswer", "Acqua"),
-            Map.of("id", "10", "text", "Friend", "sourceLang", "en", "targetLang", "ja", "correctAnswer", "友達 (Tomodachi)")
-    );
     private static final int TOTAL_ROUNDS = 10;
+    // Какие фразы выбирать для матча (пусто / 0 - любые)
+    private final String phraseSourceLang;
+    private final String phraseTargetLang;
+    private final int phraseDifficulty;
+    private final int roundTimeLimitSeconds;
 
-    public TranslationBattleService(MatchRepository matchRepository) {
+    public TranslationBattleService(MatchRepository matchRepository,
+                                    LiveMatchStateStore liveMatchStateStore,
+                                    MatchActorExecutor matchActorExecutor,
+                                    PhraseBank phraseBank,
+                                    TranslationScorer translationScorer,
+                                    HashedWheelTimer roundTimer,
+                                    GameStateBroadcaster gameStateBroadcaster,
+                                    @Value("${translation.phrases.source-lang:en}") String phraseSourceLang,
+                                    @Value("${translation.phrases.target-lang:}") String phraseTargetLang,
+                                    @Value("${translation.phrases.difficulty:0}") int phraseDifficulty,
+                                    @Value("${translation.round-time-limit-seconds:60}") int roundTimeLimitSeconds) {
         this.matchRepository = matchRepository;
+        this.liveMatchStateStore = liveMatchStateStore;
+        this.matchActorExecutor = matchActorExecutor;
+        this.phraseBank = phraseBank;
+        this.translationScorer = translationScorer;
+        this.roundTimer = roundTimer;
+        this.gameStateBroadcaster = gameStateBroadcaster;
+        this.phraseSourceLang = phraseSourceLang;
+        this.phraseTargetLang = phraseTargetLang;
+        this.phraseDifficulty = phraseDifficulty;
+        this.roundTimeLimitSeconds = roundTimeLimitSeconds;
     }
 
     public Mono<Match> initializeMatchWithGameState(Match match) {
@@ -50,131 +74,273 @@ public class TranslationBattleService {
         }
         logger.info("Initializing Translation Battle specific data for match ID: {}", match.getId());
 
+        try {
+            match.setMatchData(buildInitialMatchData());
+            logger.debug("Match {} initialized with Translation Battle game state: {}", match.getId(), match.getMatchData());
+        } catch (JsonProcessingException e) {
+            logger.error("Error serializing initial game state for match {}: {}", match.getId(), e.getMessage());
+            return Mono.error(e); 
+        }
+        return Mono.just(match);
+    }
+
+    // Initial Translation Battle state as match_data JSON (synchronous, for batch match creation)
+    public String buildInitialMatchData() throws JsonProcessingException {
         GameStatePayload initialGameState = new GameStatePayload();
         initialGameState.setGameType("TRANSLATION");
-        initialGameState.setTotalRounds(TOTAL_ROUNDS);
         initialGameState.setCurrentRound(0); // No round started yet
-        // Prepare phrases, ensuring not to exceed available samples
-        List<Map<String,String>> gamePhrases = SAMPLE_PHRASES.stream().limit(TOTAL_ROUNDS).collect(Collectors.toList());
-        initialGameState.setPhrases(gamePhrases);
+        // Только id фраз: текст и ответ берутся из PhraseBank, когда нужны
+        int[] phraseIds = phraseBank.sample(phraseSourceLang, phraseTargetLang, phraseDifficulty, TOTAL_ROUNDS);
+        if (phraseIds.length == 0) {
+            throw new IllegalStateException("No phrases for " + phraseSourceLang + " -> " + phraseTargetLang + ", difficulty " + phraseDifficulty);
+        }
+        List<Integer> gamePhraseIds = new ArrayList<>(phraseIds.length);
+        for (int phraseId : phraseIds) {
+            gamePhraseIds.add(phraseId);
+        }
+        initialGameState.setPhraseIds(gamePhraseIds);
+        initialGameState.setTotalRounds(gamePhraseIds.size()); // Rounds are limited by the available phrases
         initialGameState.setRoundsData(new ArrayList<>());
         initialGameState.setPlayer1GameScore(0);
         initialGameState.setPlayer2GameScore(0);
         initialGameState.setCurrentPhraseIndex(-1); // No phrase selected yet
         initialGameState.setGameState("NOT_STARTED"); // Initial state before players join/start
-
-        try {
-            match.setMatchData(objectMapper.writeValueAsString(initialGameState));
-            logger.debug("Match {} initialized with Translation Battle game state: {}", match.getId(), match.getMatchData());
-        } catch (JsonProcessingException e) {
-            logger.error("Error serializing initial game state for match {}: {}", match.getId(), e.getMessage());
-            return Mono.error(e); 
-        }
-        return Mono.just(match);
+        return objectMapper.writeValueAsString(initialGameState);
     }
 
     public Mono<GameStatePayload> handlePlayerStartAction(Long matchId, Long userId) {
         logger.info("Player {} attempting to start/join Translation Battle for match ID: {}", userId, matchId);
-        return matchRepository.findById(matchId)
-            .flatMap(match -> {
-                try {
-                    GameStatePayload gameState = objectMapper.readValue(match.getMatchData(), GameStatePayload.class);
-                    
-                    // TODO: Implement logic to track if both players are ready
-                    // For now, one player starting moves game to WAITING_FOR_PLAYERS or ROUND_IN_PROGRESS
-                    if ("NOT_STARTED".equals(gameState.getGameState())) {
-                         gameState.setGameState("WAITING_FOR_PLAYERS"); // First player ready
-                    } else if ("WAITING_FOR_PLAYERS".equals(gameState.getGameState())){
-                        // Second player ready, start the first round
-                        gameState.setGameState("ROUND_IN_PROGRESS");
-                        gameState.setCurrentRound(1);
-                        gameState.setCurrentPhraseIndex(0);
-                        gameState.setRoundStartTime(Instant.now().toString());
-                        gameState.setRoundTimeLimit(60); // Example time limit
-                    } else {
-                        logger.warn("Game for match {} already started or in invalid state: {}", matchId, gameState.getGameState());
-                        return Mono.just(gameState); // Or error if unexpected state
-                    }
+        return liveMatchStateStore.getOrLoad(matchId, GameStatePayload.class)
+            .flatMap(live -> matchActorExecutor.execute(matchId, () -> {
+                GameStatePayload gameState = live.getState();
 
-                    match.setMatchData(objectMapper.writeValueAsString(gameState));
-                    return matchRepository.save(match).thenReturn(gameState);
-                } catch (IOException e) {
-                    logger.error("Error processing player start for match {}: {}", matchId, e.getMessage());
-                    return Mono.error(e);
+                // TODO: Implement logic to track if both players are ready
+                // For now, one player starting moves game to WAITING_FOR_PLAYERS or ROUND_IN_PROGRESS
+                if ("NOT_STARTED".equals(gameState.getGameState())) {
+                     gameState.setGameState("WAITING_FOR_PLAYERS"); // First player ready
+                } else if ("WAITING_FOR_PLAYERS".equals(gameState.getGameState())){
+                    // Second player ready, start the first round
+                    gameState.setGameState("ROUND_IN_PROGRESS");
+                    gameState.setCurrentRound(1);
+                    gameState.setCurrentPhraseIndex(0);
+                    gameState.setRoundStartTime(Instant.now().toString());
+                    gameState.setRoundTimeLimit(roundTimeLimitSeconds);
+                    scheduleRoundTimeout(matchId, 1, roundTimeLimitSeconds);
+                } else {
+                    logger.warn("Game for match {} already started or in invalid state: {}", matchId, gameState.getGameState());
+                    return snapshotOf(gameState); // Or error if unexpected state
                 }
-            })
-            .switchIfEmpty(Mono.error(new RuntimeException("Match not found: " + matchId)));
+
+                liveMatchStateStore.markDirty(matchId);
+                return snapshotOf(gameState);
+            }));
     }
 
     public Mono<GameStatePayload> processPlayerTranslation(Long matchId, Long playerId, String translation, int round) {
         logger.info("Player {} submitting translation \"{}\" for round {} in match ID: {}", playerId, translation, round, matchId);
-        return matchRepository.findById(matchId)
-            .flatMap(match -> {
-                try {
-                    GameStatePayload gameState = objectMapper.readValue(match.getMatchData(), GameStatePayload.class);
+        return liveMatchStateStore.getOrLoad(matchId, GameStatePayload.class)
+            .flatMap(live -> matchActorExecutor.execute(matchId, () -> {
+                GameStatePayload gameState = live.getState();
 
-                    if (!"ROUND_IN_PROGRESS".equals(gameState.getGameState()) || round != gameState.getCurrentRound()) {
-                        logger.warn("Invalid submission for match {}, round {}, game state {}. Expected round {}.", 
-                                    matchId, round, gameState.getGameState(), gameState.getCurrentRound());
-                        return Mono.just(gameState); // Or error indicating invalid state/submission
-                    }
+                if (!"ROUND_IN_PROGRESS".equals(gameState.getGameState()) || round != gameState.getCurrentRound()) {
+                    logger.warn("Invalid submission for match {}, round {}, game state {}. Expected round {}.", 
+                                matchId, round, gameState.getGameState(), gameState.getCurrentRound());
+                    return snapshotOf(gameState); // Or error indicating invalid state/submission
+                }
+                if (gameState.getPhraseIds() == null) {
+                    logger.warn("Match {} has no phrase ids (created before the phrase bank); ignoring submission.", matchId);
+                    return snapshotOf(gameState);
+                }
 
-                    Map<String, String> currentPhrase = gameState.getPhrases().get(gameState.getCurrentPhraseIndex());
-                    int score = 0;
-                    if (currentPhrase.get("correctAnswer").equalsIgnoreCase(translation.trim())) {
-                        score = 100;
-                    }
+                ensureRoundTimeout(matchId, gameState); // После рестарта таймер раунда восстанавливается здесь
 
-                    // Store or update this player's submission for the current round
-                    Map<String, Object> roundEntry = gameState.getRoundsData().stream()
-                        .filter(r -> r.get("round").equals(round))
-                        .findFirst()
-                        .orElseGet(() -> {
-                            Map<String, Object> newEntry = new HashMap<>();
-                            newEntry.put("round", round);
-                            newEntry.put("phraseId", currentPhrase.get("id"));
-                            gameState.getRoundsData().add(newEntry);
-                            return newEntry;
-                        });
-
-                    String playerPrefix = match.getPlayer1Id().equals(playerId) ? "player1" : "player2";
-                    roundEntry.put(playerPrefix + "_translation", translation);
-                    roundEntry.put(playerPrefix + "_score", score);
-                    if (playerPrefix.equals("player1")) {
-                         gameState.setPlayer1GameScore(gameState.getPlayer1GameScore() + score);
-                    } else {
-                         gameState.setPlayer2GameScore(gameState.getPlayer2GameScore() + score);
-                    }
+                Map<String, Object> roundEntry = roundEntry(gameState, round);
+                String playerPrefix = live.getMatch().getPlayer1Id().equals(playerId) ? "player1" : "player2";
+                if (roundEntry.containsKey(playerPrefix + "_score")) {
+                    // В зачет идет только первый ответ раунда, иначе повторными отправками можно набивать очки
+                    logger.warn("Player {} already answered round {} of match {}; ignoring resubmission.", playerId, round, matchId);
+                    return snapshotOf(gameState);
+                }
+
+                int phraseId = gameState.getPhraseIds().get(gameState.getCurrentPhraseIndex());
+                int score = translationScorer.score(phraseId, translation); // 0..100, с частичным зачетом за близкий перевод
+
+                // Store this player's submission for the current round
+                roundEntry.put(playerPrefix + "_translation", translation);
+                roundEntry.put(playerPrefix + "_score", score);
+                if (playerPrefix.equals("player1")) {
+                     gameState.setPlayer1GameScore(gameState.getPlayer1GameScore() + score);
+                } else {
+                     gameState.setPlayer2GameScore(gameState.getPlayer2GameScore() + score);
+                }
+
+                // Check if both players have submitted for this round
+                boolean player1Submitted = roundEntry.containsKey("player1_score");
+                boolean player2Submitted = roundEntry.containsKey("player2_score");
 
-                    // Check if both players have submitted for this round
-                    boolean player1Submitted = roundEntry.containsKey("player1_score");
-                    boolean player2Submitted = roundEntry.containsKey("player2_score");
-
-                    if (player1Submitted && player2Submitted) {
-                        // Both players submitted, advance to next round or end game
-                        if (gameState.getCurrentRound() < gameState.getTotalRounds()) {
-                            gameState.setCurrentRound(gameState.getCurrentRound() + 1);
-                            gameState.setCurrentPhraseIndex(gameState.getCurrentPhraseIndex() + 1);
-                            gameState.setRoundStartTime(Instant.now().toString());
-                            // Reset any round-specific player state if necessary
-                        } else {
-                            gameState.setGameState("GAME_OVER");
-                            // Potentially update overall Match scores and winnerId here
-                            updateMatchScoresAndWinner(match, gameState);
-                        }
+                if (player1Submitted && player2Submitted) {
+                    // Both players submitted, advance to next round or end game
+                    finishRound(matchId, gameState);
+                }
+                // If only one player submitted, game state remains ROUND_IN_PROGRESS, waiting for the other.
+
+                if (!"GAME_OVER".equals(gameState.getGameState())) {
+                    liveMatchStateStore.markDirty(matchId); // GAME_OVER пишется ниже сразу (write-through)
+                }
+                return snapshotOf(gameState);
+            }))
+            .flatMap(snapshot -> saveIfGameOver(matchId, snapshot));
+    }
+
+    public static String stateTopic(Long matchId) {
+        return "/topic/duel/" + matchId + "/translation/state";
+    }
+
+    // Таймаут раунда: кто не успел ответить, получает 0, и раунд завершается без него
+    private void onRoundTimeout(Long matchId, int round) {
+        roundTimeouts.computeIfPresent(matchId, (id, timeout) -> timeout.isExpired() ? null : timeout);
+        liveMatchStateStore.getOrLoad(matchId, GameStatePayload.class)
+            .flatMap(live -> matchActorExecutor.execute(matchId, () -> {
+                GameStatePayload gameState = live.getState();
+                if (live.getMatch().getEndedAt() != null
+                        || !"ROUND_IN_PROGRESS".equals(gameState.getGameState())
+                        || gameState.getCurrentRound() != round) {
+                    return null; // Раунд уже завершили ответы игроков или матч закончен
+                }
+                Map<String, Object> roundEntry = roundEntry(gameState, round);
+                for (String playerPrefix : List.of("player1", "player2")) {
+                    if (!roundEntry.containsKey(playerPrefix + "_score")) {
+                        roundEntry.put(playerPrefix + "_score", 0);
+                        roundEntry.put(playerPrefix + "_timedOut", true);
                     }
-                    // If only one player submitted, game state remains ROUND_IN_PROGRESS, waiting for the other.
+                }
+                logger.info("Round {} of match {} timed out.", round, matchId);
+                finishRound(matchId, gameState);
+                if (!"GAME_OVER".equals(gameState.getGameState())) {
+                    liveMatchStateStore.markDirty(matchId);
+                }
+                return snapshotOf(gameState);
+            }))
+            .flatMap(snapshot -> saveIfGameOver(matchId, snapshot))
+            .subscribe(
+                snapshot -> gameStateBroadcaster.broadcast(stateTopic(matchId), snapshot),
+                error -> logger.error("Error handling round {} timeout for match {}: {}", round, matchId, error.getMessage())
+            );
+    }
 
-                    match.setMatchData(objectMapper.writeValueAsString(gameState));
-                    return matchRepository.save(match).thenReturn(gameState);
-                } catch (IOException e) {
-                    logger.error("Error processing player translation for match {}: {}", matchId, e.getMessage());
+    // Запись раунда в roundsData (создается при первом ответе или по таймауту). На шарде матча
+    private Map<String, Object> roundEntry(GameStatePayload gameState, int round) {
+        return gameState.getRoundsData().stream()
+            .filter(r -> r.get("round").equals(round))
+            .findFirst()
+            .orElseGet(() -> {
+                Map<String, Object> newEntry = new HashMap<>();
+                newEntry.put("round", round);
+                List<Integer> phraseIds = gameState.getPhraseIds();
+                if (phraseIds != null) {
+                    newEntry.put("phraseId", phraseIds.get(gameState.getCurrentPhraseIndex()));
+                }
+                gameState.getRoundsData().add(newEntry);
+                return newEntry;
+            });
+    }
+
+    // Both players are done with the round (answered or timed out): next round or game over. On the match's shard
+    private void finishRound(Long matchId, GameStatePayload gameState) {
+        if (gameState.getCurrentRound() < gameState.getTotalRounds()) {
+            gameState.setCurrentRound(gameState.getCurrentRound() + 1);
+            gameState.setCurrentPhraseIndex(gameState.getCurrentPhraseIndex() + 1);
+            gameState.setRoundStartTime(Instant.now().toString());
+            scheduleRoundTimeout(matchId, gameState.getCurrentRound(), gameState.getRoundTimeLimit());
+        } else {
+            gameState.setGameState("GAME_OVER");
+            HashedWheelTimer.Timeout timeout = roundTimeouts.remove(matchId);
+            if (timeout != null) {
+                timeout.cancel();
+            }
+        }
+    }
+
+    private void scheduleRoundTimeout(Long matchId, int round, long delaySeconds) {
+        HashedWheelTimer.Timeout timeout = roundTimer.schedule(() -> onRoundTimeout(matchId, round), delaySeconds, TimeUnit.SECONDS);
+        HashedWheelTimer.Timeout previous = roundTimeouts.put(matchId, timeout);
+        if (previous != null) {
+            previous.cancel();
+        }
+    }
+
+    // Таймеры живут только в памяти: после рестарта раунды в процессе получают таймер на оставшееся время,
+    // иначе раунд, в котором никто так и не ответил, не закончился бы никогда
+    @EventListener(ApplicationReadyEvent.class)
+    public void rearmRoundTimeouts() {
+        matchRepository.findActiveByMatchType("TRANSLATION")
+            .filter(match -> match.getMatchData() != null)
+            .flatMap(match -> {
+                GameStatePayload gameState;
+                try {
+                    gameState = objectMapper.readValue(match.getMatchData(), GameStatePayload.class);
+                } catch (JsonProcessingException e) {
+                    logger.warn("Skipping round timer of match {}: unreadable match_data ({})", match.getId(), e.getMessage());
+                    return Mono.empty();
+                }
+                if (!"ROUND_IN_PROGRESS".equals(gameState.getGameState())) {
+                    return Mono.empty();
+                }
+                // Сам таймаут загрузит матч и проверит раунд на шарде, так что здесь достаточно запланировать
+                return matchActorExecutor.execute(match.getId(), () -> ensureRoundTimeout(match.getId(), gameState));
+            })
+            .filter(Boolean::booleanValue)
+            .count()
+            .subscribe(
+                count -> logger.info("Re-armed {} Translation Battle round timers after startup.", count),
+                error -> logger.error("Failed to re-arm Translation Battle round timers: {}", error.getMessage(), error)
+            );
+    }
+
+    // Запланировать таймер раунда, загруженного из match_data, если его еще нет; true - если запланирован
+    private boolean ensureRoundTimeout(Long matchId, GameStatePayload gameState) {
+        if (roundTimeouts.containsKey(matchId) || gameState.getRoundStartTime() == null) {
+            return false;
+        }
+        long limitSeconds = gameState.getRoundTimeLimit() > 0 ? gameState.getRoundTimeLimit() : roundTimeLimitSeconds;
+        long elapsedSeconds = Duration.between(Instant.parse(gameState.getRoundStartTime()), Instant.now()).toSeconds();
+        scheduleRoundTimeout(matchId, gameState.getCurrentRound(), Math.max(0, limitSeconds - elapsedSeconds));
+        return true;
+    }
+
+    // GAME_OVER сразу пишется в matches (write-through), после чего живое состояние выгружается.
+    // Сначала fence: write-behind, который еще в пути, не перезапишет итоговый match_data
+    private Mono<GameStatePayload> saveIfGameOver(Long matchId, GameStatePayload snapshot) {
+        if (!"GAME_OVER".equals(snapshot.getGameState())) {
+            return Mono.just(snapshot);
+        }
+        return matchRepository.fenceMatchData(matchId)
+            .then(matchRepository.findById(matchId))
+            .flatMap(match -> {
+                try {
+                    updateMatchScoresAndWinner(match, snapshot);
+                    match.setMatchData(objectMapper.writeValueAsString(snapshot));
+                } catch (JsonProcessingException e) {
+                    logger.error("Error saving final game state for match {}: {}", matchId, e.getMessage());
                     return Mono.error(e);
                 }
+                return matchRepository.save(match);
             })
-            .switchIfEmpty(Mono.error(new RuntimeException("Match not found: " + matchId)));
+            .doOnSuccess(saved -> liveMatchStateStore.evict(matchId))
+            .thenReturn(snapshot);
     }
     
+    // Снимок для отправки игрокам: с текущей фразой из PhraseBank (в живом состоянии и match_data ее нет)
+    private GameStatePayload snapshotOf(GameStatePayload gameState) {
+        GameStatePayload snapshot = new GameStatePayload(gameState);
+        List<Integer> phraseIds = gameState.getPhraseIds();
+        int index = gameState.getCurrentPhraseIndex();
+        if ("ROUND_IN_PROGRESS".equals(gameState.getGameState()) && phraseIds != null && index >= 0 && index < phraseIds.size()) {
+            snapshot.setCurrentPhrase(phraseBank.describe(phraseIds.get(index)));
+        }
+        return snapshot;
+    }
+
     private void updateMatchScoresAndWinner(Match match, GameStatePayload gameState) {
         // This is where you'd update the main Match object's scores if they represent the game outcome
         // For now, we assume player1GameScore and player2GameScore are the final scores for this minigame
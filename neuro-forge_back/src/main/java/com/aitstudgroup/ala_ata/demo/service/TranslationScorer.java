@@ -0,0 +1,263 @@
+package com.aitstudgroup.ala_ata.demo.service;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Partial-credit scoring of Translation Battle answers.
+ * Both the answer and the accepted translations are folded the same way: case, diacritics and
+ * punctuation are dropped and whitespace collapses to single spaces. Accepted translations are
+ * separated by '|' in the phrase bank. They are folded once at startup into one char pool
+ * indexed by phrase, so scoring only folds the submission. The score is the best similarity
+ * 1 - distance / length against any accepted translation, scaled to 0..100 and cut to 0 below
+ * the minimum similarity. Distances come from a Levenshtein band limited by that minimum,
+ * which stops as soon as every cell in a row is over the limit. A submission folded longer than
+ * the phrase's longest accepted answer divided by the minimum similarity cannot reach it, so
+ * folding stops there and it scores 0. All buffers are per-thread, sized once for the longest
+ * answer in the bank, so scoring a submission does not allocate whatever its length.
+ */
+@Component
+public class TranslationScorer {
+    private static final Logger logger = LoggerFactory.getLogger(TranslationScorer.class);
+
+    static final char ANSWER_SEPARATOR = '|';
+    private static final int MAX_SCORE = 100;
+    private static final int FOLD_TABLE_SIZE = 0x0250; // Latin-1 и Latin Extended-A/B
+    private static final char DROP = '\0';
+    private static final int INFINITY = Integer.MAX_VALUE / 2;
+
+    // Для каждого символа латиницы - его свернутая форма (строчная, без диакритики) или DROP для пунктуации
+    private static final char[] FOLD_TABLE = buildFoldTable();
+
+    private final PhraseBank phraseBank;
+    private final double minSimilarity;
+    private final char[] answerPool; // Свернутые принятые ответы всех фраз подряд
+    private final int[] answerOffsets; // Ответ a: [answerOffsets[a], answerOffsets[a + 1])
+    private final int[] firstAnswerByPhrase; // Ответы фразы с индексом p: [firstAnswerByPhrase[p], firstAnswerByPhrase[p + 1])
+    private final ThreadLocal<Workspace> workspace;
+
+    private static final class Workspace {
+        final char[] submission;
+        final int[] previousRow;
+        final int[] currentRow;
+
+        Workspace(int maxSubmissionLength) {
+            submission = new char[maxSubmissionLength];
+            previousRow = new int[maxSubmissionLength + 1];
+            currentRow = new int[maxSubmissionLength + 1];
+        }
+    }
+
+    public TranslationScorer(PhraseBank phraseBank,
+                             @Value("${translation.scoring.min-similarity:0.6}") double minSimilarity) {
+        if (!(minSimilarity > 0 && minSimilarity <= 1)) {
+            throw new IllegalArgumentException("translation.scoring.min-similarity must be in (0, 1], got " + minSimilarity);
+        }
+        this.phraseBank = phraseBank;
+        this.minSimilarity = minSimilarity;
+
+        int phraseCount = phraseBank.size();
+        StringBuilder pool = new StringBuilder();
+        int[] offsets = new int[phraseCount * 2 + 1];
+        int answerCount = 0;
+        this.firstAnswerByPhrase = new int[phraseCount + 1];
+        char[] buffer = new char[64];
+        for (int phrase = 0; phrase < phraseCount; phrase++) {
+            firstAnswerByPhrase[phrase] = answerCount;
+            String accepted = phraseBank.getCorrectAnswerAt(phrase);
+            int start = 0;
+            while (start <= accepted.length()) {
+                int end = accepted.indexOf(ANSWER_SEPARATOR, start);
+                if (end < 0) {
+                    end = accepted.length();
+                }
+                if (buffer.length < end - start) {
+                    buffer = new char[end - start];
+                }
+                int length = fold(accepted, start, end, buffer);
+                if (length > 0) {
+                    if (answerCount + 1 >= offsets.length) {
+                        offsets = Arrays.copyOf(offsets, offsets.length * 2);
+                    }
+                    offsets[answerCount] = pool.length();
+                    pool.append(buffer, 0, length);
+                    answerCount++;
+                }
+                start = end + 1;
+            }
+        }
+        firstAnswerByPhrase[phraseCount] = answerCount;
+        offsets[answerCount] = pool.length();
+        this.answerOffsets = Arrays.copyOf(offsets, answerCount + 1);
+        this.answerPool = new char[pool.length()];
+        pool.getChars(0, pool.length(), answerPool, 0);
+        int longestAnswer = 0;
+        for (int answer = 0; answer < answerCount; answer++) {
+            longestAnswer = Math.max(longestAnswer, answerOffsets[answer + 1] - answerOffsets[answer]);
+        }
+        int maxSubmissionLength = maxSubmissionLength(longestAnswer);
+        this.workspace = ThreadLocal.withInitial(() -> new Workspace(maxSubmissionLength));
+        logger.info("Translation scorer compiled {} accepted answers for {} phrases (min similarity {}).",
+            answerCount, phraseCount, minSimilarity);
+    }
+
+    // Очки 0..100 за перевод фразы
+    public int score(int phraseId, String translation) {
+        int phrase = phraseBank.indexOf(phraseId);
+        int longestAnswer = 0;
+        for (int answer = firstAnswerByPhrase[phrase]; answer < firstAnswerByPhrase[phrase + 1]; answer++) {
+            longestAnswer = Math.max(longestAnswer, answerOffsets[answer + 1] - answerOffsets[answer]);
+        }
+        Workspace workspace = this.workspace.get();
+        int submissionLength = fold(translation, 0, translation.length(), workspace.submission, maxSubmissionLength(longestAnswer));
+        if (submissionLength < 0) {
+            return 0; // Длиннее любого ответа, который еще мог бы набрать minSimilarity
+        }
+
+        int best = 0;
+        for (int answer = firstAnswerByPhrase[phrase]; answer < firstAnswerByPhrase[phrase + 1]; answer++) {
+            int answerStart = answerOffsets[answer];
+            int answerLength = answerOffsets[answer + 1] - answerStart;
+            int longest = Math.max(submissionLength, answerLength);
+            if (longest == 0) {
+                continue;
+            }
+            int limit = (int) Math.floor(longest * (1 - minSimilarity));
+            int distance = boundedDistance(workspace.submission, submissionLength, answerPool, answerStart, answerLength,
+                limit, workspace.previousRow, workspace.currentRow);
+            if (distance < 0) {
+                continue;
+            }
+            int score = (int) Math.round(MAX_SCORE * (1 - (double) distance / longest));
+            if (score > best) {
+                best = score;
+                if (best == MAX_SCORE) {
+                    break;
+                }
+            }
+        }
+        return best;
+    }
+
+    // Самый длинный ответ, у которого с ответом длины answerLength еще может быть сходство >= minSimilarity:
+    // расстояние не меньше разницы длин, так что нужно length * minSimilarity <= answerLength
+    private int maxSubmissionLength(int answerLength) {
+        return (int) Math.ceil(answerLength / minSimilarity);
+    }
+
+    // Свернуть text[start, end) в out; возвращает длину (не больше end - start)
+    static int fold(CharSequence text, int start, int end, char[] out) {
+        return fold(text, start, end, out, out.length);
+    }
+
+    // То же, но не длиннее maxLength: если свернутый текст длиннее, возвращает -1 (out - не меньше maxLength)
+    static int fold(CharSequence text, int start, int end, char[] out, int maxLength) {
+        int length = 0;
+        boolean pendingSpace = false;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            char folded;
+            if (c < FOLD_TABLE_SIZE) {
+                folded = FOLD_TABLE[c];
+            } else {
+                int type = Character.getType(c);
+                folded = type == Character.NON_SPACING_MARK || type == Character.ENCLOSING_MARK || isPunctuation(type) ? DROP
+                    : Character.isWhitespace(c) ? ' '
+                    : Character.toLowerCase(c);
+            }
+            if (folded == DROP) {
+                continue;
+            }
+            if (folded == ' ') {
+                pendingSpace = length > 0;
+                continue;
+            }
+            if (length + (pendingSpace ? 2 : 1) > maxLength) {
+                return -1;
+            }
+            if (pendingSpace) {
+                out[length++] = ' ';
+                pendingSpace = false;
+            }
+            out[length++] = folded;
+        }
+        return length;
+    }
+
+    /**
+     * Levenshtein distance between a[0, aLength) and b[bStart, bStart + bLength), or -1 if it is
+     * above limit. Only the diagonal band of width 2 * limit + 1 is computed. The rows are
+     * caller-owned and must hold aLength + 1 ints.
+     */
+    static int boundedDistance(char[] a, int aLength, char[] b, int bStart, int bLength, int limit,
+                               int[] previousRow, int[] currentRow) {
+        if (Math.abs(aLength - bLength) > limit) {
+            return -1;
+        }
+        if (aLength == 0 || bLength == 0) {
+            return Math.max(aLength, bLength);
+        }
+        int[] previous = previousRow;
+        int[] current = currentRow;
+        Arrays.fill(previous, 0, aLength + 1, INFINITY);
+        Arrays.fill(current, 0, aLength + 1, INFINITY);
+        for (int i = 0; i <= Math.min(aLength, limit); i++) {
+            previous[i] = i;
+        }
+
+        for (int j = 1; j <= bLength; j++) {
+            char bj = b[bStart + j - 1];
+            int from = Math.max(1, j - limit);
+            int to = Math.min(aLength, j + limit);
+            current[0] = j <= limit ? j : INFINITY;
+            if (from > 1) {
+                current[from - 1] = INFINITY;
+            }
+            int rowMin = current[0];
+            for (int i = from; i <= to; i++) {
+                int cost = a[i - 1] == bj ? previous[i - 1]
+                    : 1 + Math.min(previous[i - 1], Math.min(previous[i], current[i - 1]));
+                current[i] = cost;
+                if (cost < rowMin) {
+                    rowMin = cost;
+                }
+            }
+            if (rowMin > limit) {
+                return -1; // Дальше расстояние только растет
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[aLength] <= limit ? previous[aLength] : -1;
+    }
+
+    private static boolean isPunctuation(int type) {
+        return type == Character.CONNECTOR_PUNCTUATION || type == Character.DASH_PUNCTUATION
+            || type == Character.START_PUNCTUATION || type == Character.END_PUNCTUATION
+            || type == Character.INITIAL_QUOTE_PUNCTUATION || type == Character.FINAL_QUOTE_PUNCTUATION
+            || type == Character.OTHER_PUNCTUATION;
+    }
+
+    private static char[] buildFoldTable() {
+        char[] table = new char[FOLD_TABLE_SIZE];
+        for (char c = 0; c < FOLD_TABLE_SIZE; c++) {
+            int type = Character.getType(c);
+            if (Character.isWhitespace(c) || Character.isSpaceChar(c)) {
+                table[c] = ' ';
+            } else if (isPunctuation(type) || Character.isISOControl(c)) {
+                table[c] = DROP;
+            } else {
+                // Первая буква канонического разложения: é -> e, Ñ -> n; ß, ø и т.п. не раскладываются и остаются
+                char base = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD).charAt(0);
+                table[c] = Character.toLowerCase(base);
+            }
+        }
+        return table;
+    }
+}
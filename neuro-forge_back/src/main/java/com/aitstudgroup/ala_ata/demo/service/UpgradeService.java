@@ -246,10 +246,12 @@ public class UpgradeService {
                 
                 logger.debug("Возврат {} кредитов за отмену апгрейда {}", refundAmount, upgradeType);
                 
-                // Сбрасываем статус апгрейда и возвращаем кредиты
+                // Сбрасываем статус апгрейда и возвращаем кредиты записью в журнал
                 return upgradeRepository.updateUpgradeStatus(upgrade.getId(), false, null)
-                    .then(resourceService.addCredits(playerId, refundAmount)
-                        .thenReturn(upgrade))
+                    .then(refundAmount > 0
+                        ? resourceService.recordCredits(playerId, refundAmount, ResourceLedger.REASON_UPGRADE_REFUND)
+                        : Mono.<Void>empty())
+                    .thenReturn(upgrade)
                     .flatMap(u -> upgradeRepository.findById(upgrade.getId()));
             });
     }
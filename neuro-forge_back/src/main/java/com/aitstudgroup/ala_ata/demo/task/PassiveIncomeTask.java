@@ -1,47 +1,63 @@
 package com.aitstudgroup.ala_ata.demo.task;
 
+import java.util.concurrent.atomic.AtomicBoolean;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 import com.aitstudgroup.ala_ata.demo.service.AIModelService;
 import com.aitstudgroup.ala_ata.demo.service.ResourceService;
 
+import reactor.core.publisher.Mono;
+
 @Component
 public class PassiveIncomeTask {
     private static final Logger logger = LoggerFactory.getLogger(PassiveIncomeTask.class);
     
     private final AIModelService aiModelService;
     private final ResourceService resourceService;
+    private final int chunkSize;
+    private final AtomicBoolean running = new AtomicBoolean();
     
     @Autowired
-    public PassiveIncomeTask(AIModelService aiModelService, ResourceService resourceService) {
+    public PassiveIncomeTask(AIModelService aiModelService, ResourceService resourceService,
+                             @Value("${passive-income.chunk-size:5000}") int chunkSize) {
         this.aiModelService = aiModelService;
         this.resourceService = resourceService;
+        this.chunkSize = chunkSize;
     }
     
-    @Scheduled(fixedRate = 60000) // Каждую минуту
+    // Каждую минуту: доход считается в БД одним агрегатом по игрокам (SUM по моделям) и записывается в журнал
+    // ресурсов порциями по chunkSize игроков, без чтения моделей и кошельков в приложение
+    @Scheduled(fixedRate = 60000)
     public void processPassiveIncome() {
+        if (resourceService.isLazyIncome()) {
+            return; // passive-income.mode=lazy: доход начисляется при чтении кошелька и списании
+        }
+        if (!running.compareAndSet(false, true)) {
+            logger.warn("Предыдущее начисление пассивного дохода еще не закончилось, тик пропущен");
+            return;
+        }
         logger.info("Начисление пассивного дохода...");
+        long startNanos = System.nanoTime();
         
-        aiModelService.findAllDeployedModels()
-            .flatMap(model -> {
-                int income = model.getCreditsPerMinute();
-                if (income <= 0) {
-                    return aiModelService
-                        .recalculateModelIncome(model.getId())
-                        .flatMap(newIncome -> 
-                            resourceService.addCredits(model.getPlayerId(), newIncome)
-                        );
-                }
-                
-                return resourceService.addCredits(model.getPlayerId(), income);
-            })
+        // Модели без посчитанного дохода (редкость) пересчитываются до начисления, как и раньше
+        aiModelService.findDeployedModelsWithoutIncome()
+            .flatMap(model -> aiModelService.recalculateModelIncome(model.getId())
+                .onErrorResume(error -> {
+                    logger.warn("Не удалось пересчитать доход модели {}: {}", model.getId(), error.getMessage());
+                    return Mono.empty();
+                }), 8)
+            .then(Mono.defer(() -> resourceService.creditPassiveIncome(chunkSize)))
+            .doFinally(signal -> running.set(false))
             .subscribe(
-                wallet -> logger.debug("Кредиты начислены: {}", wallet.getCloudCredits()),
+                total -> logger.info("Пассивный доход: {} кредитов на {} кошельков за {} мс",
+                    total.creditsAdded(), total.walletsCredited(), (System.nanoTime() - startNanos) / 1_000_000),
                 error -> logger.error("Ошибка при начислении пассивного дохода: {}", error.getMessage())
             );
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,178 @@
+package com.aitstudgroup.ala_ata.demo.util;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Writes a Jackson tree as CBOR (RFC 8949): definite-length maps and arrays, UTF-8 text, the
+ * shortest integer head for every length and integer, float32 when a double survives the round
+ * trip and float64 otherwise. Integral doubles within +-2^53 are written as integers: the
+ * browser reads both as the same Number, and the integer form is 1-9 bytes instead of 5-9.
+ * Output is plain CBOR, so any decoder (the frontend's services/cbor.js, cbor-x, ...) reads it.
+ */
+public class CborEncoder {
+    private static final int MAJOR_UNSIGNED = 0;
+    private static final int MAJOR_NEGATIVE = 1 << 5;
+    private static final int MAJOR_BYTES = 2 << 5;
+    private static final int MAJOR_TEXT = 3 << 5;
+    private static final int MAJOR_ARRAY = 4 << 5;
+    private static final int MAJOR_MAP = 5 << 5;
+    private static final int FALSE = 0xF4;
+    private static final int TRUE = 0xF5;
+    private static final int NULL = 0xF6;
+    private static final int FLOAT32 = 0xFA;
+    private static final int FLOAT64 = 0xFB;
+    private static final long MAX_SAFE_INTEGER = (1L << 53) - 1; // Number.MAX_SAFE_INTEGER
+
+    private byte[] buffer = new byte[256];
+    private int length;
+
+    private CborEncoder() {
+    }
+
+    public static byte[] encode(JsonNode node) {
+        CborEncoder encoder = new CborEncoder();
+        encoder.write(node);
+        return Arrays.copyOf(encoder.buffer, encoder.length);
+    }
+
+    private void write(JsonNode node) {
+        switch (node.getNodeType()) {
+            case OBJECT -> {
+                writeHead(MAJOR_MAP, node.size());
+                Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+                while (fields.hasNext()) {
+                    Map.Entry<String, JsonNode> field = fields.next();
+                    writeText(field.getKey());
+                    write(field.getValue());
+                }
+            }
+            case ARRAY -> {
+                writeHead(MAJOR_ARRAY, node.size());
+                for (JsonNode element : node) {
+                    write(element);
+                }
+            }
+            case STRING -> writeText(node.textValue());
+            case NUMBER -> writeNumber(node);
+            case BOOLEAN -> writeByte(node.booleanValue() ? TRUE : FALSE);
+            case BINARY -> {
+                byte[] bytes = binaryValue(node);
+                writeHead(MAJOR_BYTES, bytes.length);
+                writeBytes(bytes);
+            }
+            default -> writeByte(NULL); // NULL, MISSING, POJO
+        }
+    }
+
+    private void writeNumber(JsonNode node) {
+        if (node.canConvertToExactIntegral() && node.canConvertToLong()) {
+            writeInteger(node.longValue());
+            return;
+        }
+        double value = node.doubleValue();
+        if (value == Math.rint(value) && Math.abs(value) <= MAX_SAFE_INTEGER && !(value == 0 && 1 / value < 0)) {
+            writeInteger((long) value);
+        } else if ((double) (float) value == value || Double.isNaN(value)) {
+            writeByte(FLOAT32);
+            writeInt(Float.floatToIntBits((float) value));
+        } else {
+            writeByte(FLOAT64);
+            long bits = Double.doubleToLongBits(value);
+            writeInt((int) (bits >>> 32));
+            writeInt((int) bits);
+        }
+    }
+
+    private void writeInteger(long value) {
+        if (value >= 0) {
+            writeHead(MAJOR_UNSIGNED, value);
+        } else {
+            writeHead(MAJOR_NEGATIVE, -1 - value); // -1 - n: Long.MIN_VALUE тоже помещается
+        }
+    }
+
+    private void writeText(String text) {
+        int length = text.length();
+        if (isAscii(text, length)) {
+            // Ключи и большинство значений - ASCII: длина в байтах известна, пишем символы без промежуточного массива
+            writeHead(MAJOR_TEXT, length);
+            ensureCapacity(length);
+            for (int i = 0; i < length; i++) {
+                buffer[this.length++] = (byte) text.charAt(i);
+            }
+            return;
+        }
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        writeHead(MAJOR_TEXT, bytes.length);
+        writeBytes(bytes);
+    }
+
+    private static boolean isAscii(String text, int length) {
+        for (int i = 0; i < length; i++) {
+            if (text.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Заголовок элемента: major type и аргумент в кратчайшей форме (0..23 - в том же байте)
+    private void writeHead(int major, long argument) {
+        if (argument < 24) {
+            writeByte(major | (int) argument);
+        } else if (argument < 1 << 8) {
+            writeByte(major | 24);
+            writeByte((int) argument);
+        } else if (argument < 1 << 16) {
+            writeByte(major | 25);
+            writeByte((int) (argument >>> 8));
+            writeByte((int) argument);
+        } else if (argument < 1L << 32) {
+            writeByte(major | 26);
+            writeInt((int) argument);
+        } else {
+            writeByte(major | 27);
+            writeInt((int) (argument >>> 32));
+            writeInt((int) argument);
+        }
+    }
+
+    private void writeInt(int value) {
+        ensureCapacity(4);
+        buffer[length++] = (byte) (value >>> 24);
+        buffer[length++] = (byte) (value >>> 16);
+        buffer[length++] = (byte) (value >>> 8);
+        buffer[length++] = (byte) value;
+    }
+
+    private void writeByte(int value) {
+        ensureCapacity(1);
+        buffer[length++] = (byte) value;
+    }
+
+    private void writeBytes(byte[] bytes) {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, length, bytes.length);
+        length += bytes.length;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (length + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + extra));
+        }
+    }
+
+    private static byte[] binaryValue(JsonNode node) {
+        try {
+            return node.binaryValue();
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Unreadable binary node", e);
+        }
+    }
+}
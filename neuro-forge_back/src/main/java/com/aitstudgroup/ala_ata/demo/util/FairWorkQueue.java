@@ -0,0 +1,135 @@
+package com.aitstudgroup.ala_ata.demo.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+/**
+ * Bounded, fair admission of reactive work: work waits in per-key FIFO queues and is started
+ * round-robin across keys, at most maxInFlight at a time, so one busy key cannot starve the
+ * others. Past the overall or per-key queue limit a submission fails at once instead of piling
+ * up. With oneAtATimePerKey the next work of a key starts only after the previous one has
+ * completed, which gives strict per-key ordering. A slot is held until the work's Mono completes.
+ * Nothing blocks: submit only enqueues, and work is started on the thread that freed the slot.
+ */
+public class FairWorkQueue<K> {
+    private final int maxInFlight;
+    private final int capacity;
+    private final int perKeyCapacity;
+    private final boolean oneAtATimePerKey;
+
+    // Все поля ниже - под монитором this
+    private final Map<K, ArrayDeque<Work<K, ?>>> queuesByKey = new HashMap<>();
+    private final ArrayDeque<K> keysInTurn = new ArrayDeque<>();
+    private final Set<K> runningKeys = new HashSet<>();
+    private int queued;
+    private int inFlight;
+
+    private record Work<Q, T>(Q key, Supplier<Mono<T>> work, MonoSink<T> sink) {
+        void start(Runnable onDone) {
+            Mono<T> result;
+            try {
+                result = work.get();
+            } catch (RuntimeException e) {
+                result = Mono.error(e);
+            }
+            result.doFinally(signal -> onDone.run())
+                .subscribe(sink::success, sink::error, sink::success);
+        }
+    }
+
+    public FairWorkQueue(int maxInFlight, int capacity, int perKeyCapacity, boolean oneAtATimePerKey) {
+        this.maxInFlight = maxInFlight;
+        this.capacity = capacity;
+        this.perKeyCapacity = perKeyCapacity;
+        this.oneAtATimePerKey = oneAtATimePerKey;
+    }
+
+    // Поставить работу в очередь ключа. Очередь заполнена - ошибка из rejection (вызывается вне монитора:
+    // там можно считать и логировать)
+    public <T> Mono<T> submit(K key, Supplier<Mono<T>> work, Supplier<? extends RuntimeException> rejection) {
+        return Mono.<T>create(sink -> {
+            boolean accepted;
+            synchronized (this) {
+                ArrayDeque<Work<K, ?>> keyQueue = queuesByKey.get(key);
+                accepted = queued < capacity && (keyQueue == null || keyQueue.size() < perKeyCapacity);
+                if (accepted) {
+                    if (keyQueue == null) {
+                        keyQueue = new ArrayDeque<>();
+                        queuesByKey.put(key, keyQueue);
+                        if (!runningKeys.contains(key)) {
+                            keysInTurn.add(key);
+                        }
+                    }
+                    keyQueue.add(new Work<>(key, work, sink));
+                    queued++;
+                }
+            }
+            if (!accepted) {
+                sink.error(rejection.get());
+                return;
+            }
+            drain();
+        });
+    }
+
+    public synchronized int queuedCount() {
+        return queued;
+    }
+
+    public synchronized int queuedCount(K key) {
+        ArrayDeque<Work<K, ?>> keyQueue = queuesByKey.get(key);
+        return keyQueue != null ? keyQueue.size() : 0;
+    }
+
+    public synchronized int inFlightCount() {
+        return inFlight;
+    }
+
+    // Запустить готовую работу: по кругу ключей, не больше maxInFlight одновременно
+    private void drain() {
+        List<Work<K, ?>> toStart = new ArrayList<>();
+        synchronized (this) {
+            while (inFlight < maxInFlight && !keysInTurn.isEmpty()) {
+                K key = keysInTurn.poll();
+                ArrayDeque<Work<K, ?>> keyQueue = queuesByKey.get(key);
+                toStart.add(keyQueue.poll());
+                if (keyQueue.isEmpty()) {
+                    queuesByKey.remove(key);
+                } else if (!oneAtATimePerKey) {
+                    keysInTurn.add(key); // В конец круга: следующим пойдет другой ключ
+                }
+                if (oneAtATimePerKey) {
+                    runningKeys.add(key);
+                }
+                queued--;
+                inFlight++;
+            }
+        }
+        for (Work<K, ?> work : toStart) {
+            work.start(() -> onWorkDone(work));
+        }
+    }
+
+    private void onWorkDone(Work<K, ?> work) {
+        synchronized (this) {
+            inFlight--;
+            if (oneAtATimePerKey) {
+                K key = work.key();
+                runningKeys.remove(key);
+                if (queuesByKey.containsKey(key)) {
+                    keysInTurn.add(key); // Следующая работа ключа - в конец круга
+                }
+            }
+        }
+        drain();
+    }
+}
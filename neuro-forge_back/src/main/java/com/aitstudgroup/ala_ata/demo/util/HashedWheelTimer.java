@@ -0,0 +1,229 @@
+package com.aitstudgroup.ala_ata.demo.util;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Hashed timing wheel: one thread serves any number of timeouts.
+ * The wheel is an array of buckets, each covering one tick. A timeout lands in the bucket of its
+ * deadline tick together with the number of full wheel turns still to wait, so scheduling and
+ * cancelling are O(1) whatever the number of pending timeouts, and each tick only walks one
+ * bucket. Deadlines are rounded up to the tick. New and cancelled timeouts are handed to the
+ * worker through lock-free queues; buckets are touched by the worker thread only.
+ * Tasks run on the worker thread and must be short (hand real work to another executor).
+ */
+public class HashedWheelTimer {
+    private static final Logger logger = LoggerFactory.getLogger(HashedWheelTimer.class);
+
+    private static final int MAX_TRANSFERS_PER_TICK = 100_000;
+
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final Queue<Entry> scheduled = new ConcurrentLinkedQueue<>();
+    private final Queue<Entry> cancelled = new ConcurrentLinkedQueue<>();
+    private final AtomicLong pending = new AtomicLong();
+    private final long startNanos;
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    public interface Timeout {
+        // false, если таймаут уже сработал или отменен
+        boolean cancel();
+
+        boolean isExpired();
+
+        boolean isCancelled();
+    }
+
+    public HashedWheelTimer(String threadName, long tickDuration, TimeUnit unit, int wheelSize) {
+        if (tickDuration <= 0 || wheelSize <= 0) {
+            throw new IllegalArgumentException("Tick duration and wheel size must be positive");
+        }
+        this.tickNanos = unit.toNanos(tickDuration);
+        int size = Integer.highestOneBit(wheelSize - 1) << 1; // Степень двойки: номер корзины - маской, а не делением
+        this.wheel = new Bucket[Math.max(1, size)];
+        for (int i = 0; i < wheel.length; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = wheel.length - 1;
+        this.startNanos = System.nanoTime();
+        this.worker = new Thread(this::run, threadName);
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        if (!running) {
+            throw new IllegalStateException("Timer is stopped");
+        }
+        Entry entry = new Entry(task, System.nanoTime() - startNanos + unit.toNanos(Math.max(0, delay)));
+        pending.incrementAndGet();
+        scheduled.add(entry);
+        return entry;
+    }
+
+    public long pendingTimeouts() {
+        return pending.get();
+    }
+
+    public void stop() {
+        running = false;
+        worker.interrupt();
+    }
+
+    private void run() {
+        long tick = 0;
+        while (running) {
+            long deadline = tickNanos * (tick + 1);
+            long sleepNanos;
+            while (running && (sleepNanos = startNanos + deadline - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(sleepNanos);
+            }
+            if (!running) {
+                break;
+            }
+            removeCancelled();
+            transferScheduled(tick);
+            wheel[(int) (tick & mask)].expire();
+            tick++;
+        }
+    }
+
+    private void removeCancelled() {
+        Entry entry;
+        while ((entry = cancelled.poll()) != null) {
+            if (entry.bucket != null) {
+                entry.bucket.remove(entry);
+            }
+        }
+    }
+
+    private void transferScheduled(long currentTick) {
+        for (int i = 0; i < MAX_TRANSFERS_PER_TICK; i++) {
+            Entry entry = scheduled.poll();
+            if (entry == null) {
+                return;
+            }
+            if (entry.isCancelled()) {
+                continue;
+            }
+            long deadlineTick = (entry.deadlineNanos + tickNanos - 1) / tickNanos;
+            long targetTick = Math.max(deadlineTick, currentTick); // Просроченные - в текущую корзину
+            entry.remainingRounds = (targetTick - currentTick) / wheel.length;
+            wheel[(int) (targetTick & mask)].add(entry);
+        }
+    }
+
+    private final class Entry implements Timeout {
+        private static final int INIT = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+
+        private final Runnable task;
+        private final long deadlineNanos; // От startNanos
+        private final AtomicInteger state = new AtomicInteger(INIT);
+        // Поля ниже - только для потока колеса
+        private long remainingRounds;
+        private Bucket bucket;
+        private Entry previous;
+        private Entry next;
+
+        Entry(Runnable task, long deadlineNanos) {
+            this.task = task;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        @Override
+        public boolean cancel() {
+            if (!state.compareAndSet(INIT, CANCELLED)) {
+                return false;
+            }
+            pending.decrementAndGet();
+            cancelled.add(this);
+            return true;
+        }
+
+        @Override
+        public boolean isExpired() {
+            return state.get() == EXPIRED;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+
+        void expire() {
+            if (!state.compareAndSet(INIT, EXPIRED)) {
+                return;
+            }
+            pending.decrementAndGet();
+            try {
+                task.run();
+            } catch (Throwable e) {
+                logger.error("Timer task failed: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    // Двусвязный список таймаутов одной корзины
+    private static final class Bucket {
+        private Entry head;
+        private Entry tail;
+
+        void add(Entry entry) {
+            entry.bucket = this;
+            entry.previous = tail;
+            entry.next = null;
+            if (tail == null) {
+                head = entry;
+            } else {
+                tail.next = entry;
+            }
+            tail = entry;
+        }
+
+        void remove(Entry entry) {
+            if (entry.bucket != this) {
+                return;
+            }
+            if (entry.previous == null) {
+                head = entry.next;
+            } else {
+                entry.previous.next = entry.next;
+            }
+            if (entry.next == null) {
+                tail = entry.previous;
+            } else {
+                entry.next.previous = entry.previous;
+            }
+            entry.bucket = null;
+            entry.previous = null;
+            entry.next = null;
+        }
+
+        void expire() {
+            Entry entry = head;
+            while (entry != null) {
+                Entry next = entry.next;
+                if (entry.isCancelled()) {
+                    remove(entry);
+                } else if (entry.remainingRounds <= 0) {
+                    remove(entry);
+                    entry.expire();
+                } else {
+                    entry.remainingRounds--;
+                }
+                entry = next;
+            }
+        }
+    }
+}
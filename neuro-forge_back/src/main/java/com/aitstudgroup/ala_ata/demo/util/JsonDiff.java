@@ -0,0 +1,85 @@
+package com.aitstudgroup.ala_ata.demo.util;
+
+import java.util.Iterator;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Minimal JSON Patch (RFC 6902 subset: add, remove, replace) between two JSON trees.
+ * Objects are compared field by field and arrays element by element; elements past the end of
+ * the shorter array become trailing adds or removes (highest index first), which is exactly
+ * what append-only lists in game states need. Anything else that differs is replaced whole.
+ */
+public class JsonDiff {
+
+    private JsonDiff() {
+    }
+
+    public static ArrayNode diff(JsonNode source, JsonNode target) {
+        ArrayNode ops = JsonNodeFactory.instance.arrayNode();
+        diff("", source, target, ops);
+        return ops;
+    }
+
+    private static void diff(String path, JsonNode source, JsonNode target, ArrayNode ops) {
+        if (source.equals(target)) {
+            return;
+        }
+        if (source.isObject() && target.isObject()) {
+            Iterator<String> sourceFields = source.fieldNames();
+            while (sourceFields.hasNext()) {
+                String field = sourceFields.next();
+                if (!target.has(field)) {
+                    op(ops, "remove", path + "/" + escape(field), null);
+                }
+            }
+            Iterator<Map.Entry<String, JsonNode>> targetFields = target.fields();
+            while (targetFields.hasNext()) {
+                Map.Entry<String, JsonNode> field = targetFields.next();
+                String fieldPath = path + "/" + escape(field.getKey());
+                JsonNode sourceValue = source.get(field.getKey());
+                if (sourceValue == null) {
+                    op(ops, "add", fieldPath, field.getValue());
+                } else {
+                    diff(fieldPath, sourceValue, field.getValue(), ops);
+                }
+            }
+            return;
+        }
+        if (source.isArray() && target.isArray()) {
+            int common = Math.min(source.size(), target.size());
+            for (int i = 0; i < common; i++) {
+                diff(path + "/" + i, source.get(i), target.get(i), ops);
+            }
+            for (int i = common; i < target.size(); i++) {
+                op(ops, "add", path + "/" + i, target.get(i));
+            }
+            for (int i = source.size() - 1; i >= common; i--) {
+                op(ops, "remove", path + "/" + i, null);
+            }
+            return;
+        }
+        op(ops, "replace", path, target);
+    }
+
+    private static void op(ArrayNode ops, String op, String path, JsonNode value) {
+        ObjectNode node = ops.addObject();
+        node.put("op", op);
+        node.put("path", path);
+        if (value != null) {
+            node.set("value", value);
+        }
+    }
+
+    // RFC 6901: '~' -> "~0", '/' -> "~1"
+    private static String escape(String field) {
+        if (field.indexOf('~') < 0 && field.indexOf('/') < 0) {
+            return field;
+        }
+        return field.replace("~", "~0").replace("/", "~1");
+    }
+}
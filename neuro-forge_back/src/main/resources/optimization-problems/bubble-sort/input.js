@@ -0,0 +1,5 @@
+(function (n, random) {
+  const arr = new Array(n);
+  for (let i = 0; i < n; i++) arr[i] = random(100000);
+  return [arr];
+})
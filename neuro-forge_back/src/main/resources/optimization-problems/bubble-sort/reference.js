@@ -0,0 +1,3 @@
+function bubbleSort(arr) {
+  return arr.sort((a, b) => a - b);
+}
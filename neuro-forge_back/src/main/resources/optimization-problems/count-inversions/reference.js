@@ -0,0 +1,19 @@
+function countInversions(arr) {
+  const a = arr.slice();
+  const buffer = new Array(a.length);
+  function sortCount(lo, hi) {
+    if (hi - lo < 2) return 0;
+    const mid = (lo + hi) >> 1;
+    let count = sortCount(lo, mid) + sortCount(mid, hi);
+    let i = lo, j = mid, k = lo;
+    while (i < mid && j < hi) {
+      if (a[i] <= a[j]) buffer[k++] = a[i++];
+      else { buffer[k++] = a[j++]; count += mid - i; }
+    }
+    while (i < mid) buffer[k++] = a[i++];
+    while (j < hi) buffer[k++] = a[j++];
+    for (let t = lo; t < hi; t++) a[t] = buffer[t];
+    return count;
+  }
+  return sortCount(0, a.length);
+}
@@ -0,0 +1,5 @@
+(function (n, random) {
+  const nums = new Array(n);
+  for (let i = 0; i < n; i++) nums[i] = random(2 * n);
+  return [nums, 2 * n];
+})
@@ -0,0 +1,3 @@
+(function (n, random) {
+  return [n * 8];
+})
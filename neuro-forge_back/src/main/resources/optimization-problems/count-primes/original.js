@@ -0,0 +1,16 @@
+function countPrimes(n) {
+  let count = 0;
+  for (let x = 2; x < n; x++) {
+    let isPrime = true;
+    for (let d = 2; d < x; d++) {
+      if (x % d === 0) {
+        isPrime = false;
+        break;
+      }
+    }
+    if (isPrime) {
+      count++;
+    }
+  }
+  return count;
+}
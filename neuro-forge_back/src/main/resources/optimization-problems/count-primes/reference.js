@@ -0,0 +1,11 @@
+function countPrimes(n) {
+  if (n < 3) return 0;
+  const composite = new Uint8Array(n);
+  let count = 0;
+  for (let x = 2; x < n; x++) {
+    if (composite[x]) continue;
+    count++;
+    for (let m = x * x; m < n; m += x) composite[m] = 1;
+  }
+  return count;
+}
@@ -0,0 +1,13 @@
+function maxSubarraySum(arr) {
+  let best = -Infinity;
+  for (let i = 0; i < arr.length; i++) {
+    let sum = 0;
+    for (let j = i; j < arr.length; j++) {
+      sum += arr[j];
+      if (sum > best) {
+        best = sum;
+      }
+    }
+  }
+  return best;
+}
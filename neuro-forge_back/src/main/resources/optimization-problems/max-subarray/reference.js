@@ -0,0 +1,9 @@
+function maxSubarraySum(arr) {
+  let best = -Infinity;
+  let current = 0;
+  for (const x of arr) {
+    current = Math.max(x, current + x);
+    best = Math.max(best, current);
+  }
+  return best;
+}
@@ -0,0 +1,3 @@
+function uniqueValues(arr) {
+  return [...new Set(arr)];
+}
@@ -102,10 +102,13 @@ CREATE TABLE IF NOT EXISTS matchmaking_queue (
     elo_rating INT NOT NULL,
     search_start_time TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP,
     status VARCHAR(50) DEFAULT 'SEARCHING', -- SEARCHING, MATCHED_PENDING_CONFIRMATION
+    claimed_at TIMESTAMP WITH TIME ZONE, -- Когда строку взяли в пару (claimPair); по нему находятся брошенные claims
     CONSTRAINT fk_player_matchmaking FOREIGN KEY (player_id) REFERENCES players(id) ON DELETE CASCADE,
     CONSTRAINT fk_model_matchmaking FOREIGN KEY (model_id) REFERENCES ai_model(id) ON DELETE CASCADE
 );
 
+ALTER TABLE IF EXISTS matchmaking_queue ADD COLUMN IF NOT EXISTS claimed_at TIMESTAMP WITH TIME ZONE;
+
 CREATE INDEX IF NOT EXISTS idx_matchmaking_queue_type_elo ON matchmaking_queue (match_type, elo_rating, status);
 CREATE INDEX IF NOT EXISTS idx_matchmaking_queue_search_time ON matchmaking_queue (search_start_time);
 
@@ -123,6 +126,7 @@ CREATE TABLE IF NOT EXISTS matches (
     player1_score INTEGER,
     player2_score INTEGER,
     match_data TEXT, -- For storing game-specific data, like moves, state, etc.
+    match_data_version BIGINT NOT NULL DEFAULT 0, -- Версия write-behind живого состояния; итоговая запись ставит максимум
 
     CONSTRAINT fk_player1 FOREIGN KEY (player1_id) REFERENCES players (id) ON DELETE CASCADE,
     CONSTRAINT fk_player2 FOREIGN KEY (player2_id) REFERENCES players (id) ON DELETE CASCADE,
@@ -132,7 +136,62 @@ CREATE TABLE IF NOT EXISTS matches (
     CONSTRAINT check_players_not_same CHECK (player1_id <> player2_id)
 );
 
+ALTER TABLE IF EXISTS matches ADD COLUMN IF NOT EXISTS match_data_version BIGINT NOT NULL DEFAULT 0;
+
 CREATE INDEX IF NOT EXISTS idx_matches_player1 ON matches (player1_id);
 CREATE INDEX IF NOT EXISTS idx_matches_player2 ON matches (player2_id);
 CREATE INDEX IF NOT EXISTS idx_matches_active ON matches (ended_at) WHERE ended_at IS NULL;
-CREATE INDEX IF NOT EXISTS idx_matches_match_type ON matches (match_type);
\ No newline at end of file
+CREATE INDEX IF NOT EXISTS idx_matches_match_type ON matches (match_type);
+-- Эталонные замеры задач Optimization Rally (исходный код и эталонное решение), чтобы не мерить их заново при каждом старте
+CREATE TABLE IF NOT EXISTS optimization_problem_baselines (
+    problem_id VARCHAR(64) PRIMARY KEY,
+    content_hash VARCHAR(64) NOT NULL, -- SHA-256 of the problem's code; a mismatch means re-measure
+    original_result TEXT NOT NULL, -- BenchmarkResult of the original (slow) code as JSON
+    reference_result TEXT NOT NULL, -- BenchmarkResult of the reference solution as JSON
+    measured_at TIMESTAMP WITHOUT TIME ZONE DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Кошельки игроков. Балансы меняются только условными UPDATE (ResourceWalletRepository), CHECK - последняя страховка от минуса
+CREATE TABLE IF NOT EXISTS resource_wallets (
+    id BIGSERIAL PRIMARY KEY,
+    player_id BIGINT NOT NULL UNIQUE,
+    cloud_credits INTEGER NOT NULL DEFAULT 0,
+    research_points INTEGER NOT NULL DEFAULT 0,
+    version BIGINT NOT NULL DEFAULT 0,
+    income_per_minute INTEGER NOT NULL DEFAULT 0, -- SUM credits_per_minute развернутых моделей игрока
+    last_accrued_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP, -- доход до этого момента уже в cloud_credits
+    CONSTRAINT fk_wallet_player FOREIGN KEY (player_id) REFERENCES players (id) ON DELETE CASCADE,
+    CONSTRAINT check_wallet_non_negative CHECK (cloud_credits >= 0 AND research_points >= 0)
+);
+
+-- Пассивный доход (WalletIncomeRepositoryImpl) суммирует развернутые модели по игрокам в порядке player_id прямо по индексу
+CREATE INDEX IF NOT EXISTS idx_ai_model_deployed_income ON ai_model (player_id, credits_per_minute) WHERE deployed = TRUE;
+
+-- Ленивое начисление дохода (passive-income.mode=lazy) для кошельков, созданных до этих колонок
+ALTER TABLE IF EXISTS resource_wallets ADD COLUMN IF NOT EXISTS income_per_minute INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE IF EXISTS resource_wallets ADD COLUMN IF NOT EXISTS last_accrued_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP;
+
+-- Целые минуты, прошедшие с last_accrued_at: столько минутного дохода еще не начислено
+CREATE OR REPLACE FUNCTION accrued_minutes(last_accrued_at TIMESTAMP WITH TIME ZONE) RETURNS INTEGER AS $$
+    SELECT GREATEST(FLOOR(EXTRACT(EPOCH FROM (CURRENT_TIMESTAMP - last_accrued_at)) / 60), 0)::INTEGER
+$$ LANGUAGE SQL STABLE;
+
+-- Журнал начислений (ResourceLedger): начисление - дешевая вставка вместо UPDATE горячей строки кошелька.
+-- Баланс = колонки resource_wallets (снимок) + SUM(delta) еще не свернутых записей игрока (хвост)
+CREATE TABLE IF NOT EXISTS resource_ledger (
+    id BIGSERIAL PRIMARY KEY,
+    player_id BIGINT NOT NULL,
+    currency VARCHAR(20) NOT NULL, -- CLOUD_CREDITS, RESEARCH_POINTS
+    delta INTEGER NOT NULL,
+    reason VARCHAR(50) NOT NULL, -- grant, passive-income, upgrade-refund, ...
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    folded BOOLEAN NOT NULL DEFAULT FALSE, -- уже перенесено в колонки кошелька
+    CONSTRAINT fk_ledger_player FOREIGN KEY (player_id) REFERENCES players (id) ON DELETE CASCADE,
+    CONSTRAINT check_ledger_currency CHECK (currency IN ('CLOUD_CREDITS', 'RESEARCH_POINTS')),
+    CONSTRAINT check_ledger_credit CHECK (delta > 0) -- только начисления: списания проверяют баланс условным UPDATE кошелька
+);
+
+-- Хвост игрока (чтение баланса) и очередь свертки по порядку id; свернутые записи удаляются по сроку хранения
+CREATE INDEX IF NOT EXISTS idx_ledger_tail ON resource_ledger (player_id) WHERE NOT folded;
+CREATE INDEX IF NOT EXISTS idx_ledger_unfolded ON resource_ledger (id) WHERE NOT folded;
+CREATE INDEX IF NOT EXISTS idx_ledger_folded_created ON resource_ledger (created_at) WHERE folded;
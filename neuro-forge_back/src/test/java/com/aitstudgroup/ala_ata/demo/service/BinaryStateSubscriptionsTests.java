@@ -0,0 +1,66 @@
+package com.aitstudgroup.ala_ata.demo.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+// When a state update gets its CBOR copy: local subscription counts with the simple broker, always through a relay
+class BinaryStateSubscriptionsTests {
+
+	private static final String TOPIC = "/topic/duel/7/translation/state";
+
+	@Test
+	void simpleBrokerFollowsLocalSubscriptions() {
+		BinaryStateSubscriptions subscriptions = new BinaryStateSubscriptions("simple");
+		assertFalse(subscriptions.needsCborCopy(TOPIC));
+
+		subscriptions.subscribed("s1", "sub-0", TOPIC + BinaryStateSubscriptions.CBOR_SUFFIX);
+		subscriptions.subscribed("s2", "sub-0", TOPIC + BinaryStateSubscriptions.CBOR_SUFFIX);
+		assertTrue(subscriptions.needsCborCopy(TOPIC));
+
+		subscriptions.unsubscribed("s1", "sub-0");
+		assertTrue(subscriptions.needsCborCopy(TOPIC));
+		subscriptions.sessionClosed("s2");
+		assertFalse(subscriptions.needsCborCopy(TOPIC));
+		subscriptions.unsubscribed("s2", "sub-0"); // После закрытия сессии - ничего не ломает
+		assertFalse(subscriptions.hasLocalSubscribers(TOPIC));
+	}
+
+	@Test
+	void resubscribingUnderTheSameIdIsCountedOnce() {
+		BinaryStateSubscriptions subscriptions = new BinaryStateSubscriptions("simple");
+		subscriptions.subscribed("s1", "sub-0", TOPIC + BinaryStateSubscriptions.CBOR_SUFFIX);
+		subscriptions.subscribed("s1", "sub-0", TOPIC + BinaryStateSubscriptions.CBOR_SUFFIX);
+		subscriptions.unsubscribed("s1", "sub-0");
+		assertFalse(subscriptions.needsCborCopy(TOPIC));
+	}
+
+	@Test
+	void relayAlwaysPublishesTheCborCopy() {
+		BinaryStateSubscriptions subscriptions = new BinaryStateSubscriptions("relay");
+		assertFalse(subscriptions.hasLocalSubscribers(TOPIC));
+		assertTrue(subscriptions.needsCborCopy(TOPIC), "CBOR subscribers of other nodes are invisible here");
+
+		List<String> destinations = new ArrayList<>();
+		ExecutorSubscribableChannel channel = new ExecutorSubscribableChannel();
+		channel.subscribe(message -> destinations.add(SimpMessageHeaderAccessor.getDestination(message.getHeaders())));
+		SimpMessagingTemplate template = new SimpMessagingTemplate(channel);
+		template.setMessageConverter(new MappingJackson2MessageConverter());
+		GameStateBroadcaster broadcaster = new GameStateBroadcaster(template, subscriptions, new ObjectMapper(), 50, 64, 30);
+
+		broadcaster.broadcast(TOPIC, Map.of("round", 1));
+		assertEquals(List.of(TOPIC, TOPIC + BinaryStateSubscriptions.CBOR_SUFFIX), destinations);
+	}
+}
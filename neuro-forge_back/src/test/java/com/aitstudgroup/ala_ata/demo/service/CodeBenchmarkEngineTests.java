@@ -0,0 +1,74 @@
+package com.aitstudgroup.ala_ata.demo.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import com.aitstudgroup.ala_ata.demo.model.BenchmarkResult;
+import com.aitstudgroup.ala_ata.demo.model.OptimizationProblem;
+
+// Submissions that rewrite globals the correctness check uses must not change what it compares
+class CodeBenchmarkEngineTests {
+
+	private static final OptimizationProblem SUM = new OptimizationProblem(
+		"sum", "", 0,
+		"function sum(a) { let s = 0; for (let i = 0; i < a.length; i++) s += a[i]; return s; }",
+		"function sum(a) { let s = 0; for (const x of a) s += x; return s; }",
+		"(function (n, random) { const a = new Array(n); for (let i = 0; i < n; i++) a[i] = random(1000); return [a]; })");
+
+	private static CodeBenchmarkEngine engine;
+
+	@BeforeAll
+	static void start() {
+		engine = new CodeBenchmarkEngine(1, 4, 5000, 2048, 64);
+	}
+
+	@AfterAll
+	static void stop() {
+		engine.shutdown();
+	}
+
+	@Test
+	void honestSolutionIsMeasured() {
+		BenchmarkResult result = engine.benchmark(SUM.getOriginalCode(), SUM).block();
+		assertTrue(result.isSuccessful(), result.getError());
+		assertEquals(CodeBenchmarkEngine.INPUT_SIZES.length, result.getInputSizes().length);
+	}
+
+	@Test
+	void reassignedStringCannotFakeTheAnswer() {
+		// Верный ответ уходит в подмененный String, а сама функция возвращает 0
+		String cheat = """
+			function sum(a) {
+				let s = 0;
+				for (let i = 0; i < a.length; i++) s += a[i];
+				const real = '' + s;
+				globalThis.String = function () { return real; };
+				return 0;
+			}
+			""";
+		BenchmarkResult result = engine.benchmark(cheat, SUM).block();
+		assertFalse(result.isSuccessful());
+		assertEquals("Wrong result for input size 64", result.getError());
+	}
+
+	@Test
+	void reassignedNumberDoesNotLiftTheBufferCap() {
+		String cheat = """
+			function sum(a) {
+				globalThis.Number = function () { return 0; };
+				new ArrayBuffer(128 * 1024 * 1024);
+				let s = 0;
+				for (let i = 0; i < a.length; i++) s += a[i];
+				return s;
+			}
+			""";
+		BenchmarkResult result = engine.benchmark(cheat, SUM).block();
+		assertFalse(result.isSuccessful());
+		assertTrue(result.getError().contains("RangeError"), result.getError());
+	}
+}
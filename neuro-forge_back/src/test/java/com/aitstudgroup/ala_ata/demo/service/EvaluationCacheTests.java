@@ -0,0 +1,73 @@
+package com.aitstudgroup.ala_ata.demo.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import org.junit.jupiter.api.Test;
+
+import com.aitstudgroup.ala_ata.demo.model.OptimizationProblem;
+
+// What the evaluation cache key ignores (layout, comments) and what it must keep (literals, regexes, the problem)
+class EvaluationCacheTests {
+
+	@Test
+	void dropsCommentsIndentationAndBlankLines() {
+		String code = """
+			// сумма
+			function sum(a, b) {   /* быстро */
+
+			    return a + b;  // готово
+			}
+			""";
+		assertEquals("function sum(a,b){\nreturn a+b;\n}", EvaluationCache.normalize(code));
+	}
+
+	@Test
+	void keepsSpacesThatChangeTheProgram() {
+		assertEquals("return x", EvaluationCache.normalize("return   x"));
+		assertEquals("a+ +b", EvaluationCache.normalize("a + +b"));
+		assertEquals("a- -b", EvaluationCache.normalize("a - -b"));
+		assertEquals("1 .toString()", EvaluationCache.normalize("1 .toString()"));
+		assertNotEquals(EvaluationCache.normalize("a\n(b)"), EvaluationCache.normalize("a(b)"));
+	}
+
+	@Test
+	void copiesStringAndTemplateLiteralsAsIs() {
+		assertEquals("s=\"a  // b\"", EvaluationCache.normalize("s = \"a  // b\""));
+		assertEquals("s='it\\'s /* x */'", EvaluationCache.normalize("s = 'it\\'s /* x */'"));
+		assertEquals("s=`a  b`", EvaluationCache.normalize("s = `a  b`"));
+	}
+
+	@Test
+	void copiesRegexLiteralsWithSlashesInside() {
+		assertEquals("const re=/https?:\\/\\/x/g;", EvaluationCache.normalize("const re = /https?:\\/\\/x/g;"));
+		assertEquals("s.split(/[/*]/)", EvaluationCache.normalize("s.split(/[/*]/)"));
+		assertEquals("return/a  b/.test(s)", EvaluationCache.normalize("return /a  b/.test(s)"));
+		// Разный код в регулярных выражениях - разные ключи
+		assertNotEquals(EvaluationCache.normalize("x = /a\\/\\/b/; y = 1"), EvaluationCache.normalize("x = /a\\/\\/c/; y = 1"));
+	}
+
+	@Test
+	void divisionIsNotARegex() {
+		assertEquals("x=a/b/c", EvaluationCache.normalize("x = a / b / c"));
+		assertEquals("x=(a)/2", EvaluationCache.normalize("x = (a) / 2 // half"));
+		assertEquals("x=arr[0]/2", EvaluationCache.normalize("x = arr[0] / 2 /* half */"));
+	}
+
+	@Test
+	void keyIsPerProblemAndIgnoresLayout() {
+		OptimizationProblem sum = problem("sum");
+		String compact = "function f(a){return a*2}";
+		String spaced = "function f(a) {\n    // double\n    return a * 2\n}";
+		assertEquals(EvaluationCache.keyFor(compact, sum), EvaluationCache.keyFor(compact, sum));
+		assertEquals(EvaluationCache.keyFor(compact.replace("{return", "{\nreturn").replace("2}", "2\n}"), sum),
+			EvaluationCache.keyFor(spaced, sum));
+		assertNotEquals(EvaluationCache.keyFor(compact, sum), EvaluationCache.keyFor(compact, problem("max")));
+		assertNotEquals(EvaluationCache.keyFor(compact, sum), EvaluationCache.keyFor("function f(a){return a*3}", sum));
+		assertEquals("sum:" + EvaluationCache.sha256(EvaluationCache.normalize(compact)), EvaluationCache.keyFor(compact, sum));
+	}
+
+	private static OptimizationProblem problem(String id) {
+		return new OptimizationProblem(id, "", 1, "", "", "");
+	}
+}
@@ -0,0 +1,134 @@
+package com.aitstudgroup.ala_ata.demo.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.aitstudgroup.ala_ata.demo.model.Match;
+import com.aitstudgroup.ala_ata.demo.repository.MatchRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import reactor.core.publisher.Mono;
+
+// Load-once, write-behind versions, eviction and retry of LiveMatchStateStore over a mocked MatchRepository
+class LiveMatchStateStoreTests {
+
+	private static final long MATCH_ID = 7L;
+
+	private MatchRepository matchRepository;
+	private MatchActorExecutor matchActorExecutor;
+	private LiveMatchStateStore store;
+
+	public static class Counter {
+		public int value;
+	}
+
+	@BeforeEach
+	void setUp() {
+		matchRepository = mock(MatchRepository.class);
+		Match match = new Match();
+		match.setId(MATCH_ID);
+		match.setMatchData("{\"value\":1}");
+		when(matchRepository.findById(MATCH_ID)).thenReturn(Mono.just(match));
+		when(matchRepository.findById(99L)).thenReturn(Mono.empty());
+		when(matchRepository.writeBehindMatchData(eq(MATCH_ID), anyString(), anyLong())).thenReturn(Mono.just(1));
+		matchActorExecutor = new MatchActorExecutor(2);
+		store = new LiveMatchStateStore(matchRepository, new ObjectMapper(), matchActorExecutor, 30);
+	}
+
+	@AfterEach
+	void tearDown() {
+		matchActorExecutor.shutdown();
+	}
+
+	@Test
+	void loadsMatchDataOnce() {
+		Counter first = store.getOrLoad(MATCH_ID, Counter.class).block().getState();
+		Counter second = store.getOrLoad(MATCH_ID, Counter.class).block().getState();
+
+		assertSame(first, second);
+		assertEquals(1, first.value);
+		assertEquals(1, store.size());
+		verify(matchRepository, times(1)).findById(MATCH_ID);
+	}
+
+	@Test
+	void rejectsUnknownMatchesAndOtherStateTypes() {
+		assertThrows(IllegalArgumentException.class, () -> store.getOrLoad(99L, Counter.class).block());
+		store.getOrLoad(MATCH_ID, Counter.class).block();
+		assertThrows(IllegalStateException.class, () -> store.getOrLoad(MATCH_ID, Map.class).block());
+	}
+
+	@Test
+	void flushWritesDirtyStatesWithGrowingVersions() {
+		Counter state = store.getOrLoad(MATCH_ID, Counter.class).block().getState();
+
+		store.flushDirty();
+		verify(matchRepository, after(200).never()).writeBehindMatchData(anyLong(), anyString(), anyLong());
+
+		state.value = 2;
+		store.markDirty(MATCH_ID);
+		store.flushDirty();
+		verify(matchRepository, timeout(1000)).writeBehindMatchData(MATCH_ID, "{\"value\":2}", 1L);
+
+		state.value = 3;
+		store.markDirty(MATCH_ID);
+		store.flushDirty();
+		verify(matchRepository, timeout(1000)).writeBehindMatchData(MATCH_ID, "{\"value\":3}", 2L);
+	}
+
+	@Test
+	void markDirtyIgnoresMatchesThatAreNotLive() {
+		store.markDirty(MATCH_ID);
+		store.flushDirty();
+		verify(matchRepository, after(200).never()).writeBehindMatchData(anyLong(), anyString(), anyLong());
+	}
+
+	@Test
+	void failedWriteBehindIsRetriedOnTheNextFlush() {
+		doReturn(Mono.error(new IllegalStateException("db down")), Mono.just(1))
+			.when(matchRepository).writeBehindMatchData(eq(MATCH_ID), anyString(), anyLong());
+		store.getOrLoad(MATCH_ID, Counter.class).block();
+
+		store.markDirty(MATCH_ID);
+		store.flushDirty();
+		verify(matchRepository, timeout(1000)).writeBehindMatchData(MATCH_ID, "{\"value\":1}", 1L);
+		store.flushDirty();
+		verify(matchRepository, timeout(1000)).writeBehindMatchData(MATCH_ID, "{\"value\":1}", 2L);
+	}
+
+	@Test
+	void flushAndEvictWritesOnceAndForgetsTheMatch() {
+		Counter state = store.getOrLoad(MATCH_ID, Counter.class).block().getState();
+		state.value = 5;
+		store.markDirty(MATCH_ID);
+
+		store.flushAndEvict(MATCH_ID).block();
+		assertEquals(0, store.size());
+		verify(matchRepository).writeBehindMatchData(MATCH_ID, "{\"value\":5}", 1L);
+
+		store.flushDirty(); // Пометка выгруженного матча снята вместе с ним
+		verify(matchRepository, after(200).times(1)).writeBehindMatchData(anyLong(), anyString(), anyLong());
+		assertNotSame(state, store.getOrLoad(MATCH_ID, Counter.class).block().getState());
+		verify(matchRepository, times(2)).findById(MATCH_ID);
+		verify(matchRepository, never()).updateMatchData(anyLong(), anyString());
+	}
+}
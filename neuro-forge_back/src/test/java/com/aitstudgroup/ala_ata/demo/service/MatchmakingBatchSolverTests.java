@@ -0,0 +1,80 @@
+package com.aitstudgroup.ala_ata.demo.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.aitstudgroup.ala_ata.demo.model.MatchmakingQueueEntry;
+import com.aitstudgroup.ala_ata.demo.model.Pairing;
+
+// Edge cases of the batch pairing solver, and the pair rule it shares with the greedy sweep
+class MatchmakingBatchSolverTests {
+
+	private static final Instant NOW = Instant.parse("2026-01-01T12:00:00Z");
+
+	@Test
+	void emptyAndSingleQueuesHaveNoPairs() {
+		assertTrue(MatchmakingBatchSolver.solve(List.of(), NOW).isEmpty());
+		assertTrue(MatchmakingBatchSolver.solve(List.of(entry(1, 1200, 0)), NOW).isEmpty());
+	}
+
+	@Test
+	void longerWaitingPlayerComesFirst() {
+		List<Pairing> pairings = MatchmakingBatchSolver.solve(sorted(entry(1, 1200, 5), entry(2, 1250, 40)), NOW);
+		assertEquals(1, pairings.size());
+		assertEquals(2L, pairings.get(0).getFirst().getPlayerId());
+		assertEquals(1L, pairings.get(0).getSecond().getPlayerId());
+	}
+
+	@Test
+	void gapMustFitEitherPlayersWindow() {
+		// 180 > 100 (новичок), но у ждущего 60 с окно уже 200
+		assertEquals(1, MatchmakingBatchSolver.solve(sorted(entry(1, 1000, 0), entry(2, 1180, 60)), NOW).size());
+		assertTrue(MatchmakingBatchSolver.solve(sorted(entry(1, 1000, 0), entry(2, 1180, 0)), NOW).isEmpty());
+	}
+
+	@Test
+	void moreMatchesWinOverSmallerGaps() {
+		// Самая дешевая пара - 2 и 3 (разница 10), но тогда 1 и 4 остаются без пары
+		List<Pairing> pairings = MatchmakingBatchSolver.solve(
+			sorted(entry(1, 1000, 0), entry(2, 1090, 0), entry(3, 1100, 0), entry(4, 1190, 0)), NOW);
+		assertEquals(2, pairings.size());
+		assertTrue(pairings.stream().allMatch(pairing -> pairing.getEloGap() == 90));
+	}
+
+	@Test
+	void equalQueuesPreferTheLongerWait() {
+		// 1 и 3 одинаково далеки от 2; бонус за ожидание отдает 2 тому, кто ждет дольше
+		List<Pairing> pairings = MatchmakingBatchSolver.solve(sorted(entry(1, 1150, 0), entry(2, 1200, 0), entry(3, 1250, 20)), NOW);
+		assertEquals(1, pairings.size());
+		assertEquals(3L, pairings.get(0).getFirst().getPlayerId());
+	}
+
+	@Test
+	void greedySweepUsesTheSameWindowRule() {
+		MatchmakingPool pool = new MatchmakingPool();
+		pool.add(entry(1, 1000, 0));
+		pool.add(entry(2, 1180, 60));
+		pool.add(entry(3, 2000, 0));
+		List<Pairing> greedy = pool.pairAll(NOW);
+		assertEquals(1, greedy.size());
+		assertTrue(MatchmakingBatchSolver.compatible(greedy.get(0).getFirst(), greedy.get(0).getSecond(), NOW));
+		assertTrue(pool.contains(3L));
+	}
+
+	private static MatchmakingQueueEntry entry(long playerId, int elo, long waitedSeconds) {
+		return new MatchmakingQueueEntry(playerId, playerId, "CLASSIFICATION", elo, NOW.minusSeconds(waitedSeconds), "SEARCHING");
+	}
+
+	private static List<MatchmakingQueueEntry> sorted(MatchmakingQueueEntry... entries) {
+		List<MatchmakingQueueEntry> queue = new ArrayList<>(List.of(entries));
+		queue.sort(Comparator.comparing(MatchmakingQueueEntry::getEloRating));
+		return queue;
+	}
+}
@@ -0,0 +1,90 @@
+package com.aitstudgroup.ala_ata.demo.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.aitstudgroup.ala_ata.demo.model.MatchmakingQueueEntry;
+import com.aitstudgroup.ala_ata.demo.model.Pairing;
+
+// Greedy vs batch pairing: match quality and solve time on the same synthetic queue
+class MatchmakingPairingBenchmarkTests {
+
+	private static final Logger logger = LoggerFactory.getLogger(MatchmakingPairingBenchmarkTests.class);
+
+	private static final Instant NOW = Instant.parse("2026-01-01T12:00:00Z");
+
+	@ParameterizedTest
+	@ValueSource(ints = {1_000, 10_000, 50_000})
+	void batchPairingMatchesAtLeastAsManyPlayersWithSmallerGaps(int queuedPlayers) {
+		List<MatchmakingQueueEntry> queue = syntheticQueue(queuedPlayers, 42);
+
+		MatchmakingPool greedyPool = poolOf(queue);
+		long greedyStart = System.nanoTime();
+		List<Pairing> greedy = greedyPool.pairAll(NOW);
+		long greedyNanos = System.nanoTime() - greedyStart;
+
+		MatchmakingPool batchPool = poolOf(queue);
+		long batchStart = System.nanoTime();
+		List<Pairing> batch = batchPool.pairAllBatch(NOW);
+		long batchNanos = System.nanoTime() - batchStart;
+
+		assertValid(greedy);
+		assertValid(batch);
+		assertEquals(queuedPlayers - 2 * greedy.size(), greedyPool.size());
+		assertEquals(queuedPlayers - 2 * batch.size(), batchPool.size());
+
+		logger.info(String.format("%,7d queued | greedy: %,6d pairs, mean gap %6.2f, cost %,12.0f, %5d ms | batch: %,6d pairs, mean gap %6.2f, cost %,12.0f, %5d ms",
+			queuedPlayers,
+			greedy.size(), meanGap(greedy), totalCost(greedy), greedyNanos / 1_000_000,
+			batch.size(), meanGap(batch), totalCost(batch), batchNanos / 1_000_000));
+
+		assertTrue(batch.size() >= greedy.size(), "batch mode must not strand more players than greedy");
+		assertTrue(meanGap(batch) <= meanGap(greedy), "batch mode must not widen the mean ELO gap");
+	}
+
+	private static List<MatchmakingQueueEntry> syntheticQueue(int size, long seed) {
+		Random random = new Random(seed);
+		List<MatchmakingQueueEntry> queue = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			int elo = (int) Math.round(1200 + random.nextGaussian() * 300);
+			Instant joined = NOW.minusSeconds(random.nextInt(300));
+			queue.add(new MatchmakingQueueEntry((long) i + 1, (long) i + 1, "CLASSIFICATION", elo, joined, "SEARCHING"));
+		}
+		return queue;
+	}
+
+	private static MatchmakingPool poolOf(List<MatchmakingQueueEntry> queue) {
+		MatchmakingPool pool = new MatchmakingPool();
+		queue.forEach(pool::add);
+		return pool;
+	}
+
+	private static void assertValid(List<Pairing> pairings) {
+		Set<Long> seen = new HashSet<>();
+		for (Pairing pairing : pairings) {
+			assertTrue(seen.add(pairing.getFirst().getPlayerId()), "player paired twice");
+			assertTrue(seen.add(pairing.getSecond().getPlayerId()), "player paired twice");
+			assertTrue(MatchmakingBatchSolver.compatible(pairing.getFirst(), pairing.getSecond(), NOW), "pair outside search window");
+		}
+	}
+
+	private static double meanGap(List<Pairing> pairings) {
+		return pairings.stream().mapToInt(Pairing::getEloGap).average().orElse(0);
+	}
+
+	private static double totalCost(List<Pairing> pairings) {
+		return pairings.stream().mapToDouble(p -> MatchmakingBatchSolver.pairCost(p.getFirst(), p.getSecond(), NOW)).sum();
+	}
+}
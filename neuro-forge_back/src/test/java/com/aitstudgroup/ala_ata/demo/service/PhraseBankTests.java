@@ -0,0 +1,87 @@
+package com.aitstudgroup.ala_ata.demo.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+
+// Lookups and filtered sampling of the bundled phrase bank (50 phrases, en -> de/es/fr/it/ja, 5/3/2 per difficulty)
+class PhraseBankTests {
+
+	private static PhraseBank phraseBank;
+
+	@BeforeAll
+	static void load() {
+		phraseBank = new PhraseBank(new DefaultResourceLoader(), "classpath:translation-phrases/phrases.tsv");
+	}
+
+	@Test
+	void resolvesPhrasesById() {
+		assertEquals(50, phraseBank.size());
+		assertEquals("Thank you", phraseBank.getText(2));
+		assertEquals("Merci|Merci beaucoup", phraseBank.getCorrectAnswer(2));
+		assertEquals("en", phraseBank.getSourceLang(2));
+		assertEquals("fr", phraseBank.getTargetLang(2));
+		assertEquals(1, phraseBank.getDifficulty(2));
+		assertEquals(Set.of("id", "text", "sourceLang", "targetLang", "difficulty"), phraseBank.describe(2).keySet(),
+			"the answer must not be sent to players");
+		assertFalse(phraseBank.contains(-1));
+		assertThrows(IllegalArgumentException.class, () -> phraseBank.indexOf(-1));
+	}
+
+	@Test
+	void sampleReturnsDistinctPhrasesOfTheQuery() {
+		for (int attempt = 0; attempt < 50; attempt++) {
+			int[] sample = phraseBank.sample("en", "fr", 1, 3);
+			assertEquals(3, sample.length);
+			assertEquals(3, distinct(sample).size());
+			for (int phraseId : sample) {
+				assertEquals("fr", phraseBank.getTargetLang(phraseId));
+				assertEquals(1, phraseBank.getDifficulty(phraseId));
+			}
+		}
+	}
+
+	@Test
+	void sampleIsCappedByWhatMatches() {
+		int[] all = phraseBank.sample("en", "de", 3, 10);
+		assertEquals(2, all.length);
+		assertEquals(2, distinct(all).size());
+		assertEquals(0, phraseBank.sample("en", "de", 1, 0).length);
+		assertEquals(0, phraseBank.sample("de", "en", 1, 5).length);
+	}
+
+	@Test
+	void emptyFiltersMatchAnything() {
+		assertEquals(50, distinct(phraseBank.sample(null, "", 0, 100)).size());
+		Set<String> targets = new HashSet<>();
+		for (int phraseId : phraseBank.sample("en", null, 3, 100)) {
+			assertEquals(3, phraseBank.getDifficulty(phraseId));
+			targets.add(phraseBank.getTargetLang(phraseId));
+		}
+		assertEquals(Set.of("de", "es", "fr", "it", "ja"), targets);
+	}
+
+	@Test
+	void sampleCoversEveryMatchingPhrase() {
+		// Floyd должен давать каждому варианту шанс: за 200 выборок по 1 из 5 встречаются все 5
+		Set<Integer> seen = new HashSet<>();
+		for (int attempt = 0; attempt < 200; attempt++) {
+			seen.add(phraseBank.sample("en", "es", 1, 1)[0]);
+		}
+		assertEquals(5, seen.size());
+		assertTrue(seen.stream().allMatch(phraseId -> phraseBank.getDifficulty(phraseId) == 1));
+	}
+
+	private static Set<Integer> distinct(int[] phraseIds) {
+		return new HashSet<>(Arrays.stream(phraseIds).boxed().toList());
+	}
+}
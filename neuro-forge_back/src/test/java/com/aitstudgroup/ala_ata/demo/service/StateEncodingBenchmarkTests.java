@@ -0,0 +1,282 @@
+package com.aitstudgroup.ala_ata.demo.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+
+import com.aitstudgroup.ala_ata.demo.model.OptimizationRallyState;
+import com.aitstudgroup.ala_ata.demo.model.OptimizationStepProgress;
+import com.aitstudgroup.ala_ata.demo.payload.GameStatePayload;
+import com.aitstudgroup.ala_ata.demo.util.CborEncoder;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+// Bytes and serialization time per game-state update: full JSON state (before deltas), JSON delta messages, CBOR delta messages
+class StateEncodingBenchmarkTests {
+
+	private static final Logger logger = LoggerFactory.getLogger(StateEncodingBenchmarkTests.class);
+
+	private static final int WARMUP_ROUNDS = 20_000;
+	private static final int TIMED_ROUNDS = 20_000;
+	private static final String TOPIC = "/topic/duel/1/optimization/state";
+
+	// CBOR пишет целые double как целые: сравниваем числа по значению, а не по типу узла
+	private static final Comparator<JsonNode> NUMERIC_VALUE = (a, b) -> a.isNumber() && b.isNumber()
+		? Double.compare(a.doubleValue(), b.doubleValue())
+		: a.equals(b) ? 0 : 1;
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	@Test
+	void optimizationRallyDeltasAndCborShrinkUpdates() throws IOException {
+		OptimizationRallyState state = new OptimizationRallyState();
+		state.setProblemId("bubble-sort");
+		state.setProblemDescription("Задача: Оптимизировать функцию сортировки массива чисел (Bubble Sort)");
+		state.setOriginalCode(code(0, 0));
+		state.setTimeSteps(5);
+		state.setPlayer1Id(101L);
+		state.setPlayer2Id(202L);
+		state.setCurrentStep(1);
+		state.setGameStatus(OptimizationRallyState.GameStatus.ROUND_IN_PROGRESS);
+
+		List<Runnable> moves = new ArrayList<>();
+		for (int step = 1; step <= 5; step++) {
+			int s = step;
+			moves.add(() -> {
+				state.getPlayer1Progress().add(new OptimizationStepProgress(code(1, s), metrics(s, 1)));
+				state.setLastSubmittingPlayerId(101L);
+				state.setGameStatus(OptimizationRallyState.GameStatus.AWAITING_PLAYER_2_SUBMISSION);
+			});
+			moves.add(() -> {
+				state.getPlayer2Progress().add(new OptimizationStepProgress(code(2, s), metrics(s, 2)));
+				state.setLastSubmittingPlayerId(202L);
+				state.setCurrentStep(Math.min(5, s + 1));
+				state.setGameStatus(s == 5 ? OptimizationRallyState.GameStatus.GAME_OVER : OptimizationRallyState.GameStatus.ROUND_IN_PROGRESS);
+			});
+		}
+		run("optimization", state, moves);
+	}
+
+	@Test
+	void translationBattleDeltasAndCborShrinkUpdates() throws IOException {
+		GameStatePayload state = new GameStatePayload();
+		state.setGameType("TRANSLATION");
+		state.setTotalRounds(10);
+		state.setCurrentRound(1);
+		state.setGameState("ROUND_IN_PROGRESS");
+		state.setRoundTimeLimit(60);
+		state.setPhraseIds(List.of(3, 17, 8, 42, 11, 25, 6, 30, 14, 1));
+		state.setRoundsData(new ArrayList<>());
+
+		List<Runnable> moves = new ArrayList<>();
+		for (int round = 1; round <= 10; round++) {
+			int r = round;
+			moves.add(() -> {
+				Map<String, Object> entry = new LinkedHashMap<>();
+				entry.put("round", r);
+				entry.put("player1Translation", "Перевод фразы номер " + r);
+				entry.put("player1Score", 80 + r);
+				state.getRoundsData().add(entry);
+				state.setCurrentPhrase(Map.of("id", r, "text", "Phrase number " + r, "sourceLang", "en", "targetLang", "ru", "difficulty", 1));
+			});
+			moves.add(() -> {
+				Map<String, Object> entry = state.getRoundsData().get(r - 1);
+				entry.put("player2Translation", "Перевод фразы " + r);
+				entry.put("player2Score", 70 + r);
+				state.setPlayer1GameScore(state.getPlayer1GameScore() + 80 + r);
+				state.setPlayer2GameScore(state.getPlayer2GameScore() + 70 + r);
+				state.setCurrentRound(Math.min(10, r + 1));
+				state.setGameState(r == 10 ? "GAME_OVER" : "ROUND_IN_PROGRESS");
+			});
+		}
+		run("translation", state, moves);
+	}
+
+	// Прогоняет ходы через настоящий GameStateBroadcaster и меряет каждую кодировку на его сообщениях
+	private void run(String game, Object state, List<Runnable> moves) throws IOException {
+		List<byte[]> jsonMessages = new ArrayList<>();
+		List<byte[]> cborMessages = new ArrayList<>();
+		GameStateBroadcaster broadcaster = new GameStateBroadcaster(capturingTemplate(message -> {
+			String destination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+			(destination.endsWith(BinaryStateSubscriptions.CBOR_SUFFIX) ? cborMessages : jsonMessages).add((byte[]) message.getPayload());
+		}), new BinaryStateSubscriptions("relay"), objectMapper, Integer.MAX_VALUE, Integer.MAX_VALUE, 30);
+
+		List<Object> fullStates = new ArrayList<>();
+		broadcaster.broadcast(TOPIC, state);
+		fullStates.add(objectMapper.readValue(objectMapper.writeValueAsBytes(state), state.getClass()));
+		for (Runnable move : moves) {
+			move.run();
+			broadcaster.broadcast(TOPIC, state);
+			fullStates.add(objectMapper.readValue(objectMapper.writeValueAsBytes(state), state.getClass()));
+		}
+
+		List<JsonNode> messages = new ArrayList<>();
+		assertEquals(jsonMessages.size(), cborMessages.size());
+		for (int i = 0; i < jsonMessages.size(); i++) {
+			JsonNode message = objectMapper.readTree(jsonMessages.get(i));
+			assertTrue(message.equals(NUMERIC_VALUE, new CborReader(cborMessages.get(i)).read()), "CBOR must decode to the JSON message");
+			assertTrue(cborMessages.get(i).length <= jsonMessages.get(i).length, "CBOR must not be larger than JSON");
+			messages.add(message);
+		}
+		assertEquals("snapshot", messages.get(0).get("type").asText());
+		assertTrue(messages.stream().skip(1).allMatch(m -> "delta".equals(m.get("type").asText())));
+
+		double fullBytes = average(fullStates, s -> objectMapper.writeValueAsBytes(s).length);
+		double deltaJsonBytes = average(messages.subList(1, messages.size()), m -> objectMapper.writeValueAsBytes(m).length);
+		double deltaCborBytes = average(messages.subList(1, messages.size()), m -> CborEncoder.encode(m).length);
+		double fullNanos = nanosPerUpdate(fullStates, objectMapper::writeValueAsBytes);
+		double deltaJsonNanos = nanosPerUpdate(messages.subList(1, messages.size()), objectMapper::writeValueAsBytes);
+		double deltaCborNanos = nanosPerUpdate(messages.subList(1, messages.size()), CborEncoder::encode);
+		double snapshotJson = objectMapper.writeValueAsBytes(messages.get(0)).length;
+		double snapshotCbor = CborEncoder.encode(messages.get(0)).length;
+
+		logger.info(String.format("%-12s | full JSON state: %6.0f B, %7.0f ns | delta JSON: %5.0f B, %6.0f ns | delta CBOR: %5.0f B, %6.0f ns | first snapshot JSON/CBOR: %4.0f/%4.0f B",
+			game, fullBytes, fullNanos, deltaJsonBytes, deltaJsonNanos, deltaCborBytes, deltaCborNanos, snapshotJson, snapshotCbor));
+
+		assertTrue(deltaJsonBytes < fullBytes, "deltas must be smaller than full states");
+		assertTrue(deltaCborBytes < deltaJsonBytes, "CBOR deltas must be smaller than JSON deltas");
+	}
+
+	private static SimpMessagingTemplate capturingTemplate(Consumer<Message<?>> sink) {
+		ExecutorSubscribableChannel channel = new ExecutorSubscribableChannel();
+		channel.subscribe(sink::accept);
+		SimpMessagingTemplate template = new SimpMessagingTemplate(channel);
+		template.setMessageConverter(new MappingJackson2MessageConverter()); // Как у брокера в контексте: JSON-путь
+		return template;
+	}
+
+	private interface Encoder<T> {
+		Object encode(T value) throws IOException;
+	}
+
+	private interface Size<T> {
+		int of(T value) throws IOException;
+	}
+
+	private static <T> double average(List<T> values, Size<T> size) throws IOException {
+		long total = 0;
+		for (T value : values) {
+			total += size.of(value);
+		}
+		return (double) total / values.size();
+	}
+
+	private static <T> double nanosPerUpdate(List<T> values, Encoder<T> encoder) throws IOException {
+		for (int i = 0; i < WARMUP_ROUNDS; i++) { // Прогрев JIT
+			for (T value : values) {
+				encoder.encode(value);
+			}
+		}
+		long start = System.nanoTime();
+		for (int i = 0; i < TIMED_ROUNDS; i++) {
+			for (T value : values) {
+				encoder.encode(value);
+			}
+		}
+		return (double) (System.nanoTime() - start) / ((long) TIMED_ROUNDS * values.size());
+	}
+
+	private static String code(int player, int step) {
+		StringBuilder code = new StringBuilder("function sortNumbers(array) {\n");
+		for (int line = 0; line < 12; line++) {
+			code.append("  // player ").append(player).append(" step ").append(step).append(" line ").append(line).append('\n');
+			code.append("  const value").append(line).append(" = array.length > ").append(line).append(" ? array[").append(line).append("] : 0;\n");
+		}
+		return code.append("  return array.slice().sort((a, b) => a - b);\n}\n").toString();
+	}
+
+	private static Map<String, Object> metrics(int step, int player) {
+		Map<String, Object> metrics = new LinkedHashMap<>();
+		metrics.put("executionTime", 100 - step * 10 - player);
+		metrics.put("memoryUsage", 90 - step * 5);
+		metrics.put("complexity", step < 3 ? "n^2" : "n log n");
+		metrics.put("inputSize", 2000);
+		metrics.put("executionTimeMs", 1.375 * step);
+		metrics.put("allocatedKb", 64 + step);
+		metrics.put("referenceExecutionTime", 12);
+		metrics.put("efficiencyScore", 55.5 + step * 7.25);
+		return metrics;
+	}
+
+	// Минимальный CBOR-декодер (только то, что пишет CborEncoder) для проверки кругового пути
+	private static final class CborReader {
+		private final ByteBuffer buffer;
+
+		CborReader(byte[] bytes) {
+			this.buffer = ByteBuffer.wrap(bytes);
+		}
+
+		JsonNode read() {
+			JsonNodeFactory nodes = JsonNodeFactory.instance;
+			int initial = buffer.get() & 0xFF;
+			int major = initial >>> 5;
+			int info = initial & 0x1F;
+			switch (major) {
+				case 0:
+					return nodes.numberNode(argument(info));
+				case 1:
+					return nodes.numberNode(-1 - argument(info));
+				case 3: {
+					byte[] text = new byte[(int) argument(info)];
+					buffer.get(text);
+					return nodes.textNode(new String(text, StandardCharsets.UTF_8));
+				}
+				case 4: {
+					ArrayNode array = nodes.arrayNode();
+					for (long i = argument(info); i > 0; i--) {
+						array.add(read());
+					}
+					return array;
+				}
+				case 5: {
+					ObjectNode object = nodes.objectNode();
+					for (long i = argument(info); i > 0; i--) {
+						String key = read().textValue();
+						object.set(key, read());
+					}
+					return object;
+				}
+				default:
+					return switch (info) {
+						case 20 -> nodes.booleanNode(false);
+						case 21 -> nodes.booleanNode(true);
+						case 22 -> nodes.nullNode();
+						case 26 -> nodes.numberNode((double) buffer.getFloat());
+						case 27 -> nodes.numberNode(buffer.getDouble());
+						default -> throw new IllegalStateException("Unexpected CBOR item " + initial);
+					};
+			}
+		}
+
+		private long argument(int info) {
+			return switch (info) {
+				case 24 -> buffer.get() & 0xFF;
+				case 25 -> buffer.getShort() & 0xFFFF;
+				case 26 -> buffer.getInt() & 0xFFFFFFFFL;
+				case 27 -> buffer.getLong();
+				default -> info;
+			};
+		}
+	}
+}
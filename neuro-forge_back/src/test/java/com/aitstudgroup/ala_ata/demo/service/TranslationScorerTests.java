@@ -0,0 +1,90 @@
+package com.aitstudgroup.ala_ata.demo.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+
+// Folding, the bounded Levenshtein band and partial-credit scoring against the bundled phrase bank
+class TranslationScorerTests {
+
+	private static PhraseBank phraseBank;
+	private static TranslationScorer scorer;
+
+	@BeforeAll
+	static void load() {
+		phraseBank = new PhraseBank(new DefaultResourceLoader(), "classpath:translation-phrases/phrases.tsv");
+		scorer = new TranslationScorer(phraseBank, 0.6);
+	}
+
+	@Test
+	void foldDropsCaseDiacriticsAndPunctuation() {
+		assertEquals("creme brulee", fold("  Crème,  BRÛLÉE! "));
+		assertEquals("guten morgen", fold("Guten\tMorgen..."));
+		assertEquals("straße", fold("Straße")); // ß не раскладывается
+		assertEquals("привет мир", fold("Привет, мир!")); // За пределами таблицы - через Character
+		assertEquals("", fold(" ?! "));
+	}
+
+	@Test
+	void foldStopsPastMaxLength() {
+		char[] out = new char[5];
+		assertEquals(5, TranslationScorer.fold("He-llo!!", 0, 8, out, 5));
+		assertEquals(-1, TranslationScorer.fold("hello world", 0, 11, out, 5));
+		assertEquals(-1, TranslationScorer.fold("hello w", 0, 7, out, 6), "the space and the next letter must both fit");
+		assertEquals(5, TranslationScorer.fold("hello   ", 0, 8, out, 5), "trailing whitespace is not counted");
+	}
+
+	@Test
+	void boundedDistanceMatchesLevenshteinWithinTheLimit() {
+		assertEquals(3, distance("kitten", "sitting", 3));
+		assertEquals(-1, distance("kitten", "sitting", 2));
+		assertEquals(0, distance("merci", "merci", 0));
+		assertEquals(1, distance("merci", "mercy", 1));
+		assertEquals(2, distance("ab", "", 2));
+		assertEquals(-1, distance("abcdef", "ab", 3), "the length difference alone is over the limit");
+		assertEquals(-1, distance("abcd", "wxyz", 2), "stops once a whole row is over the limit");
+	}
+
+	@Test
+	void boundedDistanceReadsTheAnswerAtItsOffset() {
+		char[] pool = "xxsittingyy".toCharArray();
+		int[] previous = new int[7];
+		int[] current = new int[7];
+		assertEquals(3, TranslationScorer.boundedDistance("kitten".toCharArray(), 6, pool, 2, 7, 4, previous, current));
+	}
+
+	@Test
+	void scoresTheBestAcceptedAnswer() {
+		assertEquals(100, scorer.score(2, "merci beaucoup!"));
+		assertEquals(100, scorer.score(2, "MERCI"));
+		assertEquals(80, scorer.score(2, "mercy"));
+		assertEquals(0, scorer.score(2, "gracias"));
+		assertEquals(0, scorer.score(2, ""));
+	}
+
+	@Test
+	void overlongSubmissionScoresZeroWithoutGrowingBuffers() {
+		assertEquals(0, scorer.score(1, "hola ".repeat(200_000)));
+		assertEquals(100, scorer.score(1, "hola" + "!".repeat(1000)), "the cap applies to the folded length");
+	}
+
+	@Test
+	void rejectsMinSimilarityOutsideTheRange() {
+		assertThrows(IllegalArgumentException.class, () -> new TranslationScorer(phraseBank, 0));
+		assertThrows(IllegalArgumentException.class, () -> new TranslationScorer(phraseBank, 1.5));
+		assertEquals(100, new TranslationScorer(phraseBank, 1).score(1, "hola"));
+	}
+
+	private static String fold(String text) {
+		char[] out = new char[text.length()];
+		return new String(out, 0, TranslationScorer.fold(text, 0, text.length(), out));
+	}
+
+	private static int distance(String a, String b, int limit) {
+		return TranslationScorer.boundedDistance(a.toCharArray(), a.length(), b.toCharArray(), 0, b.length(), limit,
+			new int[a.length() + 1], new int[a.length() + 1]);
+	}
+}
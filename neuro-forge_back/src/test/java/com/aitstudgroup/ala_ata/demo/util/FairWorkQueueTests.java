@@ -0,0 +1,75 @@
+package com.aitstudgroup.ala_ata.demo.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+// Admission, per-key ordering and round-robin of FairWorkQueue, driven by hand-completed sinks
+class FairWorkQueueTests {
+
+	@Test
+	void oneAtATimePerKeyRunsAKeyInArrivalOrder() {
+		FairWorkQueue<String> queue = new FairWorkQueue<>(4, 10, 10, true);
+		List<String> started = new ArrayList<>();
+		Sinks.One<String> first = Sinks.one();
+		Sinks.One<String> second = Sinks.one();
+
+		queue.submit("a", () -> { started.add("a1"); return first.asMono(); }, IllegalStateException::new).subscribe();
+		queue.submit("a", () -> { started.add("a2"); return second.asMono(); }, IllegalStateException::new).subscribe();
+		assertEquals(List.of("a1"), started);
+		assertEquals(1, queue.queuedCount("a"));
+
+		first.tryEmitValue("done");
+		assertEquals(List.of("a1", "a2"), started);
+		assertEquals(1, queue.inFlightCount());
+
+		second.tryEmitValue("done");
+		assertEquals(0, queue.inFlightCount());
+		assertEquals(0, queue.queuedCount());
+	}
+
+	@Test
+	void freedSlotGoesToTheNextKeyInTurn() {
+		FairWorkQueue<String> queue = new FairWorkQueue<>(1, 10, 10, false);
+		List<String> started = new ArrayList<>();
+		Sinks.One<String> blocker = Sinks.one();
+
+		queue.submit("a", () -> { started.add("a1"); return blocker.asMono(); }, IllegalStateException::new).subscribe();
+		queue.submit("a", () -> { started.add("a2"); return Mono.just("a2"); }, IllegalStateException::new).subscribe();
+		queue.submit("a", () -> { started.add("a3"); return Mono.just("a3"); }, IllegalStateException::new).subscribe();
+		queue.submit("b", () -> { started.add("b1"); return Mono.just("b1"); }, IllegalStateException::new).subscribe();
+
+		blocker.tryEmitValue("done");
+		assertEquals(List.of("a1", "a2", "b1", "a3"), started);
+	}
+
+	@Test
+	void fullQueuesRejectAtOnce() {
+		FairWorkQueue<String> queue = new FairWorkQueue<>(1, 2, 1, false);
+		queue.submit("a", Mono::<String>never, IllegalStateException::new).subscribe();
+		queue.submit("a", Mono::<String>never, IllegalStateException::new).subscribe();
+
+		assertThrows(IllegalStateException.class,
+			() -> queue.submit("a", () -> Mono.just("x"), () -> new IllegalStateException("per key")).block());
+		queue.submit("b", Mono::<String>never, IllegalStateException::new).subscribe();
+		assertThrows(IllegalStateException.class,
+			() -> queue.submit("c", () -> Mono.just("x"), () -> new IllegalStateException("overall")).block());
+		assertEquals(2, queue.queuedCount());
+	}
+
+	@Test
+	void failingWorkFreesItsSlot() {
+		FairWorkQueue<String> queue = new FairWorkQueue<>(1, 10, 10, true);
+		assertThrows(IllegalArgumentException.class,
+			() -> queue.submit("a", () -> { throw new IllegalArgumentException("boom"); }, IllegalStateException::new).block());
+		assertEquals("ok", queue.submit("a", () -> Mono.just("ok"), IllegalStateException::new).block());
+		assertEquals(0, queue.inFlightCount());
+	}
+}
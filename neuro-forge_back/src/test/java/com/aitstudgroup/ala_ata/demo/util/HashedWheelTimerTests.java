@@ -0,0 +1,107 @@
+package com.aitstudgroup.ala_ata.demo.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+// Deadlines, ordering, cancellation and multi-turn timeouts of HashedWheelTimer on a small, fast wheel
+class HashedWheelTimerTests {
+
+	private static final long TICK_MS = 10;
+	private static final int WHEEL_SIZE = 8; // Один оборот - 80 мс
+
+	private HashedWheelTimer timer;
+
+	@BeforeEach
+	void start() {
+		timer = new HashedWheelTimer("test-timer", TICK_MS, TimeUnit.MILLISECONDS, WHEEL_SIZE);
+	}
+
+	@AfterEach
+	void stop() {
+		timer.stop();
+	}
+
+	@Test
+	void firesNoEarlierThanTheDeadline() throws InterruptedException {
+		CountDownLatch fired = new CountDownLatch(1);
+		long start = System.nanoTime();
+		long[] firedAfterNanos = new long[1];
+		HashedWheelTimer.Timeout timeout = timer.schedule(() -> {
+			firedAfterNanos[0] = System.nanoTime() - start;
+			fired.countDown();
+		}, 50, TimeUnit.MILLISECONDS);
+
+		assertTrue(fired.await(2, TimeUnit.SECONDS));
+		assertTrue(firedAfterNanos[0] >= TimeUnit.MILLISECONDS.toNanos(50), "fired after " + firedAfterNanos[0] + " ns");
+		assertTrue(timeout.isExpired());
+		assertFalse(timeout.cancel(), "an expired timeout cannot be cancelled");
+		assertEquals(0, timer.pendingTimeouts());
+	}
+
+	@Test
+	void firesInDeadlineOrderAcrossWheelTurns() throws InterruptedException {
+		List<Integer> order = new CopyOnWriteArrayList<>();
+		CountDownLatch fired = new CountDownLatch(4);
+		// 250 мс - больше трех оборотов колеса, 0 - уже просрочен
+		for (int delay : new int[] {250, 0, 120, 30}) {
+			timer.schedule(() -> {
+				order.add(delay);
+				fired.countDown();
+			}, delay, TimeUnit.MILLISECONDS);
+		}
+
+		assertTrue(fired.await(2, TimeUnit.SECONDS));
+		assertEquals(List.of(0, 30, 120, 250), order);
+	}
+
+	@Test
+	void cancelledTimeoutNeverFires() throws InterruptedException {
+		CountDownLatch cancelledFired = new CountDownLatch(1);
+		CountDownLatch laterFired = new CountDownLatch(1);
+		HashedWheelTimer.Timeout cancelled = timer.schedule(cancelledFired::countDown, 40, TimeUnit.MILLISECONDS);
+		timer.schedule(laterFired::countDown, 100, TimeUnit.MILLISECONDS);
+		assertEquals(2, timer.pendingTimeouts());
+
+		assertTrue(cancelled.cancel());
+		assertFalse(cancelled.cancel(), "second cancel is a no-op");
+		assertTrue(cancelled.isCancelled());
+		assertEquals(1, timer.pendingTimeouts());
+
+		assertTrue(laterFired.await(2, TimeUnit.SECONDS));
+		assertEquals(1, cancelledFired.getCount());
+		assertFalse(cancelled.isExpired());
+	}
+
+	@Test
+	void failingTaskDoesNotStopTheWheel() throws InterruptedException {
+		CountDownLatch fired = new CountDownLatch(1);
+		timer.schedule(() -> {
+			throw new IllegalStateException("boom");
+		}, 10, TimeUnit.MILLISECONDS);
+		timer.schedule(fired::countDown, 30, TimeUnit.MILLISECONDS);
+		assertTrue(fired.await(2, TimeUnit.SECONDS));
+	}
+
+	@Test
+	void stoppedTimerRejectsNewTimeouts() {
+		timer.stop();
+		assertThrows(IllegalStateException.class, () -> timer.schedule(() -> { }, 10, TimeUnit.MILLISECONDS));
+	}
+
+	@Test
+	void rejectsNonPositiveTickOrWheel() {
+		assertThrows(IllegalArgumentException.class, () -> new HashedWheelTimer("bad", 0, TimeUnit.MILLISECONDS, 8));
+		assertThrows(IllegalArgumentException.class, () -> new HashedWheelTimer("bad", 10, TimeUnit.MILLISECONDS, 0));
+	}
+}
@@ -0,0 +1,64 @@
+package com.aitstudgroup.ala_ata.demo.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+// JSON Patch ops produced by JsonDiff for the shapes game states actually take
+class JsonDiffTests {
+
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+
+	@Test
+	void equalTreesHaveNoOps() throws JsonProcessingException {
+		assertEquals(json("[]"), diff("{\"a\":[1,{\"b\":2}]}", "{\"a\":[1,{\"b\":2}]}"));
+	}
+
+	@Test
+	void changedFieldsAreReplacedInPlace() throws JsonProcessingException {
+		assertEquals(json("[{\"op\":\"replace\",\"path\":\"/score/player1\",\"value\":7}]"),
+			diff("{\"score\":{\"player1\":5,\"player2\":3}}", "{\"score\":{\"player1\":7,\"player2\":3}}"));
+	}
+
+	@Test
+	void missingAndNewFieldsAreRemovedAndAdded() throws JsonProcessingException {
+		assertEquals(json("[{\"op\":\"remove\",\"path\":\"/old\"},{\"op\":\"add\",\"path\":\"/new\",\"value\":{\"x\":1}}]"),
+			diff("{\"old\":1,\"kept\":true}", "{\"kept\":true,\"new\":{\"x\":1}}"));
+	}
+
+	@Test
+	void appendedElementsBecomeTrailingAdds() throws JsonProcessingException {
+		assertEquals(json("[{\"op\":\"add\",\"path\":\"/rounds/2\",\"value\":3},{\"op\":\"add\",\"path\":\"/rounds/3\",\"value\":4}]"),
+			diff("{\"rounds\":[1,2]}", "{\"rounds\":[1,2,3,4]}"));
+	}
+
+	@Test
+	void shrunkArraysAreRemovedFromTheEnd() throws JsonProcessingException {
+		assertEquals(json("[{\"op\":\"replace\",\"path\":\"/0\",\"value\":9},{\"op\":\"remove\",\"path\":\"/3\"},{\"op\":\"remove\",\"path\":\"/2\"}]"),
+			diff("[1,2,3,4]", "[9,2]"));
+	}
+
+	@Test
+	void typeChangesReplaceTheWholeValue() throws JsonProcessingException {
+		assertEquals(json("[{\"op\":\"replace\",\"path\":\"/state\",\"value\":[1]}]"), diff("{\"state\":{\"a\":1}}", "{\"state\":[1]}"));
+		assertEquals(json("[{\"op\":\"replace\",\"path\":\"\",\"value\":[]}]"), diff("{}", "[]"));
+	}
+
+	@Test
+	void fieldNamesAreEscaped() throws JsonProcessingException {
+		assertEquals(json("[{\"op\":\"replace\",\"path\":\"/a~1b/c~0d\",\"value\":2}]"),
+			diff("{\"a/b\":{\"c~d\":1}}", "{\"a/b\":{\"c~d\":2}}"));
+	}
+
+	private static JsonNode diff(String source, String target) throws JsonProcessingException {
+		return JsonDiff.diff(json(source), json(target));
+	}
+
+	private static JsonNode json(String text) throws JsonProcessingException {
+		return MAPPER.readTree(text);
+	}
+}
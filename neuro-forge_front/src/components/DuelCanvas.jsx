@@ -2,6 +2,7 @@ import React, { useState, useEffect } from 'react';
 import { useLocation } from 'react-router-dom';
 import { useAuth } from '../context/AuthContext';
 import { getMatchDetails } from '../api/matchService'; // Uncommented import
+import { getCurrentToken } from '../api/authService';
 import OptimizationRallyGame from './games/OptimizationRallyChart'; // Corrected import name for the refactored component
 import SockJS from 'sockjs-client';
 import { Client } from '@stomp/stompjs';
@@ -110,9 +111,16 @@ export default function DuelCanvas() {
     if (!matchId) return;
 
     console.log('[DuelCanvas WebSocket] Attempting to connect for matchId:', matchId);
-    const socket = new SockJS(`http://${window.location.hostname}:8080/ws-duel`);
+    // Plain WebSocket with binary (CBOR) game states where available; SockJS (text JSON) otherwise
+    const nativeWebSocket = typeof window.WebSocket === 'function';
     const client = new Client({
-      webSocketFactory: () => socket,
+      webSocketFactory: () => nativeWebSocket
+        ? new WebSocket(`ws://${window.location.hostname}:8080/ws-duel-native`)
+        : new SockJS(`http://${window.location.hostname}:8080/ws-duel`),
+      connectHeaders: {
+        ...(getCurrentToken() ? { Authorization: `Bearer ${getCurrentToken()}` } : {}), // Session user = JWT subject, for /user/queue/...
+        ...(nativeWebSocket ? { 'state-encoding': 'cbor' } : {}),
+      },
       debug: function (str) {
         console.log('[DuelCanvas STOMP]', str);
       },
@@ -3,6 +3,9 @@ import { useNavigate } from 'react-router-dom';
 import { useAuth } from '../context/AuthContext';
 import { getPlayerModels } from '../api/modelService';
 import { joinQueue, leaveQueue, getActiveMatches } from '../api/matchmakingService';
+import { getCurrentToken } from '../api/authService';
+import SockJS from 'sockjs-client';
+import { Client } from '@stomp/stompjs';
 import { FiSearch, FiXCircle } from 'react-icons/fi';
 
 export default function Matchmaking() {
@@ -19,6 +22,7 @@ export default function Matchmaking() {
   const [error, setError] = useState('');
 
   const pollRef = useRef(null);
+  const stompRef = useRef(null);
 
   // Load player's models
   useEffect(() => {
@@ -37,17 +41,49 @@ export default function Matchmaking() {
     if (user && user.id) fetchModels();
   }, [user]);
 
-  // Start polling for active matches
+  const stopWaiting = () => {
+    clearInterval(pollRef.current);
+    if (stompRef.current) {
+      stompRef.current.deactivate();
+      stompRef.current = null;
+    }
+  };
+
+  const openMatch = (matchId) => {
+    stopWaiting();
+    setSearching(false);
+    navigate('/duel', { state: { matchId } });
+  };
+
+  // Stop listening if the page is left mid-search
+  useEffect(() => stopWaiting, []);
+
+  // The server notifies only the two participants on /user/queue/matches (session keyed by the JWT subject)
+  const listenForMatch = () => {
+    const client = new Client({
+      webSocketFactory: () => new SockJS(`http://${window.location.hostname}:8080/ws-duel`),
+      connectHeaders: getCurrentToken() ? { Authorization: `Bearer ${getCurrentToken()}` } : {},
+      onConnect: () => {
+        client.subscribe('/user/queue/matches', message => {
+          const match = JSON.parse(message.body);
+          console.log('[Matchmaking] Match found:', match);
+          openMatch(match.id);
+        });
+      },
+      onStompError: frame => console.error('[Matchmaking] STOMP error:', frame.headers['message']),
+    });
+    client.activate();
+    stompRef.current = client;
+  };
+
+  // Fallback: poll for active matches (e.g. the notification was sent before the subscription)
   const startPolling = () => {
     pollRef.current = setInterval(async () => {
       try {
         const active = await getActiveMatches(user.id);
         if (active && active.length > 0) {
-          // Stop polling
-          clearInterval(pollRef.current);
-          setSearching(false);
           // Navigate to duel page for the first active match
-          navigate('/duel', { state: { matchId: active[0].id } });
+          openMatch(active[0].id);
         }
       } catch (err) {
         console.error('Error polling active matches:', err);
@@ -63,17 +99,19 @@ export default function Matchmaking() {
     setError('');
     setSearching(true);
     try {
+      listenForMatch();
       await joinQueue(user.id, selectedModel, matchType);
       startPolling();
     } catch (err) {
       console.error('Failed to join matchmaking queue:', err);
+      stopWaiting();
       setError('Failed to start matchmaking.');
       setSearching(false);
     }
   };
 
   const handleCancelSearch = async () => {
-    clearInterval(pollRef.current);
+    stopWaiting();
     setSearching(false);
     try {
       await leaveQueue(user.id);
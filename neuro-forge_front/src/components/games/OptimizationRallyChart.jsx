@@ -3,6 +3,7 @@ import React, { useState, useEffect, useCallback } from 'react';
 import { Prism as SyntaxHighlighter } from 'react-syntax-highlighter';
 import { vscDarkPlus } from 'react-syntax-highlighter/dist/esm/styles/prism';
 import { useAuth } from '../../context/AuthContext'; // To get current user
+import { createStateSync, readStateFrame } from '../../services/stateSync';
 
 // Вспомогательная функция для преобразования строки сложности в числовой балл (меньше - лучше)
 const getComplexityScore = (complexityString) => {
@@ -64,11 +65,11 @@ const MetricsDisplay = ({ metrics, title, color }) => {
       <div className="grid grid-cols-3 gap-1 text-xs">
         <div className="flex flex-col">
           <span className="text-gray-400">Время выполнения</span>
-          <span className="font-mono">{metrics.executionTime}ms</span>
+          <span className="font-mono">{metrics.executionTimeMs ?? metrics.executionTime}ms</span>
         </div>
         <div className="flex flex-col">
           <span className="text-gray-400">Память</span>
-          <span className="font-mono">{metrics.memoryUsage}KB</span>
+          <span className="font-mono">{metrics.allocatedKb ?? metrics.memoryUsage}KB</span>
         </div>
         <div className="flex flex-col">
           <span className="text-gray-400">Сложность</span>
@@ -163,11 +164,17 @@ export default function OptimizationRallyGame({ matchId, stompClient, initialMat
     if (stompClient && stompClient.connected && matchId) {
       const topic = `/topic/duel/${matchId}/optimization/state`;
       console.log(`[OptimizationRallyGame] Subscribing to ${topic}`);
-      const subscription = stompClient.subscribe(topic, message => {
-        try {
-          const updatedGameState = JSON.parse(message.body);
+      // Сервер шлет версионированные дельты; при пропуске версии просим полный снимок
+      const handleStateMessage = createStateSync(
+        updatedGameState => {
           console.log('[OptimizationRallyGame] Received game state update via WebSocket:', updatedGameState);
           setOptimizationGameState(updatedGameState);
+        },
+        () => stompClient.publish({ destination: `/app/duel/${matchId}/optimization/resync`, body: '' })
+      );
+      const subscription = stompClient.subscribe(topic, message => {
+        try {
+          handleStateMessage(readStateFrame(message));
         } catch (e) {
           console.error('[OptimizationRallyGame] Error parsing WebSocket game state update:', e);
           // setError("Error receiving game update.");
@@ -280,12 +287,25 @@ export default function OptimizationRallyGame({ matchId, stompClient, initialMat
       gameStatusText = `Status: ${gameStatus}`;
   }
 
+  // Отправка принята и оценивается на сервере / отклонена (BUSY - сервер перегружен, можно отправить снова)
+  const isEvaluating = (optimizationGameState.evaluatingPlayerIds || []).includes(currentUser?.id);
+  if (isEvaluating) {
+    gameStatusText = `Round ${currentStep}: Evaluating your submission...`;
+    canSubmit = false;
+  }
+  const rejectionText = optimizationGameState.rejectedPlayerId === currentUser?.id
+    ? (optimizationGameState.rejectionReason === 'BUSY'
+        ? 'Server is busy evaluating other submissions. Please submit again.'
+        : 'Your submission could not be evaluated. Please submit again.')
+    : null;
+
   return (
     <div className="w-full h-full flex flex-col p-1 text-white">
       {problemDescription && (
         <h3 className="text-lg font-semibold mb-3 text-center text-yellow-400 shrink-0">{problemDescription}</h3>
       )}
       <p className="text-center text-md mb-3">{gameStatusText}</p>
+      {rejectionText && <p className="text-center text-sm mb-3 text-red-400">{rejectionText}</p>}
       <p className="text-center text-sm mb-3">Step: {currentStep} / {timeSteps}</p>
 
       {/* Original Code Display (for reference) */}
@@ -1,6 +1,7 @@
 import React, { useState, useEffect, useCallback } from 'react';
 import { useNavigate } from 'react-router-dom';
 import { useAuth } from '../../context/AuthContext'; // Adjusted path
+import { createStateSync, readStateFrame } from '../../services/stateSync';
 
 // Props: matchId, user, stompClient, initialMatchDetails, isSoloMode
 export default function TranslationBattleGame({ matchId, user, stompClient, initialMatchDetails, isSoloMode }) {
@@ -61,14 +62,20 @@ export default function TranslationBattleGame({ matchId, user, stompClient, init
   useEffect(() => {
     if (!isSoloMode && stompClient && stompClient.connected && matchId) {
       console.log(`[TranslationBattleGame] Subscribing to /topic/duel/${matchId}/translation/state`);
-      const subscription = stompClient.subscribe(`/topic/duel/${matchId}/translation/state`, message => {
-        try {
-          const updatedGameState = JSON.parse(message.body);
+      // Сервер шлет версионированные дельты; при пропуске версии просим полный снимок
+      const handleStateMessage = createStateSync(
+        updatedGameState => {
           console.log('[TranslationBattleGame] Received game state update via WebSocket:', updatedGameState);
           setGameState(updatedGameState);
           if (updatedGameState.roundTimeLimit) {
             setCurrentRoundTimeLeft(updatedGameState.roundTimeLimit);
           }
+        },
+        () => stompClient.publish({ destination: `/app/duel/${matchId}/translation/resync`, body: '' })
+      );
+      const subscription = stompClient.subscribe(`/topic/duel/${matchId}/translation/state`, message => {
+        try {
+          handleStateMessage(readStateFrame(message));
         } catch (e) {
           console.error('[TranslationBattleGame] Error parsing WebSocket game state update:', e);
         }
@@ -103,9 +110,11 @@ export default function TranslationBattleGame({ matchId, user, stompClient, init
   }, [gameState?.gameState, gameState?.currentRound, gameState?.roundTimeLimit, gameState?.roundStartTime]);
 
   // ОПРЕДЕЛЯЕМ currentPhraseData ЗДЕСЬ, ДО useCallback
-  const currentPhraseData = gameState?.phrases && gameState?.currentPhraseIndex >= 0 && gameState?.currentPhraseIndex < gameState.phrases.length
-    ? gameState.phrases[gameState.currentPhraseIndex]
-    : null;
+  // В сетевом режиме сервер присылает только текущую фразу (currentPhrase), в одиночном - весь список phrases
+  const currentPhraseData = gameState?.currentPhrase
+    ?? (gameState?.phrases && gameState?.currentPhraseIndex >= 0 && gameState?.currentPhraseIndex < gameState.phrases.length
+      ? gameState.phrases[gameState.currentPhraseIndex]
+      : null);
 
   const currentQuestionType = currentPhraseData?.questionType; // 'TRANSLATION' or 'MATH'
 
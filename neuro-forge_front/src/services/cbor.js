@@ -0,0 +1,87 @@
+// Декодер CBOR (RFC 8949) для бинарных кадров состояния игры (см. CborEncoder на бэкенде).
+// Поддерживает то, что шлет сервер: целые, строки, байты, массивы и объекты определенной длины,
+// float16/32/64, true/false/null/undefined. Теги пропускаются (возвращается вложенное значение).
+
+const textDecoder = new TextDecoder();
+
+const decodeFloat16 = (half) => {
+  const exponent = (half >> 10) & 0x1f;
+  const mantissa = half & 0x3ff;
+  const sign = half & 0x8000 ? -1 : 1;
+  if (exponent === 0) return sign * 2 ** -14 * (mantissa / 1024);
+  if (exponent === 31) return mantissa ? NaN : sign * Infinity;
+  return sign * 2 ** (exponent - 15) * (1 + mantissa / 1024);
+};
+
+export const decodeCbor = (bytes) => {
+  const data = bytes instanceof Uint8Array ? bytes : new Uint8Array(bytes);
+  const view = new DataView(data.buffer, data.byteOffset, data.byteLength);
+  let offset = 0;
+
+  const readArgument = (info) => {
+    if (info < 24) return info;
+    let value;
+    switch (info) {
+      case 24: value = view.getUint8(offset); offset += 1; return value;
+      case 25: value = view.getUint16(offset); offset += 2; return value;
+      case 26: value = view.getUint32(offset); offset += 4; return value;
+      case 27: value = Number(view.getBigUint64(offset)); offset += 8; return value;
+      default: throw new Error(`Unsupported CBOR length encoding ${info}`);
+    }
+  };
+
+  const readItem = () => {
+    const initial = view.getUint8(offset++);
+    const major = initial >> 5;
+    const info = initial & 0x1f;
+    switch (major) {
+      case 0: return readArgument(info);
+      case 1: return -1 - readArgument(info);
+      case 2: {
+        const length = readArgument(info);
+        const value = data.slice(offset, offset + length);
+        offset += length;
+        return value;
+      }
+      case 3: {
+        const length = readArgument(info);
+        const value = textDecoder.decode(data.subarray(offset, offset + length));
+        offset += length;
+        return value;
+      }
+      case 4: {
+        const length = readArgument(info);
+        const array = new Array(length);
+        for (let i = 0; i < length; i++) array[i] = readItem();
+        return array;
+      }
+      case 5: {
+        const length = readArgument(info);
+        const object = {};
+        for (let i = 0; i < length; i++) {
+          const key = readItem();
+          object[key] = readItem();
+        }
+        return object;
+      }
+      case 6:
+        readArgument(info);
+        return readItem();
+      default: {
+        let value;
+        switch (info) {
+          case 20: return false;
+          case 21: return true;
+          case 22: return null;
+          case 23: return undefined;
+          case 25: value = decodeFloat16(view.getUint16(offset)); offset += 2; return value;
+          case 26: value = view.getFloat32(offset); offset += 4; return value;
+          case 27: value = view.getFloat64(offset); offset += 8; return value;
+          default: throw new Error(`Unsupported CBOR simple value ${info}`);
+        }
+      }
+    }
+  };
+
+  return readItem();
+};
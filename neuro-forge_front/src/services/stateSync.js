@@ -0,0 +1,91 @@
+// Версионированные обновления состояния игры (см. GameStateBroadcaster на бэкенде).
+// Сервер шлет {type: 'snapshot', version, state} или {type: 'delta', version, baseVersion, ops},
+// где ops - add/replace/remove по JSON Pointer путям относительно предыдущего состояния.
+// Если дельта не ложится на имеющуюся версию (пропущено сообщение, подписались посреди матча),
+// просим сервер переслать снимок через requestResync и ждем его.
+// Версии считаются на каждом узле бэкенда свои (source): снимок другого узла принимаем всегда,
+// а его дельты - только после его снимка.
+// Снимок тоже может потеряться (медленному клиенту сервер отбрасывает старые кадры из буфера,
+// websocket.transport.slow-consumer-policy=drop), поэтому запрос повторяется, если ответа нет RESYNC_RETRY_MS.
+
+import { decodeCbor } from './cbor';
+
+const RESYNC_RETRY_MS = 3000;
+
+const unescapePointer = (segment) => segment.replace(/~1/g, '/').replace(/~0/g, '~');
+
+const applyOp = (root, op) => {
+  if (op.path === '') {
+    return op.op === 'remove' ? null : op.value;
+  }
+  const segments = op.path.substring(1).split('/').map(unescapePointer);
+  const last = segments.pop();
+  let parent = root;
+  for (const segment of segments) {
+    parent = Array.isArray(parent) ? parent[Number(segment)] : parent[segment];
+  }
+  if (Array.isArray(parent)) {
+    const index = Number(last);
+    if (op.op === 'remove') parent.splice(index, 1);
+    else if (op.op === 'add') parent.splice(index, 0, op.value);
+    else parent[index] = op.value;
+  } else if (op.op === 'remove') {
+    delete parent[last];
+  } else {
+    parent[last] = op.value;
+  }
+  return root;
+};
+
+// Тело STOMP-сообщения топика состояния: CBOR в бинарном кадре (сессия с state-encoding: cbor) или JSON-текст
+export const readStateFrame = (message) =>
+  message.headers['state-encoding'] === 'cbor' ? decodeCbor(message.binaryBody) : message.body;
+
+export const applyPatch = (state, ops) => ops.reduce(applyOp, structuredClone(state));
+
+/**
+ * Возвращает обработчик тел STOMP-сообщений топика состояния.
+ * onState(state) вызывается с полным состоянием после каждого примененного обновления.
+ * Сообщения без type (старый формат - полное состояние) передаются как есть.
+ */
+export const createStateSync = (onState, requestResync) => {
+  let source = null;
+  let version = null;
+  let state = null;
+  let resyncRequestedAt = null;
+
+  const resync = () => {
+    const now = Date.now();
+    if (resyncRequestedAt === null || now - resyncRequestedAt >= RESYNC_RETRY_MS) {
+      resyncRequestedAt = now;
+      requestResync();
+    }
+  };
+
+  return (body) => {
+    const message = typeof body === 'string' ? JSON.parse(body) : body;
+    if (message.type === 'snapshot') {
+      if (message.source === source && version !== null && message.version < version) return; // Устаревший снимок
+      source = message.source;
+      version = message.version;
+      state = message.state;
+      resyncRequestedAt = null;
+      onState(state);
+    } else if (message.type === 'delta') {
+      if (state === null || message.source !== source || message.baseVersion !== version) {
+        if (message.source !== source || version === null || message.version > version) resync();
+        return;
+      }
+      try {
+        state = applyPatch(state, message.ops);
+        version = message.version;
+        onState(state);
+      } catch (e) {
+        console.error('[stateSync] Failed to apply delta, requesting a snapshot:', e);
+        resync();
+      }
+    } else {
+      onState(message);
+    }
+  };
+};